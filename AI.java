@@ -6,6 +6,16 @@ package ataxx;
 
 import java.util.Random;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static ataxx.PieceColor.*;
 import static java.lang.Math.min;
@@ -19,17 +29,41 @@ class AI extends Player {
     /** Maximum minimax search depth before going to static evaluation. */
     private static final int MAX_DEPTH = 4;
     /** A position magnitude indicating a win (for red if positive, blue
-     *  if negative). */
-    private static final int WINNING_VALUE = Integer.MAX_VALUE - 20;
+     *  if negative).  Wins are valued WINNING_VALUE plus the remaining
+     *  search depth, so this leaves room for any depth. */
+    private static final int WINNING_VALUE = Integer.MAX_VALUE / 2;
     /** A magnitude greater than a normal value. */
     private static final int INFTY = Integer.MAX_VALUE;
+    /** Number of squares on the extended board. */
+    private static final int SQUARES = SearchTables.SQUARES;
+    /** Least time between reports of a search's progress, in
+     *  nanoseconds. */
+    private static final long PROGRESS_NANOS =
+        Defaults.PROGRESS_INTERVAL * 1_000_000L;
 
     /** A new AI for GAME that will play MYCOLOR. SEED is used to initialize
      *  a random-number generator for use in move computations.  Identical
      *  seeds produce identical behaviour. */
     AI(Game game, PieceColor myColor, long seed) {
+        this(game, myColor, seed, game.searchControl());
+    }
+
+    /** A new AI for GAME that will play MYCOLOR, using SEED as for the
+     *  constructor above, whose searches are limited and cancelled by
+     *  CONTROL.  GAME may be null for an AI that is used only through
+     *  findMove(Board, int) and analyze. */
+    AI(Game game, PieceColor myColor, long seed, SearchControl control) {
         super(game, myColor);
+        _seed = seed;
         _random = new Random(seed);
+        _control = control;
+        _evalCacheLogSize = Main.evalCacheLogSize();
+        _network = Main.network();
+    }
+
+    /** Return the seed with which I was created. */
+    long seed() {
+        return _seed;
     }
 
     @Override
@@ -43,29 +77,442 @@ class AI extends Player {
             game().reportMove(Move.pass(), myColor());
             return "-";
         }
-        Main.startTiming();
-        Move move = findMove();
-        Main.endTiming();
+        Move move = findMove(game().searchExecutor());
+        Main.endTiming(stats());
         game().reportMove(move, myColor());
         return move.toString();
     }
 
+    /** Start a search for my move in the current position on EXECUTOR,
+     *  returning a future for the move (a pass if I cannot move).  The
+     *  search works on a copy of the board, so that the game may go on
+     *  reading commands while it runs; it may be cut short through my
+     *  SearchControl, yielding the best move found so far. */
+    CompletableFuture<Move> searchAsync(Executor executor) {
+        if (!getBoard().canMove(myColor())) {
+            return CompletableFuture.completedFuture(Move.pass());
+        }
+        Board board = new Board(getBoard());
+        return CompletableFuture.supplyAsync(() -> {
+            Move move = findMove(board, MAX_DEPTH);
+            Main.endTiming(stats());
+            return move;
+        }, executor);
+    }
+
+    /** Return findMove(), computing it on EXECUTOR, unless it is null.
+     *  Waits for the result in any case.  If this thread is interrupted
+     *  while waiting, stops the search and returns its best move so
+     *  far, leaving the thread's interrupt status set. */
+    private Move findMove(ExecutorService executor) {
+        return runOn(executor, () -> findMove());
+    }
+
+    /** Return the result of TASK, a search of mine, running it on
+     *  EXECUTOR, unless it is null.  Waits for the result in any case.
+     *  If this thread is interrupted while waiting, stops the search and
+     *  waits for it to return, leaving the thread's interrupt status
+     *  set. */
+    private <T> T runOn(ExecutorService executor, Supplier<T> task) {
+        if (executor == null) {
+            return task.get();
+        }
+        Future<T> result = executor.submit(task::get);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return result.get();
+                } catch (InterruptedException excp) {
+                    interrupted = true;
+                    _control.stop();
+                }
+            }
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) excp.getCause();
+            }
+            throw new Error(excp.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     /** Return a move for me from the current position, assuming there
      *  is a move. */
     private Move findMove() {
-        Board b = new Board(getBoard());
-        _lastFoundMove = null;
-        if (myColor() == RED) {
-            minMax(b, MAX_DEPTH, true, 1, -INFTY, INFTY);
-        } else {
-            minMax(b, MAX_DEPTH, true, -1, -INFTY, INFTY);
+        return findMove(getBoard(), MAX_DEPTH);
+    }
+
+    /** Return a move for the side to move on BOARD, assuming there is
+     *  one, searching no deeper than MAXDEPTH.  Searches to successively
+     *  greater depths, so that if the search is stopped early (by running
+     *  out of time or nodes, or by request), the best move found so far
+     *  can still be returned.  The search to depth 1 is always completed.
+     *  If the opponent has just made the reply predicted by my last
+     *  search, starts from the next move of that line, two plies
+     *  shallower than the depth that search reached.  Of moves of equal
+     *  value, chooses the one with the least packed code, so that the
+     *  choice does not depend on the order in which moves are tried.
+     *  Values, and so choices, may still depend on what earlier searches
+     *  left in the tables used.  Does not modify BOARD. */
+    Move findMove(Board board, int maxDepth) {
+        Board b = new Board(board);
+        attachNetwork(b);
+        useTables();
+        int startDepth = 1;
+        _lastFoundMove = Move.NO_MOVE;
+        if (_expectedLine.size() > 2 && b.searchHash() == _expectedHash
+            && b.legalMove(_expectedLine.get(2))) {
+            _lastFoundMove = _expectedLine.get(2).code();
+            startDepth = min(max(1, _lastDepth - 2), maxDepth);
+        }
+        ageHistory();
+        FlightEvents.Search event = null;
+        if (FlightEvents.enabled()) {
+            event = new FlightEvents.Search();
+            event.begin();
+        }
+        int value = search(b, startDepth, maxDepth);
+        recordExpectedLine(b);
+        if (event != null) {
+            event.depth = _lastDepth;
+            event.nodes = _nodes;
+            event.score = value;
+            event.move = String.valueOf(Move.unpack(_lastFoundMove));
+            event.commit();
+        }
+        return Move.unpack(_lastFoundMove);
+    }
+
+    /** Search BOARD for the side to move, to depths STARTDEPTH through
+     *  MAXDEPTH in turn, or until stopped by _control.  Sets
+     *  _lastFoundMove to the best move found, _lastDepth to the deepest
+     *  completed iteration, and returns the value found by that
+     *  iteration.  _lastFoundMove, if not NO_MOVE on entry, is searched
+     *  first. */
+    private int search(Board board, int startDepth, int maxDepth) {
+        int sense = board.whoseMove() == RED ? 1 : -1;
+        int value = 0;
+        long start = System.nanoTime();
+        _nodes = 0;
+        _aborted = false;
+        _lastDepth = 0;
+        _stats.clear();
+        _stats.searches = 1;
+        _timeDetail = Main.isTiming();
+        _nextProgress = start + PROGRESS_NANOS;
+        _control.start();
+        for (int depth = startDepth; depth <= maxDepth; depth += 1) {
+            _iterationDepth = depth;
+            int v = minMax(board, depth, true, sense, -INFTY, INFTY);
+            if (_aborted) {
+                break;
+            }
+            value = v;
+            _lastDepth = depth;
+            _lastValue = v;
+            if (_listener != null) {
+                principalVariation(board, _lastFoundMove, depth, _line);
+                _listener.accept(new SearchInfo(1, v, depth, _nodes,
+                                                System.nanoTime() - start,
+                                                _line));
+            }
+            if (_control.stopped()) {
+                break;
+            }
+        }
+        _stats.nodes = _nodes;
+        _stats.elapsed = System.nanoTime() - start;
+        return value;
+    }
+
+    /** Return the statistics of the last search (for analysis, the last
+     *  line searched).  Timings of move generation and evaluation are
+     *  collected only when timing (see Main.isTiming()). */
+    SearchStats stats() {
+        return _stats.copy();
+    }
+
+    /** Score up to COUNT of the legal moves from BOARD for the side to
+     *  move, best first, sending a report of each to REPORTER as soon as
+     *  it is found.  Each move is searched to DEPTH, and if MILLIS is
+     *  positive, for no more than MILLIS milliseconds in all.  The k'th
+     *  report comes from a search of all moves other than the best k-1,
+     *  so later searches reuse the results of earlier ones through the
+     *  transposition table. */
+    void analyze(Board board, int depth, long millis, int count,
+                 Reporter reporter) {
+        Board b = new Board(board);
+        attachNetwork(b);
+        useTables();
+        ArrayList<Move> line = new ArrayList<>();
+        count = min(count, b.legalMoves(moveList(0), 0));
+        if (count == 0) {
+            return;
+        }
+        _control.setTimeLimit(millis > 0 ? max(1, millis / count) : 0);
+        _excluded = new int[count];
+        _numExcluded = 0;
+        try {
+            for (int rank = 1; rank <= count; rank += 1) {
+                long start = System.nanoTime();
+                _lastFoundMove = Move.NO_MOVE;
+                int value = search(b, 1, depth);
+                if (_lastFoundMove == Move.NO_MOVE) {
+                    break;
+                }
+                principalVariation(b, _lastFoundMove, max(_lastDepth, 1),
+                                   line);
+                reporter.announceAnalysis(
+                    new SearchInfo(rank, value, _lastDepth, _nodes,
+                                   System.nanoTime() - start, line));
+                _excluded[_numExcluded] = _lastFoundMove;
+                _numExcluded += 1;
+                if (_control.stopped()) {
+                    break;
+                }
+            }
+        } finally {
+            _numExcluded = 0;
+        }
+    }
+
+    /** As for analyze(BOARD, DEPTH, MILLIS, COUNT, REPORTER), but run
+     *  on EXECUTOR, unless it is null, waiting for it to finish.  If
+     *  this thread is interrupted while waiting, stops the analysis,
+     *  leaving the thread's interrupt status set. */
+    void analyze(Board board, int depth, long millis, int count,
+                 Reporter reporter, ExecutorService executor) {
+        runOn(executor, () -> {
+            analyze(board, depth, millis, count, reporter);
+            return null;
+        });
+    }
+
+    /** Set _table, _history, and _evalCache for a search on this
+     *  thread: those carried by the thread, if any (see SearchTables),
+     *  and otherwise my own, allocating them if need be. */
+    private void useTables() {
+        SearchTables tables = SearchTables.ofCurrentThread();
+        if (tables == null) {
+            if (_ownTables == null) {
+                _ownTables = new SearchTables();
+            }
+            tables = _ownTables;
+        }
+        _table = tables.table();
+        _history = tables.history();
+        _evalCache = tables.evalCache(_evalCacheLogSize, _network);
+    }
+
+    /** Set _expectedLine to the principal variation from BOARD found by
+     *  the last search, and _expectedHash to the search hash of the
+     *  position after its first two moves. */
+    private void recordExpectedLine(Board board) {
+        principalVariation(board, _lastFoundMove, max(_lastDepth, 1),
+                           _expectedLine);
+        _expectedHash = 0;
+        if (_expectedLine.size() >= 2) {
+            board.makeMove(_expectedLine.get(0));
+            board.makeMove(_expectedLine.get(1));
+            _expectedHash = board.searchHash();
+            board.undo();
+            board.undo();
+        }
+    }
+
+    /** Set LINE to the line of play from BOARD that starts with FIRST
+     *  and continues with the best moves recorded in the transposition
+     *  table, up to LENGTH moves or the end of the game.  Leaves BOARD
+     *  unchanged. */
+    private void principalVariation(Board board, int first, int length,
+                                    List<Move> line) {
+        line.clear();
+        int move = first;
+        while (move != Move.NO_MOVE && line.size() < length
+               && board.getWinner() == null && board.legalMove(move)) {
+            board.makeMove(move);
+            line.add(Move.unpack(move));
+            move = _table.bestMove(board.searchHash());
+        }
+        for (int i = 0; i < line.size(); i += 1) {
+            board.undo();
+        }
+    }
+
+    /** Return the principal variation found by the last search: the
+     *  line of play it expects, starting with the move it chose. */
+    List<Move> principalVariation() {
+        return Collections.unmodifiableList(_expectedLine);
+    }
+
+    /** Return the depth of the last search iteration that completed
+     *  during the last call to findMove. */
+    int lastDepth() {
+        return _lastDepth;
+    }
+
+    /** Return the value (positive for red) found by the last search
+     *  iteration that completed during the last call to findMove. */
+    int lastValue() {
+        return _lastValue;
+    }
+
+    /** Have each of my searches send LISTENER a report of the move found
+     *  as each iteration completes (or stop doing so, if null). */
+    void setListener(Consumer<SearchInfo> listener) {
+        _listener = listener;
+    }
+
+    /** Reduce all history scores, so that those from earlier searches
+     *  gradually lose their influence on move ordering. */
+    private void ageHistory() {
+        for (int i = 0; i < _history.length; i += 1) {
+            _history[i] >>= 1;
+        }
+    }
+
+    /** Return the history score of the move with packed code MOVE: a
+     *  measure of how often it has caused cutoffs in recent searches. */
+    private int history(int move) {
+        return _history[Move.from(move) * SQUARES + Move.to(move)];
+    }
+
+    /** Record that MOVE caused a cutoff in a search of depth DEPTH, and
+     *  was the FIRST move tried there iff FIRST. */
+    private void recordCutoff(int move, int depth, boolean first) {
+        _stats.betaCutoffs += 1;
+        if (first) {
+            _stats.firstMoveCutoffs += 1;
+        }
+        _history[Move.from(move) * SQUARES + Move.to(move)] +=
+            depth * depth;
+    }
+
+    /** Sort the N moves in MOVES so as to try the most promising first:
+     *  FIRST (if among them), followed by the others in order of
+     *  decreasing history score.  Moves with equal scores keep their
+     *  order. */
+    private void orderMoves(int[] moves, int n, int first) {
+        for (int i = 1; i < n; i += 1) {
+            int move = moves[i], score = history(move);
+            int j;
+            for (j = i; j > 0 && history(moves[j - 1]) < score; j -= 1) {
+                moves[j] = moves[j - 1];
+            }
+            moves[j] = move;
+        }
+        for (int i = 0; i < n; i += 1) {
+            if (moves[i] == first) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = first;
+                break;
+            }
+        }
+    }
+
+    /** Return a buffer for the moves from positions PLY plies below the
+     *  root of a search. */
+    private int[] moveList(int ply) {
+        if (ply >= _moveLists.length) {
+            _moveLists = Arrays.copyOf(_moveLists, 2 * ply + 1);
+        }
+        if (_moveLists[ply] == null) {
+            _moveLists[ply] = new int[Board.MAX_MOVES];
+        }
+        return _moveLists[ply];
+    }
+
+    /** Remove the moves in _excluded from the N moves in MOVES, returning
+     *  the number left. */
+    private int removeExcluded(int[] moves, int n) {
+        int k = 0;
+        for (int i = 0; i < n; i += 1) {
+            boolean excluded = false;
+            for (int j = 0; j < _numExcluded; j += 1) {
+                excluded |= moves[i] == _excluded[j];
+            }
+            if (!excluded) {
+                moves[k] = moves[i];
+                k += 1;
+            }
+        }
+        return k;
+    }
+
+    /** Cache the static values of up to 2**LOGSIZE positions in my
+     *  searches, or none if LOGSIZE is 0, discarding those cached so
+     *  far. */
+    void setEvalCacheSize(int logSize) {
+        if (logSize < 0 || logSize > EvalCache.MAX_LOG_SIZE) {
+            throw new IllegalArgumentException("bad cache size");
+        }
+        _evalCacheLogSize = logSize;
+    }
+
+    /** Evaluate positions with NETWORK, or by counting pieces if
+     *  NETWORK is null, discarding any cached evaluations.  The network
+     *  is used only on boards of its size. */
+    void setNetwork(Network network) {
+        _network = network;
+        _accumulator = null;
+    }
+
+    /** If I evaluate with a network and it is for boards of the size of
+     *  BOARD, a copy that only I use, keep the network's hidden sums up
+     *  to date on BOARD, and evaluate with them in searches of BOARD.
+     *  Otherwise, evaluate by counting pieces. */
+    private void attachNetwork(Board board) {
+        if (_network == null || _network.side() != board.side()) {
+            _useNetwork = false;
+            return;
+        }
+        if (_accumulator == null) {
+            _accumulator = new Accumulator(_network);
+        }
+        board.setAccumulator(_accumulator);
+        _useNetwork = true;
+    }
+
+    /** Return the number of nodes visited by the last search. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Count a node visited by the current search, and
+     *  periodically check whether the search should stop.  Returns true
+     *  iff the search has been aborted.  The first iteration (to depth
+     *  1) is never aborted, so that there is always a move to return. */
+    private boolean countNode() {
+        _nodes += 1;
+        if ((_nodes & SearchControl.POLL_MASK) == 0) {
+            if (_lastFoundMove != Move.NO_MOVE && _control.poll(_nodes)) {
+                _aborted = true;
+            }
+            reportProgress();
         }
-        return _lastFoundMove;
+        return _aborted;
     }
 
-    /** The move found by the last call to the findMove method
-     *  above. */
-    private Move _lastFoundMove;
+    /** Report the progress of the current search to my game, if it has
+     *  been PROGRESS_INTERVAL since the last report. */
+    private void reportProgress() {
+        if (game() != null) {
+            long now = System.nanoTime();
+            if (now - _nextProgress >= 0) {
+                _nextProgress = now + PROGRESS_NANOS;
+                game().reportProgress(myColor(), _iterationDepth, _nodes);
+            }
+        }
+    }
+
+    /** The packed code of the move found by the last call to the
+     *  findMove method above.  During a search, the best move found so
+     *  far.  NO_MOVE if none. */
+    private int _lastFoundMove = Move.NO_MOVE;
 
     /** Find a move from position BOARD and return its value, recording
      *  the move found in _foundMove iff SAVEMOVE. The move
@@ -79,60 +526,136 @@ class AI extends Player {
         /* We use WINNING_VALUE + depth as the winning value so as to favor
          * wins that happen sooner rather than later (depth is larger the
          * fewer moves have been made. */
+        if (countNode()) {
+            return 0;
+        }
+        _stats.maxDepth = max(_stats.maxDepth, _iterationDepth - depth);
         if (depth == 0 || board.getWinner() != null) {
-            return staticScore(board, WINNING_VALUE + depth);
+            _stats.leafNodes += 1;
+            if (!_timeDetail) {
+                return staticScore(board, WINNING_VALUE + depth);
+            }
+            long start = System.nanoTime();
+            int value = staticScore(board, WINNING_VALUE + depth);
+            _stats.evalTime += System.nanoTime() - start;
+            return value;
+        }
+
+        long key = board.searchHash();
+        int tableMove = Move.NO_MOVE;
+        _stats.tableProbes += 1;
+        if (_table.probe(key)) {
+            _stats.tableHits += 1;
+            tableMove = _table.move();
+            if (!saveMove && _table.depth() >= depth) {
+                int value = _table.value();
+                switch (_table.bound()) {
+                case TranspositionTable.EXACT:
+                    return value;
+                case TranspositionTable.LOWER:
+                    alpha = max(alpha, value);
+                    break;
+                default:
+                    beta = min(beta, value);
+                    break;
+                }
+                if (alpha >= beta) {
+                    return value;
+                }
+            }
         }
+        int alpha0 = alpha, beta0 = beta;
 
-        Move best;
-        best = null;
+        int best;
+        best = Move.NO_MOVE;
 
         int bestSoFar = 0;
-        ArrayList<Move> allmove = moves(board);
+        int tried = 0;
+        long genStart = _timeDetail ? System.nanoTime() : 0;
+        int[] allmove = moveList(_iterationDepth - depth);
+        int n = board.legalMoves(allmove, 0);
+        if (_timeDetail) {
+            _stats.moveGenTime += System.nanoTime() - genStart;
+        }
+        _stats.interiorNodes += 1;
+        if (saveMove) {
+            n = removeExcluded(allmove, n);
+        }
+        orderMoves(allmove, n, saveMove && _lastFoundMove != Move.NO_MOVE
+                   ? _lastFoundMove : tableMove);
         if (sense == 1) {
             bestSoFar = -INFTY;
-            for (Move move : allmove) {
-                if (board.legalMove(move)) {
-                    board.makeMove(move);
-                    int response;
-                    response = minMax(board, depth - 1, false, -1, alpha, beta);
-                    board.undo();
-                    if (response > bestSoFar) {
-                        bestSoFar = response;
-                        alpha = max(alpha, bestSoFar);
-                        best = move;
-                        if (alpha >= beta) {
-                            break;
-                        }
+            for (int i = 0; i < n; i += 1) {
+                int move = allmove[i];
+                board.makeMove(move);
+                tried += 1;
+                int response;
+                response = minMax(board, depth - 1, false, -1,
+                                  saveMove ? alpha - 1 : alpha, beta);
+                board.undo();
+                if (_aborted) {
+                    break;
+                }
+                if (response > bestSoFar
+                    || (saveMove && response == bestSoFar && move < best)) {
+                    bestSoFar = response;
+                    alpha = max(alpha, bestSoFar);
+                    best = move;
+                    if (alpha >= beta) {
+                        recordCutoff(move, depth, tried == 1);
+                        break;
                     }
                 }
             }
         } else if (sense == -1) {
             bestSoFar = INFTY;
-            for (Move move : allmove) {
-                if (board.legalMove(move)) {
-                    board.makeMove(move);
-                    int response;
-                    response = minMax(board, depth - 1, false, 1, alpha, beta);
-                    board.undo();
-                    if (response < bestSoFar) {
-                        bestSoFar = response;
-                        beta = min(beta, bestSoFar);
-                        best = move;
-                        if (alpha >= beta) {
-                            break;
-                        }
+            for (int i = 0; i < n; i += 1) {
+                int move = allmove[i];
+                board.makeMove(move);
+                tried += 1;
+                int response;
+                response = minMax(board, depth - 1, false, 1, alpha,
+                                  saveMove && beta < INFTY ? beta + 1
+                                  : beta);
+                board.undo();
+                if (_aborted) {
+                    break;
+                }
+                if (response < bestSoFar
+                    || (saveMove && response == bestSoFar && move < best)) {
+                    bestSoFar = response;
+                    beta = min(beta, bestSoFar);
+                    best = move;
+                    if (alpha >= beta) {
+                        recordCutoff(move, depth, tried == 1);
+                        break;
                     }
                 }
             }
         }
-        if (saveMove) {
+        if (saveMove && best != Move.NO_MOVE) {
             _lastFoundMove = best;
         }
+        if (!_aborted && !(saveMove && _numExcluded > 0)) {
+            int bound;
+            if (bestSoFar <= alpha0) {
+                bound = TranspositionTable.UPPER;
+            } else if (bestSoFar >= beta0) {
+                bound = TranspositionTable.LOWER;
+            } else {
+                bound = TranspositionTable.EXACT;
+            }
+            _table.store(key, depth, bestSoFar, bound, best);
+            _stats.tableStores += 1;
+        }
+        _stats.childrenSearched += tried;
         return bestSoFar;
     }
 
     /** Return a heuristic value for BOARD.  This value is +- WINNINGVALUE in
-     *  won positions, and 0 for ties. */
+     *  won positions, and 0 for ties.  The values of other positions
+     *  are looked up in, and added to, my evaluation cache, if I have
+     *  one; those of won positions depend on the depth, and are not. */
     private int staticScore(Board board, int winningValue) {
         PieceColor winner = board.getWinner();
         if (winner != null) {
@@ -142,33 +665,99 @@ class AI extends Player {
             default -> 0;
             };
         }
-
-        return board.redPieces() - board.bluePieces();
+        if (_evalCache == null) {
+            return evaluate(board);
+        }
+        long key = board.hash();
+        _stats.evalProbes += 1;
+        long cached = _evalCache.lookup(key);
+        if (cached != EvalCache.MISS) {
+            _stats.evalHits += 1;
+            return (int) cached;
+        }
+        int value = evaluate(board);
+        _evalCache.store(key, value);
+        return value;
     }
 
-
-    private ArrayList<Move> moves(Board board) {
-        ArrayList<Move> moves = new ArrayList<>();
-        for (int c = 2; c < Board.SIDE + 2; c += 1) {
-            for (int r = 2; r < Board.SIDE + 2; r += 1) {
-                for (int dc = -2; dc <= 2; dc += 1) {
-                    for (int dr = -2; dr <= 2; dr += 1) {
-                        char col0 = (char) (c + 'a' - 2);
-                        char row0 = (char) (r + '1' - 2);
-                        char col1 = (char) (c + dc + 'a' - 2);
-                        char row1 = (char) (r + dr + '1' - 2);
-                        Move newmove = Move.move(col0, row0, col1, row1);
-                        if (board.legalMove(newmove)) {
-                            moves.add(newmove);
-                        }
-                    }
-                }
-            }
+    /** Return the heuristic value of BOARD, a position in which the game
+     *  is not over (positive favors red): the output of my network, if
+     *  the current search uses it (see attachNetwork), and otherwise the
+     *  number of red pieces less the number of blue pieces. */
+    private int evaluate(Board board) {
+        if (_useNetwork) {
+            return _accumulator.evaluate();
         }
-        return moves;
+        return board.redPieces() - board.bluePieces();
     }
 
+
+    /** Seed of _random. */
+    private final long _seed;
     /** Pseudo-random number generator for move computation. */
     private Random _random = new Random();
+
+    /** Limits and cancellation for my searches. */
+    private final SearchControl _control;
+    /** Number of nodes visited so far by the current search. */
+    private long _nodes;
+    /** True iff the current search has been stopped before completing.
+     *  Values returned by minMax are meaningless once this is set. */
+    private boolean _aborted;
+
+    /* Search state kept from one move to the next.  The tables are
+     * allocated by the first search, and only if it does not run on a
+     * thread that carries its own (see SearchTables), so that AIs in
+     * server sessions cost little. */
+
+    /** My own search tables, or null if not yet allocated. */
+    private SearchTables _ownTables;
+    /** Results of earlier searches: the table of the current or last
+     *  search's SearchTables. */
+    private TranspositionTable _table;
+    /** Static values of positions evaluated by earlier searches, or null
+     *  if _evalCacheLogSize is 0. */
+    private EvalCache _evalCache;
+    /** Log base 2 of the number of entries in _evalCache. */
+    private int _evalCacheLogSize;
+    /** Network with which positions are evaluated, or null. */
+    private Network _network;
+    /** Hidden sums of _network for the board being searched, or null if
+     *  not yet allocated. */
+    private Accumulator _accumulator;
+    /** True iff the current search evaluates with _accumulator. */
+    private boolean _useNetwork;
+    /** History scores, indexed by from-square index * SQUARES +
+     *  to-square index. */
+    private int[] _history;
+    /** Buffers for the moves generated at each ply of a search. */
+    private int[][] _moveLists = new int[8][];
+    /** The principal variation found by the last search. */
+    private final ArrayList<Move> _expectedLine = new ArrayList<>();
+    /** Search hash of the position after the first two moves of
+     *  _expectedLine, or 0 if it has fewer than two moves. */
+    private long _expectedHash;
+    /** Depth of the last completed iteration of the last search. */
+    private int _lastDepth;
+    /** Value found by that iteration. */
+    private int _lastValue;
+    /** Receives a report as each iteration completes, or null. */
+    private Consumer<SearchInfo> _listener;
+    /** Holds principal variations for reports to _listener. */
+    private final ArrayList<Move> _line = new ArrayList<>();
+    /** Statistics for the current or last search. */
+    private final SearchStats _stats = new SearchStats();
+    /** True iff the current search times move generation and static
+     *  evaluation. */
+    private boolean _timeDetail;
+    /** Depth of the current iteration of the current search. */
+    private int _iterationDepth;
+    /** Value of System.nanoTime() at or after which the progress of the
+     *  current search is next reported. */
+    private long _nextProgress;
+    /** Moves not to be considered at the root of the current search. */
+    private int[] _excluded;
+    /** Number of moves in _excluded. */
+    private int _numExcluded;
 }
 
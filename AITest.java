@@ -0,0 +1,269 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.PieceColor.*;
+
+/** Tests of AI searches: their limits, and their reuse of earlier
+ *  searches.
+ *  @author Hanqi Xiong
+ */
+public class AITest {
+
+    /** A Reporter that records the analyses sent to it, and ignores
+     *  everything else. */
+    private static class AnalysisRecorder implements Reporter {
+        @Override
+        public void announceWin(PieceColor side) {
+        }
+
+        @Override
+        public void announceMove(Move move, PieceColor player) {
+        }
+
+        @Override
+        public void announceAnalysis(SearchInfo info) {
+            lines.add(info);
+        }
+
+        @Override
+        public void msg(String format, Object... args) {
+        }
+
+        @Override
+        public void err(String format, Object... args) {
+        }
+
+        @Override
+        public void log(String format, Object... args) {
+        }
+
+        /** The analyses reported so far. */
+        final List<SearchInfo> lines = new ArrayList<>();
+    }
+
+    /** A position that red, to move, has won. */
+    static final String RED_WINS = "xxxxx/xxxxx/xxxxx/xxxxx/rb3 r 0";
+
+    /** Return a board after the opening moves MOVES. */
+    private static Board board(String... moves) {
+        Board board = new Board();
+        for (String move : moves) {
+            board.makeMove(move);
+        }
+        return board;
+    }
+
+    @Test
+    public void testStopBeforeSearch() {
+        SearchControl control = new SearchControl();
+        AI ai = new AI(null, RED, 0, control);
+        Board board = board("a7-b6", "a1-a2");
+        control.stop();
+        Move move = ai.findMove(board, Defaults.MAX_ANALYSIS_DEPTH);
+        assertTrue(board.legalMove(move));
+        assertEquals(1, ai.lastDepth());
+    }
+
+    @Test(timeout = 20000)
+    public void testStopDuringSearch() throws InterruptedException {
+        SearchControl control = new SearchControl();
+        AI ai = new AI(null, RED, 0, control);
+        Board board = board("a7-b6", "a1-a2");
+        String position = board.position();
+        Thread stopper = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException excp) {
+                return;
+            }
+            control.stop();
+        });
+        stopper.start();
+        Move move = ai.findMove(board, Defaults.MAX_ANALYSIS_DEPTH);
+        stopper.join();
+        assertTrue(board.legalMove(move));
+        assertTrue(ai.lastDepth() >= 1);
+        assertTrue(ai.lastDepth() < Defaults.MAX_ANALYSIS_DEPTH);
+        assertEquals(position, board.position());
+    }
+
+    @Test
+    public void testNodeLimit() {
+        AI ai = new AI(null, RED, 0, new SearchControl(0, 30000));
+        Board board = board("a7-b6", "a1-a2");
+        Move move = ai.findMove(board, Defaults.MAX_ANALYSIS_DEPTH);
+        assertTrue(board.legalMove(move));
+        assertTrue(ai.lastDepth() < Defaults.MAX_ANALYSIS_DEPTH);
+        assertTrue(ai.nodes() <= 30000 + SearchControl.POLL_INTERVAL);
+    }
+
+    @Test
+    public void testStats() {
+        Board board = board("a7-b6", "a1-a2");
+        AI ai = new AI(null, RED, 0, new SearchControl());
+        ai.findMove(board, 4);
+        SearchStats stats = ai.stats();
+        assertEquals(1, stats.searches);
+        assertEquals(ai.nodes(), stats.nodes);
+        assertEquals(stats.nodes, stats.leafNodes + stats.tableProbes);
+        assertTrue(stats.interiorNodes > 0);
+        assertTrue(stats.interiorNodes <= stats.tableProbes);
+        assertTrue(stats.tableHits <= stats.tableProbes);
+        assertTrue(stats.tableStores > 0);
+        assertTrue(stats.tableStores <= stats.interiorNodes);
+        assertTrue(stats.childrenSearched >= stats.interiorNodes);
+        assertTrue(stats.firstMoveCutoffs <= stats.betaCutoffs);
+        assertTrue(stats.evalHits <= stats.evalProbes);
+        assertEquals(4, stats.maxDepth);
+        assertTrue(stats.elapsed > 0);
+
+        ai.findMove(board, 4);
+        SearchStats again = ai.stats();
+        assertTrue(again.tableHits > 0);
+        assertTrue(again.nodes < stats.nodes);
+        again.add(stats);
+        assertEquals(2, again.searches);
+        assertEquals(ai.nodes() + stats.nodes, again.nodes);
+        assertEquals(stats.nodes, stats.copy().nodes);
+    }
+
+    @Test
+    public void testTableReuse() {
+        Board board = board("a7-b6", "a1-a2");
+        AI ai = new AI(null, RED, 0, new SearchControl());
+        Move move = ai.findMove(board, 5);
+        int value = ai.lastValue();
+        long nodes = ai.nodes();
+        assertEquals(move, ai.findMove(board, 5));
+        assertEquals(value, ai.lastValue());
+        assertTrue(ai.nodes() < nodes);
+    }
+
+    @Test
+    public void testExpectedReply() {
+        Board board = board("a7-b6", "a1-a2");
+        AI ai = new AI(null, RED, 0, new SearchControl());
+        List<Integer> depths = new ArrayList<>();
+        ai.setListener((info) -> depths.add(info.depth()));
+        ai.findMove(board, 4);
+        assertEquals(4, ai.lastDepth());
+        List<Move> line = new ArrayList<>(ai.principalVariation());
+        assertTrue(line.size() > 2);
+
+        Board predicted = new Board(board);
+        predicted.makeMove(line.get(0));
+        predicted.makeMove(line.get(1));
+        depths.clear();
+        Move move = ai.findMove(predicted, 4);
+        assertEquals(List.of(2, 3, 4), depths);
+        assertEquals(move, new AI(null, RED, 0, new SearchControl())
+                     .findMove(predicted, 4));
+
+        Board other = new Board(board);
+        other.makeMove(line.get(0));
+        Move reply = null;
+        for (Move m : new Move[] { Move.move("a2-a3"), Move.move("a2-b2"),
+                                   Move.move("a2-b3") }) {
+            if (!m.equals(line.get(1)) && other.legalMove(m)) {
+                reply = m;
+                break;
+            }
+        }
+        other.makeMove(reply);
+        depths.clear();
+        ai.findMove(other, 4);
+        assertEquals(List.of(1, 2, 3, 4), depths);
+    }
+
+    @Test
+    public void testJumpLimit() {
+        Board early = new Board(), late = new Board();
+        early.setPosition("5b1/r1b1b1b/r2b3/rr5/r1b2b1/1r5/5b1 r 0");
+        late.setPosition("5b1/r1b1b1b/r2b3/rr5/r1b2b1/1r5/5b1 r 23");
+        assertEquals(early.hash(), late.hash());
+        assertNotEquals(early.searchHash(), late.searchHash());
+        assertEquals(early.hash(), early.searchHash());
+
+        AI seasoned = new AI(null, RED, 0, new SearchControl()),
+            fresh = new AI(null, RED, 0, new SearchControl());
+        seasoned.findMove(early, 4);
+        Move move = seasoned.findMove(late, 4);
+        assertEquals(fresh.findMove(late, 4), move);
+        assertEquals(fresh.lastValue(), seasoned.lastValue());
+    }
+
+    @Test
+    public void testWinScore() {
+        Board board = new Board();
+        board.setPosition(RED_WINS);
+        for (int depth : new int[] { 3, 30, Defaults.MAX_ANALYSIS_DEPTH }) {
+            AI ai = new AI(null, RED, 0, new SearchControl());
+            AnalysisRecorder recorder = new AnalysisRecorder();
+            ai.analyze(board, depth, 0, 2, recorder);
+            assertFalse(recorder.lines.isEmpty());
+            for (SearchInfo info : recorder.lines) {
+                assertTrue("depth " + depth + ": " + info.score(),
+                           info.score() > Integer.MAX_VALUE / 4);
+            }
+            ai.findMove(board, depth);
+            assertTrue(ai.lastValue() > Integer.MAX_VALUE / 4);
+        }
+    }
+
+    @Test
+    public void testAnalyze() {
+        Board board = board("a7-b6", "a1-a2");
+        AnalysisRecorder recorder = new AnalysisRecorder();
+        new AI(null, RED, 0, new SearchControl())
+            .analyze(board, 3, 0, 5, recorder);
+        List<SearchInfo> lines = recorder.lines;
+        assertEquals(5, lines.size());
+        List<Move> moves = new ArrayList<>();
+        for (int k = 0; k < lines.size(); k += 1) {
+            SearchInfo info = lines.get(k);
+            assertEquals(k + 1, info.rank());
+            assertEquals(3, info.depth());
+            assertTrue(board.legalMove(info.move()));
+            assertFalse(moves.contains(info.move()));
+            moves.add(info.move());
+            if (k > 0) {
+                assertTrue(lines.get(k - 1).score() >= info.score());
+            }
+        }
+        assertEquals(new AI(null, RED, 0, new SearchControl())
+                     .findMove(board, 3), moves.get(0));
+
+        board.makeMove(moves.get(0));
+        recorder.lines.clear();
+        new AI(null, BLUE, 0, new SearchControl())
+            .analyze(board, 3, 0, 3, recorder);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).score() <= lines.get(1).score());
+        assertTrue(lines.get(1).score() <= lines.get(2).score());
+    }
+
+    @Test(timeout = 20000)
+    public void testAnalyzeTime() {
+        Board board = board("a7-b6", "a1-a2");
+        AnalysisRecorder recorder = new AnalysisRecorder();
+        SearchControl control = new SearchControl();
+        new AI(null, RED, 0, control)
+            .analyze(board, Defaults.MAX_ANALYSIS_DEPTH, 800, 4, recorder);
+        assertEquals(200, control.timeLimit());
+        assertEquals(4, recorder.lines.size());
+        for (SearchInfo info : recorder.lines) {
+            assertTrue(info.depth() < Defaults.MAX_ANALYSIS_DEPTH);
+            assertTrue(info.elapsed() < 600_000_000L);
+        }
+    }
+
+}
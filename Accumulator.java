@@ -0,0 +1,116 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.Arrays;
+
+import static ataxx.PieceColor.*;
+
+/** The hidden sums of a Network for the position on a Board, kept up to
+ *  date as moves are made and undone (see Board.setAccumulator).  A move
+ *  changes the sums only by the weights of the squares it changes: the
+ *  square on which a piece is placed, the one a jump vacates, and those
+ *  whose pieces are flipped.  Undoing a move restores the sums saved
+ *  before it, which are kept on a stack, one set of sums per move.
+ *  @author Hanqi Xiong
+ */
+class Accumulator {
+
+    /** Sums for NETWORK, which must be set from a board by refresh before
+     *  use. */
+    Accumulator(Network network) {
+        _network = network;
+        _ops = network.ops();
+        _weights = network.inputWeights();
+        _hidden = network.hidden();
+        _sums = new short[INITIAL_DEPTH * _hidden];
+    }
+
+    /** Return my network. */
+    Network network() {
+        return _network;
+    }
+
+    /** Set my sums to those for the current position on BOARD, discarding
+     *  those saved for undoing moves.  BOARD must have the size of my
+     *  network. */
+    void refresh(Board board) {
+        if (board.side() != _network.side()) {
+            throw new IllegalArgumentException("network is for boards of"
+                                               + " another size");
+        }
+        _top = 0;
+        System.arraycopy(_network.hiddenBias(), 0, _sums, 0, _hidden);
+        Geometry geometry = board.geometry();
+        for (int sq : geometry.indices()) {
+            PieceColor piece = board.get(sq);
+            if (piece != EMPTY) {
+                _ops.add(_sums, 0, _weights,
+                         _network.weights(geometry.number(sq), piece),
+                         _hidden);
+            }
+        }
+    }
+
+    /** Save my sums, to be restored by the matching pop, at the start of
+     *  a move. */
+    void push() {
+        int top = _top + _hidden;
+        if (top + _hidden > _sums.length) {
+            _sums = Arrays.copyOf(_sums, 2 * _sums.length);
+        }
+        System.arraycopy(_sums, _top, _sums, top, _hidden);
+        _top = top;
+    }
+
+    /** Restore my sums to those saved by the last unmatched push, when a
+     *  move is undone. */
+    void pop() {
+        _top -= _hidden;
+    }
+
+    /** Record that a piece of COLOR was placed on the empty square
+     *  numbered N. */
+    void place(int n, PieceColor color) {
+        _ops.add(_sums, _top, _weights, _network.weights(n, color),
+                 _hidden);
+    }
+
+    /** Record that a piece of COLOR was removed from the square numbered
+     *  N. */
+    void vacate(int n, PieceColor color) {
+        _ops.sub(_sums, _top, _weights, _network.weights(n, color),
+                 _hidden);
+    }
+
+    /** Record that the piece on the square numbered N was flipped to
+     *  COLOR. */
+    void flip(int n, PieceColor color) {
+        _ops.addSub(_sums, _top, _weights, _network.weights(n, color),
+                    _network.weights(n, color.opposite()), _hidden);
+    }
+
+    /** Return the output of my network for the current position. */
+    int evaluate() {
+        return _network.output(_sums, _top);
+    }
+
+    /** Number of sets of sums for which there is initially room. */
+    private static final int INITIAL_DEPTH = 64;
+
+    /** The network whose sums I hold. */
+    private final Network _network;
+    /** Its arithmetic. */
+    private final VectorOps _ops;
+    /** Its input weights. */
+    private final short[] _weights;
+    /** Its number of hidden units. */
+    private final int _hidden;
+    /** The current sums, in _sums[_top .. _top + _hidden - 1], preceded
+     *  by those saved by push, most recent last. */
+    private short[] _sums;
+    /** Offset of the current sums in _sums. */
+    private int _top;
+}
@@ -0,0 +1,22 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.concurrent.CompletableFuture;
+
+/** A CommandSource that can also deliver its commands asynchronously, so
+ *  that a Game can wait for a command and for an AI's search at the same
+ *  time, and act on whichever comes first.
+ *  @author Hanqi Xiong
+ */
+interface AsyncCommandSource extends CommandSource {
+
+    /** Return a future that completes with my next command.  Until that
+     *  future completes, each call returns the same future; once it has
+     *  completed, its command is taken to have been consumed, and the
+     *  next call returns a future for the command after it. */
+    CompletableFuture<String> nextCommand();
+
+}
@@ -0,0 +1,237 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.Formatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static ataxx.PieceColor.*;
+
+/** A Reporter for high volumes of output.  Messages (and log lines) are
+ *  formatted into a reusable buffer and copied into a ring buffer of
+ *  characters, from which a single writer thread writes them, in order,
+ *  to a Writer.  The writer thread flushes its Writer at the end of each
+ *  game, and otherwise at most once per flush interval.  When the ring
+ *  is full, reporting waits for the writer thread to catch up.  Errors
+ *  are printed directly, after waiting for the messages reported before
+ *  them to be written.
+ *  @author Hanqi Xiong
+ */
+class AsyncReporter implements Reporter, Closeable {
+
+    /** A reporter that writes messages to OUT through a ring buffer of
+     *  CAPACITY characters, flushing OUT at least every FLUSHMILLIS
+     *  milliseconds while there is output, and prints errors on ERR. */
+    AsyncReporter(Writer out, PrintStream err, int capacity,
+                  long flushMillis) {
+        _out = out;
+        _err = err;
+        _ring = new char[capacity];
+        _flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        _writer = new Thread(this::drain, "ataxx-reporter");
+        _writer.setDaemon(true);
+        _writer.start();
+    }
+
+    @Override
+    public void announceWin(PieceColor side) {
+        if (side == EMPTY) {
+            msg("* Draw.");
+        } else {
+            msg("* %s wins.", side.toString());
+        }
+        flush(false);
+    }
+
+    @Override
+    public void announceMove(Move move, PieceColor player) {
+        msg("* %s moves %s.", player, move);
+    }
+
+    @Override
+    public void announceAnalysis(SearchInfo info) {
+        msg("* %s", info);
+    }
+
+    @Override
+    public synchronized void msg(String format, Object... args) {
+        _text.setLength(0);
+        _formatter.format(format, args);
+        _text.append(System.lineSeparator());
+        put(_text);
+    }
+
+    @Override
+    public void log(String format, Object... args) {
+        msg(format, args);
+    }
+
+    @Override
+    public synchronized void err(String format, Object... args) {
+        flush(true);
+        _err.printf(format, args);
+        _err.println();
+    }
+
+    /** Write all output reported so far, and stop the writer thread. */
+    @Override
+    public void close() throws IOException {
+        _lock.lock();
+        try {
+            _closed = true;
+            _changed.signalAll();
+        } finally {
+            _lock.unlock();
+        }
+        try {
+            _writer.join();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+        _out.flush();
+    }
+
+    /** Have the writer thread flush its output once it has written
+     *  everything reported so far, waiting for that iff WAIT. */
+    void flush(boolean wait) {
+        _lock.lock();
+        try {
+            _flushAt = _tail;
+            _changed.signalAll();
+            while (wait && _flushed < _flushAt && _writer.isAlive()) {
+                _changed.awaitUninterruptibly();
+            }
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /** Copy TEXT into the ring, waiting for room as necessary. */
+    private void put(CharSequence text) {
+        _lock.lock();
+        try {
+            int n = text.length();
+            for (int k = 0; k < n; ) {
+                while (_tail - _head == _ring.length && _writer.isAlive()) {
+                    _changed.awaitUninterruptibly();
+                }
+                if (!_writer.isAlive()) {
+                    return;
+                }
+                int room = (int) (_ring.length - (_tail - _head));
+                for (int end = Math.min(n, k + room); k < end; k += 1) {
+                    _ring[(int) (_tail % _ring.length)] = text.charAt(k);
+                    _tail += 1;
+                }
+                _changed.signalAll();
+            }
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /** Write the contents of the ring to _out as they arrive, until
+     *  closed.  Runs on the writer thread. */
+    private void drain() {
+        long lastFlush = System.nanoTime();
+        boolean unflushed = false;
+        try {
+            while (true) {
+                long head, tail;
+                boolean flush;
+                _lock.lock();
+                try {
+                    while (_head == _tail && !_closed
+                           && (!unflushed || _flushAt <= _flushed)) {
+                        long wait = unflushed
+                            ? lastFlush + _flushNanos - System.nanoTime()
+                            : _flushNanos;
+                        if (wait <= 0) {
+                            break;
+                        }
+                        _changed.awaitNanos(wait);
+                    }
+                    head = _head;
+                    tail = _tail;
+                    if (head == tail && _closed) {
+                        _flushed = tail;
+                        _changed.signalAll();
+                        return;
+                    }
+                    flush = _flushAt > _flushed;
+                } finally {
+                    _lock.unlock();
+                }
+                int start = (int) (head % _ring.length);
+                int len = (int) Math.min(tail - head, _ring.length - start);
+                _out.write(_ring, start, len);
+                unflushed |= len > 0;
+                long now = System.nanoTime();
+                boolean caughtUp = head + len == tail;
+                if (unflushed && (caughtUp && flush
+                                  || now - lastFlush >= _flushNanos)) {
+                    _out.flush();
+                    unflushed = false;
+                    lastFlush = now;
+                }
+                _lock.lock();
+                try {
+                    _head = head + len;
+                    if (!unflushed) {
+                        _flushed = _head;
+                    }
+                    _changed.signalAll();
+                } finally {
+                    _lock.unlock();
+                }
+            }
+        } catch (IOException excp) {
+            _err.printf("Output error: %s%n", excp.getMessage());
+        } catch (InterruptedException excp) {
+            return;
+        } finally {
+            _lock.lock();
+            try {
+                _changed.signalAll();
+            } finally {
+                _lock.unlock();
+            }
+        }
+    }
+
+    /** Destination of messages. */
+    private final Writer _out;
+    /** Destination of error messages. */
+    private final PrintStream _err;
+    /** Characters reported but not yet written, in _ring[_head % size]
+     *  up to _ring[_tail % size]. */
+    private final char[] _ring;
+    /** Total number of characters taken from and put into _ring. */
+    private long _head, _tail;
+    /** Output up to this count is to be flushed as soon as written. */
+    private long _flushAt;
+    /** Output up to this count has been flushed. */
+    private long _flushed;
+    /** True iff close() has been called. */
+    private boolean _closed;
+    /** Greatest time between writing output and flushing it. */
+    private final long _flushNanos;
+    /** Guards the fields above. */
+    private final ReentrantLock _lock = new ReentrantLock();
+    /** Signalled whenever the ring or the flush request changes. */
+    private final Condition _changed = _lock.newCondition();
+    /** Buffer into which messages are formatted. */
+    private final StringBuilder _text = new StringBuilder();
+    /** Formatter writing to _text. */
+    private final Formatter _formatter = new Formatter(_text);
+    /** The writer thread. */
+    private final Thread _writer;
+}
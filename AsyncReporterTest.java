@@ -0,0 +1,46 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.PieceColor.*;
+
+/** Tests of AsyncReporter.
+ *  @author Hanqi Xiong
+ */
+public class AsyncReporterTest {
+
+    @Test
+    public void testOrder() throws IOException {
+        StringWriter out = new StringWriter();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        AsyncReporter reporter =
+            new AsyncReporter(out, new PrintStream(err, true), 16, 1000);
+        StringBuilder expected = new StringBuilder();
+        String nl = System.lineSeparator();
+        for (int i = 0; i < 1000; i += 1) {
+            reporter.msg("line %d", i);
+            expected.append("line ").append(i).append(nl);
+        }
+        reporter.announceMove(Move.move("a7-b6"), RED);
+        reporter.announceWin(EMPTY);
+        expected.append("* Red moves a7-b6.").append(nl)
+            .append("* Draw.").append(nl);
+        reporter.err("bad %s", "thing");
+        assertEquals(expected.toString(), out.toString());
+        assertEquals("bad thing" + nl, err.toString());
+        reporter.log("a7-b6");
+        reporter.close();
+        assertEquals(expected + "a7-b6" + nl, out.toString());
+    }
+
+}
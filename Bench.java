@@ -0,0 +1,232 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.PrintStream;
+import java.util.Random;
+
+import static ataxx.PieceColor.*;
+
+/** Measures how the speed of the board and of search scales with the
+ *  size of the board.  For each size, a Bench plays a fixed sequence of
+ *  random opening moves and then times (1) making and undoing every
+ *  legal move of the resulting position, over and over, and (2) a
+ *  search of that position to SEARCH_DEPTH.  All sizes are run once
+ *  untimed first, so that the timings are of compiled code.
+ *
+ *  A Bench also compares evaluation by a Network with evaluation by
+ *  counting pieces: their speeds, in evaluations per second of
+ *  positions reached by making a move (which must then also be undone),
+ *  and their strengths, in games between AIs that differ only in how
+ *  they evaluate, each allowed MOVE_MILLIS per move.
+ *  @author Hanqi Xiong
+ */
+class Bench {
+
+    /** Depth of the timed searches. */
+    static final int SEARCH_DEPTH = 4;
+    /** Number of random moves made before timing. */
+    static final int OPENING_MOVES = 8;
+    /** Least time spent timing make and undo for each size. */
+    static final long MAKE_UNDO_NANOS = 250_000_000L;
+    /** Seed for the random opening moves. */
+    static final long SEED = 61;
+    /** Number of hidden units of the network compared when none is
+     *  given. */
+    static final int HIDDEN = 128;
+    /** Time allowed per move in the games comparing strength, in
+     *  milliseconds. */
+    static final long MOVE_MILLIS = 20;
+    /** Number of openings from which those games are played, each
+     *  twice, with colors exchanged. */
+    static final int OPENINGS = 4;
+    /** Number of untimed runs of the evaluation timings.  Code using the
+     *  vector API is very slow until compiled, and takes several runs to
+     *  reach full speed. */
+    static final int EVAL_WARMUP_RUNS = 4;
+
+    /** A benchmark that reports on OUT. */
+    Bench(PrintStream out) {
+        _out = out;
+    }
+
+    /** Run the benchmark for all sizes of board. */
+    void run() {
+        for (int side = Board.MIN_SIDE; side <= Board.MAX_SIDE; side += 1) {
+            measure(side);
+        }
+        _out.printf("%4s %7s %12s %10s %10s%n", "side", "moves",
+                    "make+undo/s", "nodes", "knps");
+        for (int side = Board.MIN_SIDE; side <= Board.MAX_SIDE; side += 1) {
+            long[] result = measure(side);
+            _out.printf("%4d %7d %12d %10d %10d%n", side, result[0],
+                        result[1], result[2], result[3]);
+        }
+    }
+
+    /** Compare evaluation with NETWORK against counting pieces.  If
+     *  NETWORK is null, use a network of HIDDEN units that counts pieces
+     *  (see Network.material), whose speed is that of any network of its
+     *  size, and whose strength differs from counting pieces only
+     *  because of that speed. */
+    void compare(Network network) {
+        if (network == null) {
+            network = Network.material(Board.DEFAULT_SIDE, HIDDEN, SEED);
+            _out.printf("Network: counts pieces, %d hidden units%n",
+                        HIDDEN);
+        } else {
+            _out.printf("Network: %d hidden units, for %dx%d boards%n",
+                        network.hidden(), network.side(), network.side());
+        }
+        _out.printf("Arithmetic: %s%n",
+                    network.ops().getClass().getSimpleName());
+        for (int run = 0; run <= EVAL_WARMUP_RUNS; run += 1) {
+            long[] rates = new long[3];
+            for (int kind = 0; kind < rates.length; kind += 1) {
+                rates[kind] = evalRate(network, kind);
+            }
+            if (run == EVAL_WARMUP_RUNS) {
+                _out.printf("%-24s %12s%n", "evaluation", "evals/s");
+                _out.printf("%-24s %12d%n", "count pieces", rates[0]);
+                _out.printf("%-24s %12d%n", "network, incremental",
+                            rates[1]);
+                _out.printf("%-24s %12d%n", "network, from scratch",
+                            rates[2]);
+            }
+        }
+        int wins, losses, draws;
+        wins = losses = draws = 0;
+        for (int k = 0; k < 2 * OPENINGS; k += 1) {
+            PieceColor netColor = k % 2 == 0 ? RED : BLUE;
+            PieceColor winner =
+                play(opening(network.side(), SEED + k / 2), network,
+                     netColor);
+            if (winner == netColor) {
+                wins += 1;
+            } else if (winner == netColor.opposite()) {
+                losses += 1;
+            } else {
+                draws += 1;
+            }
+        }
+        _out.printf("Network against counting pieces at %d msec/move: "
+                    + "%d wins, %d losses, %d draws (%.1f%%)%n",
+                    MOVE_MILLIS, wins, losses, draws,
+                    100.0 * (wins + 0.5 * draws) / (2 * OPENINGS));
+    }
+
+    /** Return the number of positions evaluated per second by making
+     *  each legal move from an opening position on boards of the size of
+     *  NETWORK, evaluating, and undoing the move, over and over.  The
+     *  evaluation counts pieces if KIND is 0, uses NETWORK's hidden sums,
+     *  kept up to date as moves are made and undone, if KIND is 1, and
+     *  computes NETWORK's output from scratch if KIND is 2. */
+    private long evalRate(Network network, int kind) {
+        Board board = opening(network.side(), SEED);
+        Accumulator acc = new Accumulator(network);
+        if (kind == 1) {
+            board.setAccumulator(acc);
+        }
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = board.legalMoves(moves, 0);
+        long count = 0, sum = 0, start = System.nanoTime(), elapsed;
+        do {
+            for (int i = 0; i < n; i += 1) {
+                board.makeMove(moves[i]);
+                switch (kind) {
+                case 0:
+                    sum += board.redPieces() - board.bluePieces();
+                    break;
+                case 1:
+                    sum += acc.evaluate();
+                    break;
+                default:
+                    sum += network.evaluate(board);
+                    break;
+                }
+                board.undo();
+            }
+            count += n;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MAKE_UNDO_NANOS);
+        _sink += sum;
+        return count * 1_000_000_000L / elapsed;
+    }
+
+    /** Play out the game on BOARD between an AI that evaluates with
+     *  NETWORK, playing NETCOLOR, and one that counts pieces, and return
+     *  the winner (EMPTY for a draw). */
+    private static PieceColor play(Board board, Network network,
+                                   PieceColor netColor) {
+        AI netAI = new AI(null, netColor, SEED,
+                          new SearchControl(MOVE_MILLIS, 0)),
+            countAI = new AI(null, netColor.opposite(), SEED,
+                             new SearchControl(MOVE_MILLIS, 0));
+        netAI.setNetwork(network);
+        countAI.setNetwork(null);
+        while (board.getWinner() == null) {
+            if (!board.canMove(board.whoseMove())) {
+                board.pass();
+            } else {
+                AI ai = board.whoseMove() == netColor ? netAI : countAI;
+                board.makeMove(ai.findMove(board,
+                                           Defaults.MAX_ANALYSIS_DEPTH));
+            }
+        }
+        return board.getWinner();
+    }
+
+    /** Return the results for a board with SIDE squares on a side: the
+     *  number of legal moves in the position timed, moves made and
+     *  undone per second, nodes searched, and thousands of nodes searched
+     *  per second. */
+    private long[] measure(int side) {
+        Board board = opening(side, SEED);
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = board.legalMoves(moves, 0);
+
+        long count = 0, start = System.nanoTime(), elapsed;
+        do {
+            for (int i = 0; i < n; i += 1) {
+                board.makeMove(moves[i]);
+                board.undo();
+            }
+            count += n;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MAKE_UNDO_NANOS);
+        long makeRate = count * 1_000_000_000L / elapsed;
+
+        AI ai = new AI(null, board.whoseMove(), SEED, new SearchControl());
+        start = System.nanoTime();
+        ai.findMove(board, SEARCH_DEPTH);
+        elapsed = Math.max(1, System.nanoTime() - start);
+        long nodes = ai.nodes();
+        return new long[] {
+            n, makeRate, nodes, nodes * 1_000_000L / elapsed
+        };
+    }
+
+    /** Return a board with SIDE squares on a side after OPENING_MOVES
+     *  random moves (fewer if the game ends first), chosen using SEED,
+     *  and so the same way on every run. */
+    private static Board opening(int side, long seed) {
+        Board board = new Board(side);
+        Random random = new Random(seed);
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int k = 0; k < OPENING_MOVES && board.getWinner() == null;
+             k += 1) {
+            int n = board.legalMoves(moves, 0);
+            board.makeMove(n == 0 ? Move.PACKED_PASS
+                           : moves[random.nextInt(n)]);
+        }
+        return board;
+    }
+
+    /** Destination of the report. */
+    private final PrintStream _out;
+    /** Sum of the values of timed evaluations, kept so that they are
+     *  not optimized away. */
+    private long _sink;
+}
@@ -4,11 +4,14 @@
 
 package ataxx;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Stack;
 import java.util.Formatter;
+import java.util.Random;
 
 import java.util.function.Consumer;
 
@@ -20,6 +23,11 @@ import static ataxx.GameException.error;
  *  + 2) or by linearized index, an integer described below.  Values of
  *  the column outside 'a' and 'g' and of the row outside '1' to '7' denote
  *  two layers of border squares, which are always blocked.
+ *  (These are the ranges for the standard board, with DEFAULT_SIDE
+ *  squares on a side.  Boards may have from MIN_SIDE to MAX_SIDE squares
+ *  on a side, with correspondingly more or fewer columns and rows; rows
+ *  after the ninth are '1' + 9, and so on, and are written 10, and so
+ *  on.)
  *  This artificial border (which is never actually printed) is a common
  *  trick that allows one to avoid testing for edge conditions.
  *  For example, to look at all the possible moves from a square, sq,
@@ -38,79 +46,68 @@ import static ataxx.GameException.error;
  */
 class Board {
 
-    /** Number of squares on a side of the board. */
-    static final int SIDE = Move.SIDE;
-
-    /** Length of a side + an artificial 2-deep border region.
-     * This is unrelated to a move that is an "extend". */
+    /** Number of squares on a side of the standard board. */
+    static final int DEFAULT_SIDE = 7;
+    /** Fewest squares on a side of a board. */
+    static final int MIN_SIDE = Geometry.MIN_SIDE;
+    /** Most squares on a side of a board. */
+    static final int MAX_SIDE = Geometry.MAX_SIDE;
+
+    /** Length of a side of the largest board + an artificial 2-deep
+     * border region, which is the length of a row of linearized indices
+     * on boards of every size.  This is unrelated to a move that is an
+     * "extend". */
     static final int EXTENDED_SIDE = Move.EXTENDED_SIDE;
 
     /** Number of consecutive non-extending moves before game ends. */
     static final int JUMP_LIMIT = 25;
 
-    /** First row. */
-    static final int R1 = 24;
-    /** Second row. */
-    static final int R2 = 35;
-    /** Third row. */
-    static final int R3 = 46;
-    /** Fourth row. */
-    static final int R4 = 57;
-    /** Fifth row. */
-    static final int R5 = 68;
-    /** Sixth row. */
-    static final int R6 = 79;
-    /** Seventh row. */
-    static final int R7 = 90;
-
-    /** First row. */
-    static final int L1 = 30;
-    /** Second row. */
-    static final int L2 = 41;
-    /** Third row. */
-    static final int L3 = 52;
-    /** Fourth row. */
-    static final int L4 = 63;
-    /** Fifth row. */
-    static final int L5 = 74;
-    /** Sixth row. */
-    static final int L6 = 85;
-    /** Seventh row. */
-    static final int L7 = 96;
-
-    /** open spaces. */
-    static final int OPENS = 49;
-
-    /** Center of the Board. */
-    static final int CENTER = 60;
-
-
-
-    /** A new, cleared board in the initial configuration. */
+    /** Greatest number of moves that legalMoves may generate. */
+    static final int MAX_MOVES = MAX_SIDE * MAX_SIDE * 24;
+
+    /** Number of rotations and reflections of the board (including the
+     *  identity). */
+    static final int SYMMETRIES = 8;
+
+
+
+    /** A new, cleared standard board in the initial configuration. */
     Board() {
+        this(DEFAULT_SIDE);
+    }
+
+    /** A new, cleared board with SIDE squares on a side in the initial
+     *  configuration.  Throws a GameException if there can be no such
+     *  board. */
+    Board(int side) {
         _board = new PieceColor[EXTENDED_SIDE * EXTENDED_SIDE];
-        _allMoves = new ArrayList<Move>();
+        _moves = new int[INITIAL_MOVES];
         setNotifier(NOP);
-        clear();
+        clear(side);
     }
 
     /** A board whose initial contents are copied from BOARD0, but whose
-     *  undo history is clear, and whose notifier does nothing. */
+     *  undo history is clear (so that its moves cannot be undone), and
+     *  whose notifier does nothing. */
     Board(Board board0) {
+        setGeometry(board0._geometry);
         _board = board0._board.clone();
         _whoseMove = board0.whoseMove();
         _numJumps = board0.numJumps();
         _totalOpen = board0.totalOpen();
-        _allMoves = (ArrayList<Move>) board0.allMoves();
+        _moves = Arrays.copyOf(board0._moves,
+                               Math.max(board0._numMade, INITIAL_MOVES));
+        _numMade = board0._numMade;
+        _fixedMoves = _numMade;
         _numMoves = board0.numMoves();
         _numPieces[BLUE.ordinal()] = board0.numPieces(BLUE);
         _numPieces[RED.ordinal()] = board0.numPieces(RED);
         _numPieces[BLOCKED.ordinal()] = board0.numPieces(BLOCKED);
         _numPieces[EMPTY.ordinal()] = board0.numPieces(EMPTY);
         _totalOpen = board0.totalOpen();
-        _undoSquares = new Stack<Integer>();
-        _undoPieces = new Stack<PieceColor>();
         _winner = board0._winner;
+        _hash = board0._hash;
+        System.arraycopy(board0._masks, 0, _masks, 0, _masks.length);
         setNotifier(NOP);
     }
 
@@ -128,24 +125,124 @@ class Board {
     /** Clear me to my starting state, with pieces in their initial
      *  positions and no blocks. */
     void clear() {
+        clear(side());
+    }
+
+    /** Clear me to the starting state of a board with SIDE squares on a
+     *  side, with pieces in their initial positions and no blocks.
+     *  Throws a GameException if there can be no such board. */
+    void clear(int side) {
+        setGeometry(Geometry.of(side));
+        char last = (char) ('a' + side - 1), top = (char) ('1' + side - 1);
         _whoseMove = RED;
         Arrays.fill(_board, BLOCKED);
         setEmpty();
         _board[index('a', '1')] = BLUE;
-        _board[index('g', '7')] = BLUE;
-        _board[index('a', '7')] = RED;
-        _board[index('g', '1')] = RED;
+        _board[index(last, top)] = BLUE;
+        _board[index('a', top)] = RED;
+        _board[index(last, '1')] = RED;
         _numPieces[BLUE.ordinal()] = 2;
         _numPieces[RED.ordinal()] = 2;
-        _totalOpen = OPENS;
+        _totalOpen = _geometry.squares();
         _numMoves = 0;
         _numJumps = 0;
-        _allMoves.clear();
-        _undoSquares = new Stack<Integer>();
-        _undoPieces = new Stack<PieceColor>();
+        _numMade = 0;
+        _fixedMoves = 0;
+        _undoSize = 0;
+        _hash = computeHash();
+        computeMasks();
+        resetMoveHistory();
+        reportReset();
         announce();
     }
 
+    /** Make me a board described by GEOMETRY, without changing my
+     *  contents. */
+    private void setGeometry(Geometry geometry) {
+        _geometry = geometry;
+        _indices = geometry.indices();
+        _numbers = geometry.numbers();
+        _moveTargets = geometry.moveTargets();
+        _moveStart = geometry.moveStart();
+        _neighbors = geometry.neighbors();
+        _neighborStart = geometry.neighborStart();
+    }
+
+    /** Return the number of squares on a side of me. */
+    int side() {
+        return _geometry.side();
+    }
+
+    /** Return the tables describing my size. */
+    Geometry geometry() {
+        return _geometry;
+    }
+
+    /** Return a 64-bit hash of the current position: the contents of all
+     *  squares and the side to move.  Equal positions have equal hashes;
+     *  unequal positions almost certainly do not.  The hash is maintained
+     *  incrementally as moves are made and undone. */
+    long hash() {
+        return _hash;
+    }
+
+    /** Return a 64-bit hash of the current position together with the
+     *  number of consecutive jumps made so far, on which the end of the
+     *  game, and so the value of a search, depends (see JUMP_LIMIT).  It
+     *  is the same as hash() when that number is 0. */
+    long searchHash() {
+        return _hash ^ ZOBRIST_JUMPS[_numJumps];
+    }
+
+    /** Return a 64-bit hash of the current position that is the same
+     *  for all the positions obtained from it by rotating and reflecting
+     *  the board: the least (unsigned) of the hashes of those positions.
+     *  Unlike hash(), this is computed from scratch. */
+    long canonicalHash() {
+        long result = 0;
+        int side = side();
+        for (int sym = 0; sym < SYMMETRIES; sym += 1) {
+            long h = _whoseMove == BLUE ? ZOBRIST_BLUE_TO_MOVE : 0;
+            for (int x = 0; x < side; x += 1) {
+                for (int y = 0; y < side; y += 1) {
+                    int x1 = (sym & 4) == 0 ? x : y,
+                        y1 = (sym & 4) == 0 ? y : x;
+                    if ((sym & 1) != 0) {
+                        x1 = side - 1 - x1;
+                    }
+                    if ((sym & 2) != 0) {
+                        y1 = side - 1 - y1;
+                    }
+                    PieceColor piece = get((char) ('a' + x), (char) ('1' + y));
+                    h ^= ZOBRIST[index((char) ('a' + x1), (char) ('1' + y1))]
+                        [piece.ordinal()];
+                }
+            }
+            if (sym == 0 || Long.compareUnsigned(h, result) < 0) {
+                result = h;
+            }
+        }
+        return result;
+    }
+
+    /** Return the hash of the current position, computed from scratch. */
+    private long computeHash() {
+        long h = _whoseMove == BLUE ? ZOBRIST_BLUE_TO_MOVE : 0;
+        for (int sq = 0; sq < _board.length; sq += 1) {
+            h ^= ZOBRIST[sq][_board[sq].ordinal()];
+        }
+        return h;
+    }
+
+    /** Set _masks from my contents. */
+    private void computeMasks() {
+        Arrays.fill(_masks, 0);
+        for (int sq : _indices) {
+            int n = _numbers[sq];
+            _masks[_board[sq].ordinal() * WORDS + (n >>> 6)] |= 1L << n;
+        }
+    }
+
     /** Return the winner, if there is one yet, and otherwise null.  Returns
      *  EMPTY in the case of a draw, which can happen as a result of there
      *  having been MAX_JUMPS consecutive jumps without intervening extends,
@@ -172,21 +269,8 @@ class Board {
 
     /** Set the Empty Board. */
     void setEmpty() {
-        for (int i = R1;  i <= L1; i++) {
-            _board[i] = EMPTY;
-        }
-        for (int i = R2;  i <= L2; i++) {
-            _board[i] = EMPTY;
-        } for (int i = R3;  i <= L3; i++) {
-            _board[i] = EMPTY;
-        } for (int i = R4;  i <= L4; i++) {
-            _board[i] = EMPTY;
-        } for (int i = R5;  i <= L5; i++) {
-            _board[i] = EMPTY;
-        } for (int i = R6;  i <= L6; i++) {
-            _board[i] = EMPTY;
-        } for (int i = R7;  i <= L7; i++) {
-            _board[i] = EMPTY;
+        for (int sq : _indices) {
+            _board[sq] = EMPTY;
         }
     }
     /** Return number of red pieces on the board. */
@@ -210,8 +294,9 @@ class Board {
     }
 
     /** The current contents of square CR, where 'a'-2 <= C <= 'g'+2, and
-     *  '1'-2 <= R <= '7'+2.  Squares outside the range a1-g7 are all
-     *  BLOCKED.  Returns the same value as get(index(C, R)). */
+     *  '1'-2 <= R <= '7'+2 (on the standard board).  Squares outside the
+     *  range a1-g7 are all BLOCKED.  Returns the same value as
+     *  get(index(C, R)). */
     PieceColor get(char c, char r) {
         return _board[index(c, r)];
     }
@@ -222,7 +307,8 @@ class Board {
     }
 
     /** Set get(C, R) to V, where 'a' <= C <= 'g', and
-     *  '1' <= R <= '7'. This operation is undoable. */
+     *  '1' <= R <= '7' (on the standard board). This operation is
+     *  undoable. */
     private void set(char c, char r, PieceColor v) {
         set(index(c, r), v);
     }
@@ -231,35 +317,59 @@ class Board {
      *  undoable. */
     private void set(int sq, PieceColor v) {
         addUndo(sq);
-        _board[sq] = v;
+        unrecordedSet(sq, v);
     }
 
     /** Set square at C R to V (not undoable). This is used for changing
      * contents of the board without updating the undo stacks. */
     private void unrecordedSet(char c, char r, PieceColor v) {
-        _board[index(c, r)] = v;
+        unrecordedSet(index(c, r), v);
     }
 
     /** Set square at linearized index SQ to V (not undoable). This is used
      * for changing contents of the board without updating the undo stacks. */
     private void unrecordedSet(int sq, PieceColor v) {
+        _hash ^= ZOBRIST[sq][_board[sq].ordinal()] ^ ZOBRIST[sq][v.ordinal()];
+        int n = _numbers[sq], word = n >>> 6;
+        _masks[_board[sq].ordinal() * WORDS + word] &= ~(1L << n);
+        _masks[v.ordinal() * WORDS + word] |= 1L << n;
         _board[sq] = v;
     }
 
     /** Return true iff MOVE is legal on the current board. */
     boolean legalMove(Move move) {
-        if (move == null) {
-            return false;
-        } else if (move.isPass()) {
+        return move != null && legalMove(move.code());
+    }
+
+    /** Return true iff the move with packed code MOVE (see Move.code) is
+     *  legal on the current board.  MOVE must be the code of some Move. */
+    boolean legalMove(int move) {
+        if (move == Move.PACKED_PASS) {
             return !canMove(_whoseMove);
-        } else {
-            if (_board[move.fromIndex()] == _whoseMove) {
-                if (move.isJump() || move.isExtend()) {
-                    return _board[move.toIndex()] == EMPTY;
+        }
+        return _board[Move.from(move)] == _whoseMove
+            && _board[Move.to(move)] == EMPTY;
+    }
+
+    /** Store into MOVES, starting at index START, the packed codes of the
+     *  legal moves (other than passes) of the side to move, and return
+     *  the index after the last one stored.  MOVES must have room for
+     *  MAX_MOVES codes.  Moves are generated by 'from' column, then 'from'
+     *  row, then column offset, then row offset. */
+    int legalMoves(int[] moves, int start) {
+        int n = start;
+        for (int sq : _indices) {
+            if (_board[sq] == _whoseMove) {
+                for (int k = _moveStart[sq]; k < _moveStart[sq + 1]; k += 1) {
+                    int to = _moveTargets[k];
+                    if (_board[to] == EMPTY) {
+                        moves[n] = Move.pack(sq, to);
+                        n += 1;
+                    }
                 }
             }
-            return false;
         }
+        return n;
     }
 
     /** Return true iff C0 R0 - C1 R1 is legal on the current board. */
@@ -270,17 +380,11 @@ class Board {
     /** Return true iff player WHO can move, ignoring whether it is
      *  that player's move and whether the game is over. */
     boolean canMove(PieceColor who) {
-        for (int c = 2; c < SIDE + 2; c += 1) {
-            for (int r = 2; r < SIDE + 2; r += 1) {
-                for (int dc = -2; dc <= 2; dc += 1) {
-                    for (int dr = -2; dr <= 2; dr += 1) {
-                        if (_board[c + r * EXTENDED_SIDE] == who) {
-                            int oldpos = c + (r * EXTENDED_SIDE);
-                            int newpos = dc + (dr * EXTENDED_SIDE);
-                            if (get(oldpos + newpos).equals(EMPTY)) {
-                                return true;
-                            }
-                        }
+        for (int sq : _indices) {
+            if (_board[sq] == who) {
+                for (int k = _moveStart[sq]; k < _moveStart[sq + 1]; k += 1) {
+                    if (_board[_moveTargets[k]] == EMPTY) {
+                        return true;
                     }
                 }
             }
@@ -312,12 +416,11 @@ class Board {
     /** Assuming MOVE has the format "-" or "C0R0-C1R1", make the denoted
      *  move ("-" means "pass"). */
     void makeMove(String move) {
-        if (move.equals("-")) {
-            makeMove(Move.pass());
-        } else {
-            makeMove(Move.move(move.charAt(0), move.charAt(1), move.charAt(3),
-                               move.charAt(4)));
+        Move m = Move.move(move);
+        if (m == null) {
+            throw error("Illegal move: %s", move);
         }
+        makeMove(m);
     }
 
     /** Perform the move C0R0-C1R1, or pass if C0 is '-'.  For moves
@@ -332,59 +435,138 @@ class Board {
 
     /** Make the MOVE on this Board, assuming it is legal. */
     void makeMove(Move move) {
+        makeMove(move.code());
+    }
+
+    /** Make the move whose packed code is MOVE on this Board, assuming it
+     *  is legal. */
+    void makeMove(int move) {
+        if (FlightEvents.sampleBoard(++_changeCount)) {
+            FlightEvents.BoardChange event = new FlightEvents.BoardChange();
+            event.begin();
+            event.operation = "make";
+            event.ply = _numMoves;
+            applyMove(move);
+            event.commit();
+        } else {
+            applyMove(move);
+        }
+    }
+
+    /** Make the move whose packed code is MOVE on this Board, assuming
+     *  it is legal. */
+    private void applyMove(int move) {
         if (!legalMove(move)) {
-            throw error("Illegal move: %s", move);
+            throw error("Illegal move: %s", Move.unpack(move));
         }
-        if (move.isPass()) {
-            _numMoves += 1;
-            pass();
-            return;
+        if (_numMade == _moves.length) {
+            _moves = Arrays.copyOf(_moves, 2 * _numMade);
+        }
+        _moves[_numMade] = move;
+        _numMade += 1;
+        if (_publishing) {
+            _history = new BoardSnapshot.History(_history,
+                                                 Move.unpack(move));
         }
-        _allMoves.add(move);
         startUndo();
+        Accumulator acc = _accumulator;
+        if (acc != null) {
+            acc.push();
+        }
         PieceColor opponent = _whoseMove.opposite();
-        int check = numJumps();
-        if (move.isJump()) {
-            set(index(move.col0(), move.row0()), EMPTY);
+        _numMoves += 1;
+        if (move == Move.PACKED_PASS) {
+            _whoseMove = opponent;
+            _hash ^= ZOBRIST_BLUE_TO_MOVE;
+            report(BoardChange.Kind.MOVE, -1, -1, null, null);
+            announce();
+            return;
+        }
+        int from = Move.from(move), to = Move.to(move);
+        int changes = _undoSize;
+        boolean jump = Move.isJump(move);
+        if (jump) {
+            set(from, EMPTY);
             _numJumps += 1;
             incrPieces(_whoseMove, -1);
+            if (acc != null) {
+                acc.vacate(_numbers[from], _whoseMove);
+            }
+        } else {
+            _numJumps = 0;
         }
-        set(index(move.col1(), move.row1()), _whoseMove);
+        set(to, _whoseMove);
         incrPieces(_whoseMove, 1);
-
-        for (int i = -1; i <= 1; i++) {
-            for (int j = -1; j <= 1; j++) {
-                int neighbor = neighbor(index(move.col1(), move.row1()), i, j);
-                if (get(neighbor) == opponent) {
-                    set(neighbor, _whoseMove);
-                    incrPieces(_whoseMove, 1);
-                    incrPieces(opponent, -1);
+        if (acc != null) {
+            acc.place(_numbers[to], _whoseMove);
+        }
+        for (int k = _neighborStart[to]; k < _neighborStart[to + 1]; k += 1) {
+            int neighbor = _neighbors[k];
+            if (_board[neighbor] == opponent) {
+                set(neighbor, _whoseMove);
+                incrPieces(_whoseMove, 1);
+                incrPieces(opponent, -1);
+                if (acc != null) {
+                    acc.flip(_numbers[neighbor], _whoseMove);
                 }
             }
         }
-        if (_numJumps == check) {
-            _numJumps = 0;
-        }
-        _numMoves += 1;
         _whoseMove = opponent;
+        _hash ^= ZOBRIST_BLUE_TO_MOVE;
+        if (!_listeners.isEmpty()) {
+            long[] flipped = new long[WORDS], changed = new long[WORDS];
+            for (int k = changes; k < _undoSize; k += 1) {
+                int n = _numbers[_undo[k] >> 2];
+                Geometry.addSquare(changed, n);
+                if (COLORS[_undo[k] & 3] == opponent) {
+                    Geometry.addSquare(flipped, n);
+                }
+            }
+            report(BoardChange.Kind.MOVE, _numbers[to],
+                   jump ? _numbers[from] : -1, flipped, changed);
+        }
         announce();
     }
 
     /** Update to indicate that the current player passes, assuming it
      *  is legal to do so. Passing is undoable. */
     void pass() {
-        assert !canMove(_whoseMove);
+        makeMove(Move.PACKED_PASS);
+    }
 
-        startUndo();
-        _whoseMove = _whoseMove.opposite();
-        announce();
+    /** Return the number of my last moves that can be undone: all those
+     *  made since I was last cleared, copied, or set to a position. */
+    int undoableMoves() {
+        return _numMade - _fixedMoves;
     }
 
-    /** Undo the last move. */
+    /** Undo the last move.  There must be a move that can be undone. */
     void undo() {
-        while (_undoPieces.peek() != null && _undoSquares.peek() != null) {
-            int index = _undoSquares.pop();
-            PieceColor color = _undoPieces.pop();
+        if (_numMade == _fixedMoves) {
+            throw error("no move to undo");
+        }
+        if (FlightEvents.sampleBoard(++_changeCount)) {
+            FlightEvents.BoardChange event = new FlightEvents.BoardChange();
+            event.begin();
+            event.operation = "undo";
+            event.ply = _numMoves;
+            undoMove();
+            event.commit();
+        } else {
+            undoMove();
+        }
+    }
+
+    /** Undo the last move. */
+    private void undoMove() {
+        long[] changed = _listeners.isEmpty() ? null : new long[WORDS];
+        while (_undo[_undoSize - 1] >= 0) {
+            _undoSize -= 1;
+            int index = _undo[_undoSize] >> 2;
+            if (changed != null) {
+                Geometry.addSquare(changed, _numbers[index]);
+            }
+            PieceColor color = COLORS[_undo[_undoSize] & 3];
             PieceColor pos = get(index);
             if ((color == BLUE || color == RED) && (pos == color.opposite())) {
                 incrPieces(color, 1);
@@ -399,40 +581,54 @@ class Board {
             }
         }
 
-        if (_allMoves.get(_allMoves.size() - 1).isJump()) {
-            _numJumps--;
-        }
-        _undoPieces.pop();
-        _undoSquares.pop();
+        _undoSize -= 1;
+        _numJumps = -1 - _undo[_undoSize];
         _whoseMove = _whoseMove.opposite();
-        _allMoves.remove(_allMoves.size() - 1);
+        _hash ^= ZOBRIST_BLUE_TO_MOVE;
+        _numMade -= 1;
+        if (_publishing) {
+            _history = _history.previous();
+        }
         _numMoves--;
         _winner = null;
+        if (_accumulator != null) {
+            _accumulator.pop();
+        }
+        report(BoardChange.Kind.UNDO, -1, -1, null, changed);
         announce();
     }
 
     /** Indicate beginning of a move in the undo stack. See the
-     * _undoSquares and _undoPieces instance variable comments for
-     * details on how the beginning of moves are marked. */
+     * _undo instance variable comment for details on how the beginning
+     * of moves are marked. */
     private void startUndo() {
-        _undoPieces.push(null);
-        _undoSquares.push(null);
+        pushUndo(-1 - _numJumps);
     }
 
     /** Add an undo action for changing SQ on current board. */
     private void addUndo(int sq) {
-        _undoSquares.add(sq);
-        _undoPieces.add(get(sq));
+        pushUndo(sq << 2 | _board[sq].ordinal());
+    }
+
+    /** Push ENTRY onto the undo stack. */
+    private void pushUndo(int entry) {
+        if (_undoSize == _undo.length) {
+            _undo = Arrays.copyOf(_undo, 2 * _undoSize);
+        }
+        _undo[_undoSize] = entry;
+        _undoSize += 1;
     }
 
     /** Return true iff it is legal to place a block at C R. */
     boolean legalBlock(char c, char r) {
-        return _allMoves.isEmpty() && get(c, r) == EMPTY;
+        return _numMade == 0 && get(c, r) == EMPTY;
     }
 
-    /** Return true iff it is legal to place a block at CR. */
+    /** Return true iff it is legal to place a block at CR (a square
+     *  designation such as "c3" or "c10"). */
     boolean legalBlock(String cr) {
-        return legalBlock(cr.charAt(0), cr.charAt(1));
+        char r = Move.row(cr.substring(1));
+        return Move.onBoard(cr.charAt(0), r) && legalBlock(cr.charAt(0), r);
     }
 
     /** Set a block on the square C R and its reflections across the middle
@@ -444,30 +640,412 @@ class Board {
         if (!legalBlock(c, r)) {
             throw error("illegal block placement");
         }
-        int dc = java.lang.Math.abs('d' - c);
-        int dr = java.lang.Math.abs('4' - r);
-        if (get(CENTER + dc + dr * EXTENDED_SIDE) != BLOCKED) {
-            set(CENTER + dc + dr * EXTENDED_SIDE, BLOCKED);
-            _totalOpen--;
+        char c1 = (char) ('a' + side() - 1 - (c - 'a')),
+            r1 = (char) ('1' + side() - 1 - (r - '1'));
+        long[] changed = new long[WORDS];
+        int[] squares = {
+            index(c, r), index(c1, r), index(c, r1), index(c1, r1)
+        };
+        for (int sq : squares) {
+            if (get(sq) != BLOCKED) {
+                set(sq, BLOCKED);
+                Geometry.addSquare(changed, _numbers[sq]);
+                _totalOpen--;
+            }
         }
-        if (get(CENTER + dc - dr * EXTENDED_SIDE) != BLOCKED) {
-            set(CENTER + dc - dr * EXTENDED_SIDE, BLOCKED);
-            _totalOpen--;
+        report(BoardChange.Kind.BLOCK, -1, -1, null, changed);
+        announce();
+    }
+
+    /** Place a block at CR (a square designation such as "c3" or
+     *  "c10"). */
+    void setBlock(String cr) {
+        if (!legalBlock(cr)) {
+            throw error("illegal block placement");
+        }
+        setBlock(cr.charAt(0), Move.row(cr.substring(1)));
+    }
+
+    /* POSITION NOTATION
+     *
+     * A position can be written on one line as its rows, from the top
+     * (row '7' on the standard board) down, separated by '/', followed by
+     * the side to move and the number of consecutive jumps (numJumps()),
+     * separated by blanks.  Each row lists its squares from 'a' on: 'r'
+     * and 'b' for pieces, 'x' for blocks, and a decimal numeral N for N
+     * empty squares.  The initial
+     * position is "r5b/7/7/7/7/7/b5r r 0".  The jump count may be
+     * omitted, in which case it is 0.  The number of rows gives the size
+     * of the board.
+     *
+     * A position can also be encoded in encodedSize() bytes: two bits per
+     * square (the ordinal of its PieceColor), for squares a1, b1, ...,
+     * g1, a2, ..., g7, least significant bits first, followed by one bit
+     * that is 1 iff blue is to move.  The next byte (byte 13 on the
+     * standard board) holds numJumps(), and the remaining bytes are 0.
+     * The encoding does not include the size of the board.
+     *
+     * Neither form records the history of the game: a board set from
+     * one has no moves to undo. */
+
+    /** Number of bytes in the binary encoding of a position on the
+     *  standard board. */
+    static final int ENCODED_SIZE = 16;
+
+    /** Denotes a pass in the moves written by writeState. */
+    private static final int PASS_MARK = 0xFF;
+
+    /** Append the one-line notation for the current position to OUT. */
+    void appendPosition(StringBuilder out) {
+        int side = side();
+        for (char r = (char) ('1' + side - 1); r >= '1'; r -= 1) {
+            int empty = 0;
+            for (char c = 'a'; c < 'a' + side; c += 1) {
+                PieceColor piece = get(c, r);
+                if (piece == EMPTY) {
+                    empty += 1;
+                    continue;
+                }
+                if (empty > 0) {
+                    out.append(empty);
+                    empty = 0;
+                }
+                out.append(piece == RED ? 'r' : piece == BLUE ? 'b' : 'x');
+            }
+            if (empty > 0) {
+                out.append(empty);
+            }
+            if (r > '1') {
+                out.append('/');
+            }
+        }
+        out.append(' ').append(_whoseMove == BLUE ? 'b' : 'r')
+            .append(' ').append(_numJumps);
+    }
+
+    /** Return the one-line notation for the current position. */
+    String position() {
+        StringBuilder result = new StringBuilder(64);
+        appendPosition(result);
+        return result.toString();
+    }
+
+    /** Set me to the position denoted by POS in one-line notation,
+     *  clearing my history.  Throws a GameException, leaving me unchanged,
+     *  if POS is malformed. */
+    void setPosition(CharSequence pos) {
+        if (!parsePosition(pos, false)) {
+            throw error("invalid position: %s", pos);
         }
-        if (get(CENTER - dc + dr * EXTENDED_SIDE) != BLOCKED) {
-            set(CENTER - dc + dr * EXTENDED_SIDE, BLOCKED);
-            _totalOpen--;
+        parsePosition(pos, true);
+        resetHistory();
+    }
+
+    /** Parse POS as a position in one-line notation, returning true iff
+     *  it is well formed.  Sets my contents, side to move and jump count
+     *  accordingly iff APPLY. */
+    private boolean parsePosition(CharSequence pos, boolean apply) {
+        int n = pos.length();
+        int k = 0;
+        while (k < n && pos.charAt(k) == ' ') {
+            k += 1;
         }
-        if (get(CENTER - dc - dr * EXTENDED_SIDE) != BLOCKED) {
-            set(CENTER - dc - dr * EXTENDED_SIDE, BLOCKED);
-            _totalOpen--;
+        int side = 1;
+        for (int i = k; i < n && pos.charAt(i) != ' '; i += 1) {
+            if (pos.charAt(i) == '/') {
+                side += 1;
+            }
         }
+        if (side < MIN_SIDE || side > MAX_SIDE) {
+            return false;
+        }
+        if (apply) {
+            setGeometry(Geometry.of(side));
+            Arrays.fill(_board, BLOCKED);
+        }
+        for (char r = (char) ('1' + side - 1); r >= '1'; r -= 1) {
+            char c = 'a';
+            for (; k < n && pos.charAt(k) != '/' && pos.charAt(k) != ' ';
+                 k += 1) {
+                char ch = pos.charAt(k);
+                if (ch >= '1' && ch <= '9') {
+                    int empty = ch - '0';
+                    while (k + 1 < n && pos.charAt(k + 1) >= '0'
+                           && pos.charAt(k + 1) <= '9' && empty <= side) {
+                        k += 1;
+                        empty = 10 * empty + pos.charAt(k) - '0';
+                    }
+                    if (c + empty > 'a' + side) {
+                        return false;
+                    }
+                    for (; empty > 0; empty -= 1, c += 1) {
+                        if (apply) {
+                            _board[index(c, r)] = EMPTY;
+                        }
+                    }
+                } else if (ch == 'r' || ch == 'b' || ch == 'x') {
+                    if (apply) {
+                        _board[index(c, r)] =
+                            ch == 'r' ? RED : ch == 'b' ? BLUE : BLOCKED;
+                    }
+                    c += 1;
+                } else {
+                    return false;
+                }
+                if (c > 'a' + side) {
+                    return false;
+                }
+            }
+            if (c != 'a' + side
+                || (r > '1' && (k == n || pos.charAt(k) != '/'))) {
+                return false;
+            }
+            if (r > '1') {
+                k += 1;
+            }
+        }
+        if (k + 2 > n || pos.charAt(k) != ' ') {
+            return false;
+        }
+        while (k < n && pos.charAt(k) == ' ') {
+            k += 1;
+        }
+        if (k == n || (pos.charAt(k) != 'r' && pos.charAt(k) != 'b')) {
+            return false;
+        }
+        PieceColor toMove = pos.charAt(k) == 'r' ? RED : BLUE;
+        k += 1;
+        int jumps = 0;
+        while (k < n && pos.charAt(k) == ' ') {
+            k += 1;
+        }
+        for (; k < n && pos.charAt(k) >= '0' && pos.charAt(k) <= '9';
+             k += 1) {
+            jumps = jumps * 10 + pos.charAt(k) - '0';
+            if (jumps > JUMP_LIMIT) {
+                return false;
+            }
+        }
+        while (k < n && pos.charAt(k) == ' ') {
+            k += 1;
+        }
+        if (k != n) {
+            return false;
+        }
+        if (apply) {
+            _whoseMove = toMove;
+            _numJumps = jumps;
+        }
+        return true;
+    }
+
+    /** Return the number of bytes in the binary encoding of a position
+     *  on a board of my size: ENCODED_SIZE for the standard board. */
+    int encodedSize() {
+        return _geometry.encodedSize();
+    }
+
+    /** Store the binary encoding of the current position in
+     *  BUF[OFF .. OFF + encodedSize() - 1]. */
+    void encode(byte[] buf, int off) {
+        Arrays.fill(buf, off, off + encodedSize(), (byte) 0);
+        int bit = 0, side = side();
+        for (char r = '1'; r < '1' + side; r += 1) {
+            for (char c = 'a'; c < 'a' + side; c += 1, bit += 2) {
+                buf[off + (bit >> 3)] |= get(c, r).ordinal() << (bit & 7);
+            }
+        }
+        if (_whoseMove == BLUE) {
+            buf[off + (bit >> 3)] |= 1 << (bit & 7);
+        }
+        buf[off + _geometry.jumpsByte()] = (byte) _numJumps;
+    }
+
+    /** Set me to the position whose binary encoding is in
+     *  BUF[OFF .. OFF + encodedSize() - 1], clearing my history.  The
+     *  position must be on a board of my size. */
+    void decode(byte[] buf, int off) {
+        decodePosition(buf, off);
+        resetHistory();
+    }
+
+    /** Set me to the position whose binary encoding is in
+     *  BUF[OFF .. OFF + encodedSize() - 1], reached by the first PLY of
+     *  the packed MOVES, which become my moves.  Those moves cannot be
+     *  undone.  The position must be on a board of my size. */
+    void restore(byte[] buf, int off, int[] moves, int ply) {
+        decodePosition(buf, off);
+        resetHistory(moves, ply);
+    }
+
+    /** Set my contents, side to move, and jump count to those of the
+     *  position whose binary encoding is in BUF[OFF ..], without
+     *  otherwise updating my state. */
+    private void decodePosition(byte[] buf, int off) {
+        int jumps = buf[off + _geometry.jumpsByte()];
+        if (jumps < 0 || jumps > JUMP_LIMIT) {
+            throw error("invalid encoded position");
+        }
+        int bit = 0, side = side();
+        for (char r = '1'; r < '1' + side; r += 1) {
+            for (char c = 'a'; c < 'a' + side; c += 1, bit += 2) {
+                _board[index(c, r)] =
+                    COLORS[(buf[off + (bit >> 3)] >> (bit & 7)) & 3];
+            }
+        }
+        _whoseMove = ((buf[off + (bit >> 3)] >> (bit & 7)) & 1) == 1
+            ? BLUE : RED;
+        _numJumps = jumps;
+    }
+
+    /** Write my complete state, including my move and undo history, to
+     *  OUT.  The size of the board takes one byte, and the position
+     *  encodedSize() bytes; each move two bytes (its squares, or
+     *  PASS_MARK twice for a pass), followed by the number of them that
+     *  cannot be undone; and each undo record two bytes: the
+     *  square changed times 4 plus the ordinal of its former contents,
+     *  or, for the mark starting each move, -1 minus the jump count
+     *  before the move. */
+    void writeState(DataOutput out) throws IOException {
+        byte[] position = new byte[encodedSize()];
+        encode(position, 0);
+        out.writeByte(side());
+        out.write(position);
+        out.writeInt(_numMoves);
+        out.writeInt(_numMade);
+        for (int i = 0; i < _numMade; i += 1) {
+            int move = _moves[i];
+            if (move == Move.PACKED_PASS) {
+                out.writeByte(PASS_MARK);
+                out.writeByte(PASS_MARK);
+            } else {
+                out.writeByte(_numbers[Move.from(move)]);
+                out.writeByte(_numbers[Move.to(move)]);
+            }
+        }
+        out.writeInt(_fixedMoves);
+        out.writeInt(_undoSize);
+        for (int i = 0; i < _undoSize; i += 1) {
+            int entry = _undo[i];
+            if (entry < 0) {
+                out.writeShort(entry);
+            } else {
+                out.writeShort(_numbers[entry >> 2] * COLORS.length
+                               + (entry & 3));
+            }
+        }
+    }
+
+    /** Set my complete state, including my move and undo history, to
+     *  that written by writeState to IN.  Throws IOException if IN does
+     *  not contain a valid state. */
+    void readState(DataInput in) throws IOException {
+        try {
+            clear(in.readUnsignedByte());
+        } catch (GameException excp) {
+            throw new IOException(excp.getMessage());
+        }
+        byte[] position = new byte[encodedSize()];
+        in.readFully(position);
+        try {
+            decode(position, 0);
+        } catch (GameException excp) {
+            throw new IOException(excp.getMessage());
+        }
+        int squares = _geometry.squares();
+        int numMoves = in.readInt();
+        int n = in.readInt();
+        for (int i = 0; i < n; i += 1) {
+            int from = in.readUnsignedByte(), to = in.readUnsignedByte();
+            Move move;
+            if (from == PASS_MARK && to == PASS_MARK) {
+                move = Move.pass();
+            } else if (from >= squares || to >= squares) {
+                move = null;
+            } else {
+                move = Move.move(col(from), row(from), col(to), row(to));
+            }
+            if (move == null) {
+                throw new IOException("invalid move in saved state");
+            }
+            if (_numMade == _moves.length) {
+                _moves = Arrays.copyOf(_moves, 2 * _numMade);
+            }
+            _moves[_numMade] = move.code();
+            _numMade += 1;
+        }
+        resetMoveHistory();
+        int fixed = in.readInt();
+        if (fixed < 0 || fixed > _numMade) {
+            throw new IOException("invalid move count in saved state");
+        }
+        _fixedMoves = fixed;
+        int marks = 0;
+        n = in.readInt();
+        for (int i = 0; i < n; i += 1) {
+            int code = in.readShort();
+            if (code < 0) {
+                if (-1 - code > JUMP_LIMIT) {
+                    throw new IOException("invalid undo record in saved "
+                                          + "state");
+                }
+                pushUndo(code);
+                marks += 1;
+            } else if (code / COLORS.length >= squares) {
+                throw new IOException("invalid undo record in saved state");
+            } else {
+                pushUndo(_geometry.index(code / COLORS.length) << 2
+                         | code % COLORS.length);
+            }
+        }
+        if (marks != _numMade - _fixedMoves) {
+            throw new IOException("inconsistent undo records in saved state");
+        }
+        _numMoves = numMoves;
+        reportReset();
         announce();
     }
 
-    /** Place a block at CR. */
-    void setBlock(String cr) {
-        setBlock(cr.charAt(0), cr.charAt(1));
+    /** Return the column of the square numbered SQ. */
+    private char col(int sq) {
+        return (char) ('a' + sq % side());
+    }
+
+    /** Return the row of the square numbered SQ. */
+    private char row(int sq) {
+        return (char) ('1' + sq / side());
+    }
+
+    /** Recompute my piece counts and hash from my contents, and clear my
+     *  move history, after my contents have been set directly. */
+    private void resetHistory() {
+        resetHistory(_moves, 0);
+    }
+
+    /** Recompute my piece counts and hash from my contents, after they
+     *  have been set directly, taking the first PLY of the packed MOVES
+     *  as my moves, none of which can be undone. */
+    private void resetHistory(int[] moves, int ply) {
+        Arrays.fill(_numPieces, 0);
+        _totalOpen = 0;
+        for (int sq : _indices) {
+            incrPieces(_board[sq], 1);
+            if (_board[sq] != BLOCKED) {
+                _totalOpen += 1;
+            }
+        }
+        if (ply > _moves.length) {
+            _moves = new int[ply];
+        }
+        System.arraycopy(moves, 0, _moves, 0, ply);
+        _numMoves = _numMade = _fixedMoves = ply;
+        _winner = null;
+        resetMoveHistory();
+        _undoSize = 0;
+        _hash = computeHash();
+        computeMasks();
+        reportReset();
+        announce();
     }
 
     /** Return total number of unblocked squares. */
@@ -475,10 +1053,14 @@ class Board {
         return _totalOpen;
     }
 
-    /** Return a list of all moves made since the last clear (or start of
-     *  game). */
+    /** Return a new list of all moves, including passes, made since the
+     *  last clear (or start of game). */
     List<Move> allMoves() {
-        return _allMoves;
+        ArrayList<Move> moves = new ArrayList<>(_numMade);
+        for (int i = 0; i < _numMade; i += 1) {
+            moves.add(Move.unpack(_moves[i]));
+        }
+        return moves;
     }
 
     @Override
@@ -504,12 +1086,13 @@ class Board {
      *  column numbers around the edges. */
     String toString(boolean legend) {
         Formatter out = new Formatter();
-        for (char r = '7'; r >= '1'; r -= 1) {
+        int side = side(), width = side > 9 ? 2 : 1;
+        for (char r = (char) ('1' + side - 1); r >= '1'; r -= 1) {
             if (legend) {
-                out.format("%c", r);
+                out.format("%" + width + "d", r - '0');
             }
             out.format(" ");
-            for (char c = 'a'; c <= 'g'; c += 1) {
+            for (char c = 'a'; c < 'a' + side; c += 1) {
                 switch (get(c, r)) {
                 case RED:
                     out.format(" r");
@@ -530,7 +1113,10 @@ class Board {
             out.format("%n");
         }
         if (legend) {
-            out.format("   a b c d e f g");
+            out.format("%" + (width + 1) + "s", "");
+            for (char c = 'a'; c < 'a' + side; c += 1) {
+                out.format(" %c", c);
+            }
         }
         return out.toString();
     }
@@ -543,31 +1129,216 @@ class Board {
 
     /** Take any action that has been set for a change in my state. */
     private void announce() {
+        if (_publishing) {
+            _published = snapshot();
+        }
         _notifier.accept(this);
     }
 
+    /** Return a snapshot of my current state.  It includes my moves
+     *  iff I am publishing. */
+    BoardSnapshot snapshot() {
+        return new BoardSnapshot(_geometry, _masks, _whoseMove, _numMoves,
+                                 _numJumps, _hash, _history);
+    }
+
+    /** Publish a snapshot of my state after every change iff ON, for
+     *  retrieval by published().  Publishing also keeps my moves in the
+     *  form that snapshots share. */
+    void setPublishing(boolean on) {
+        _publishing = on;
+        resetMoveHistory();
+        _published = on ? snapshot() : null;
+    }
+
+    /** Return the snapshot of my state published after my last change,
+     *  or null if I am not publishing.  May be called from any thread
+     *  without further synchronization. */
+    BoardSnapshot published() {
+        return _published;
+    }
+
+    /** Set _history from _moves if publishing, and otherwise to
+     *  null. */
+    private void resetMoveHistory() {
+        _history = null;
+        if (_publishing) {
+            for (int i = 0; i < _numMade; i += 1) {
+                _history = new BoardSnapshot.History(_history,
+                                                     Move.unpack(_moves[i]));
+            }
+        }
+    }
+
+    /** Keep ACCUMULATOR, whose network must be for boards of my size,
+     *  up to date with my contents from now on, starting from my current
+     *  position, or stop updating any accumulator if ACCUMULATOR is
+     *  null.  Changes other than moves and undos (clearing, placing
+     *  blocks, setting a position) recompute its sums from scratch.
+     *  Copies of a board do not share it. */
+    void setAccumulator(Accumulator accumulator) {
+        _accumulator = accumulator;
+        if (accumulator != null) {
+            accumulator.refresh(this);
+        }
+    }
+
+    /** Add LISTENER to the observers of my changes. */
+    void addListener(BoardListener listener) {
+        _listeners.add(listener);
+    }
+
+    /** Remove LISTENER from the observers of my changes. */
+    void removeListener(BoardListener listener) {
+        _listeners.remove(listener);
+    }
+
+    /** Start a batch of changes, which are delivered to my listeners
+     *  together by the matching call to endChanges.  Batches may nest;
+     *  the changes are delivered at the end of the outermost. */
+    void beginChanges() {
+        _batchDepth += 1;
+    }
+
+    /** End the batch of changes started by the last unmatched call to
+     *  beginChanges. */
+    void endChanges() {
+        assert _batchDepth > 0;
+        _batchDepth -= 1;
+        if (_batchDepth == 0) {
+            deliverChanges();
+        }
+    }
+
+    /** Report a change of kind KIND to my listeners, if any, with
+     *  PLACED, VACATED, FLIPPED and CHANGED as for the BoardChange
+     *  constructor (null standing for no squares), and my current
+     *  counters.  After changes other than moves and undos, also
+     *  recomputes the sums of my accumulator, if any. */
+    private void report(BoardChange.Kind kind, int placed, int vacated,
+                        long[] flipped, long[] changed) {
+        if (_accumulator != null && kind != BoardChange.Kind.MOVE
+            && kind != BoardChange.Kind.UNDO) {
+            _accumulator.refresh(this);
+        }
+        if (_listeners.isEmpty()) {
+            return;
+        }
+        _changes.add(new BoardChange(kind, placed, vacated,
+                                     flipped == null
+                                     ? new long[WORDS] : flipped,
+                                     changed == null
+                                     ? new long[WORDS] : changed,
+                                     _whoseMove, _numMoves,
+                                     numPieces(RED), numPieces(BLUE)));
+        if (_batchDepth == 0) {
+            deliverChanges();
+        }
+    }
+
+    /** Report that all my squares may have changed.  As for
+     *  undoMove, builds the mask of squares only if I have listeners,
+     *  so that resets stay free of allocation otherwise. */
+    private void reportReset() {
+        report(BoardChange.Kind.RESET, -1, -1, null,
+               _listeners.isEmpty() ? null : _geometry.all());
+    }
+
+    /** Deliver the changes reported since the last delivery to my
+     *  listeners. */
+    private void deliverChanges() {
+        if (_changes.isEmpty()) {
+            return;
+        }
+        List<BoardChange> changes = List.copyOf(_changes);
+        _changes.clear();
+        for (BoardListener listener : _listeners) {
+            listener.boardChanged(this, changes);
+        }
+    }
+
+    /** Random keys used to compute hash(), indexed by linearized square
+     *  index and PieceColor ordinal.  Keys for EMPTY are 0. */
+    private static final long[][] ZOBRIST =
+        new long[EXTENDED_SIDE * EXTENDED_SIDE][PieceColor.values().length];
+    /** Random key included in hash() when it is blue's move. */
+    private static final long ZOBRIST_BLUE_TO_MOVE;
+    /** Random keys included in searchHash(), indexed by the number of
+     *  consecutive jumps.  The key for 0 is 0. */
+    private static final long[] ZOBRIST_JUMPS = new long[JUMP_LIMIT + 1];
+
+    static {
+        Random keys = new Random(0x5eed_a7a7L);
+        for (long[] sqKeys : ZOBRIST) {
+            for (PieceColor color : PieceColor.values()) {
+                if (color != EMPTY) {
+                    sqKeys[color.ordinal()] = keys.nextLong();
+                }
+            }
+        }
+        ZOBRIST_BLUE_TO_MOVE = keys.nextLong();
+        for (int j = 1; j <= JUMP_LIMIT; j += 1) {
+            ZOBRIST_JUMPS[j] = keys.nextLong();
+        }
+    }
+
+    /** Initial capacity of the list of moves made. */
+    private static final int INITIAL_MOVES = 64;
+
+    /** The PieceColors, indexed by ordinal. */
+    private static final PieceColor[] COLORS = PieceColor.values();
+
+    /** Number of longs in a mask of squares. */
+    private static final int WORDS = Geometry.WORDS;
+
     /** A notifier that does nothing. */
     private static final Consumer<Board> NOP = (s) -> { };
 
     /** Use _notifier.accept(this) to announce changes to this board. */
     private Consumer<Board> _notifier;
 
+    /** True iff I publish snapshots after each change. */
+    private boolean _publishing;
+    /** The last snapshot published, if publishing.  Being immutable,
+     *  snapshots are safely published through this field alone. */
+    private volatile BoardSnapshot _published;
+    /** My moves, if publishing, and otherwise null. */
+    private BoardSnapshot.History _history;
+
+    /** Observers of my changes.  Copies of a board do not share them. */
+    private final ArrayList<BoardListener> _listeners = new ArrayList<>();
+    /** Changes not yet delivered to _listeners. */
+    private final ArrayList<BoardChange> _changes = new ArrayList<>();
+    /** Depth of nesting of beginChanges calls. */
+    private int _batchDepth;
+    /** Kept up to date with my contents, or null. */
+    private Accumulator _accumulator;
+
     /** For reasons of efficiency in copying the board,
      *  we use a 1D array to represent it, using the usual access
      *  algorithm: row r, column c => index(r, c).
      *
-     *  Next, instead of using a 7x7 board, we use an 11x11 board in
-     *  which the outer two rows and columns are blocks, and
-     *  row 2, column 2 actually represents row 0, column 0
+     *  Next, instead of using a 7x7 board, we use a 15x15 board (the
+     *  largest board plus a border) in which all but the real board is
+     *  blocks, and row 2, column 2 actually represents row 0, column 0
      *  of the real board.  As a result of this trick, there is no
      *  need to special-case being near the edge: we don't move
      *  off the edge because it looks blocked.
      *
      *  Using characters as indices, it follows that if 'a' <= c <= 'g'
      *  and '1' <= r <= '7', then row r, column c of the board corresponds
-     *  to _board[(c -'a' + 2) + 11 (r - '1' + 2) ]. */
+     *  to _board[(c -'a' + 2) + 15 (r - '1' + 2) ]. */
     private final PieceColor[] _board;
 
+    /** The tables for my size. */
+    private Geometry _geometry;
+    /** Tables from _geometry: the linearized indices of my squares, and
+     *  the number of the square at each index. */
+    private int[] _indices, _numbers;
+    /** Tables from _geometry: the targets of moves and the neighbors of
+     *  each square, and where those for each square start. */
+    private int[] _moveTargets, _moveStart, _neighbors, _neighborStart;
+
     /** Player that is next to move. */
     private PieceColor _whoseMove;
 
@@ -585,22 +1356,41 @@ class Board {
     /** Set to winner when game ends (EMPTY if tie).  Otherwise is null. */
     private PieceColor _winner;
 
-    /** List of all (non-undone) moves since the last clear or beginning of
-     *  the game. */
-    private ArrayList<Move> _allMoves;
+    /** Packed codes of all (non-undone) moves, including passes, since the
+     *  last clear or beginning of the game, in _moves[0 .. _numMade-1]. */
+    private int[] _moves;
+    /** Number of moves in _moves. */
+    private int _numMade;
+    /** Number of the first moves in _moves that have no undo records,
+     *  because they were made before I was copied or restored. */
+    private int _fixedMoves;
 
     /** Total number of moves. */
     private int _numMoves;
 
+    /** Masks of the squares (see Geometry) holding each color: that for
+     *  color C is in _masks[C.ordinal() * WORDS ...]. */
+    private final long[] _masks = new long[COLORS.length * WORDS];
+
+    /** Hash of the current position, as returned by hash(). */
+    private long _hash;
+
+    /** Number of moves made or undone, used to sample them for
+     *  FlightEvents. */
+    private int _changeCount;
+
     /* The undo stack. We keep a stack of squares that have changed and
      * their previous contents.  Any given move may involve several such
      * changes, so we mark the start of the changes for each move (including
-     * passes) with a null. */
-
-    /** Stack of linearized indices of squares that have been modified and
-     *  not undone. Nulls mark the beginnings of full moves. */
-    private Stack<Integer> _undoSquares;
-    /** Stack of pieces formally at corresponding squares in _UNDOSQUARES. */
-    private Stack<PieceColor> _undoPieces;
+     * passes) with a negative entry, which also records the jump count
+     * before the move. */
+
+    /** The undo stack, in _undo[0 .. _undoSize-1]: the linearized index
+     *  of each square modified and not undone, times 4, plus the ordinal
+     *  of its former contents; and, marking the beginning of each move,
+     *  -1 - numJumps() as it was before the move. */
+    private int[] _undo = new int[INITIAL_MOVES * 8];
+    /** Number of entries in _undo. */
+    private int _undoSize;
 
 }
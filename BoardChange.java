@@ -0,0 +1,123 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+/** A description of one change to a Board, as delivered to
+ *  BoardListeners.  Squares are numbered as in Geometry (SIDE * row +
+ *  column, counting from 0 at a1), and sets of squares are masks as in
+ *  Geometry.
+ *  Besides the squares that changed, a change carries the counters of
+ *  the board just after it, so that an observer need not consult the
+ *  board for them.
+ *  @author Hanqi Xiong
+ */
+class BoardChange {
+
+    /** The kinds of change. */
+    enum Kind {
+        /** A move or pass. */
+        MOVE,
+        /** The undoing of a move or pass. */
+        UNDO,
+        /** The placing of blocks. */
+        BLOCK,
+        /** Any other change (clearing or loading the board), after
+         *  which observers should look at all squares again. */
+        RESET
+    }
+
+    /** A change of kind KIND, in which a piece was placed on square
+     *  PLACED and removed from square VACATED (each -1 if none), the
+     *  pieces on the squares in FLIPPED changed color, and in all the
+     *  squares in CHANGED changed, leaving WHOSEMOVE to move after
+     *  NUMMOVES moves, with REDPIECES red and BLUEPIECES blue pieces.
+     *  FLIPPED and CHANGED are not copied, and must not be modified
+     *  later. */
+    BoardChange(Kind kind, int placed, int vacated, long[] flipped,
+                long[] changed, PieceColor whoseMove, int numMoves,
+                int redPieces, int bluePieces) {
+        _kind = kind;
+        _placed = placed;
+        _vacated = vacated;
+        _flipped = flipped;
+        _changed = changed;
+        _whoseMove = whoseMove;
+        _numMoves = numMoves;
+        _redPieces = redPieces;
+        _bluePieces = bluePieces;
+    }
+
+    /** Return my kind. */
+    Kind kind() {
+        return _kind;
+    }
+
+    /** Return the square on which a move placed a piece, or -1. */
+    int placed() {
+        return _placed;
+    }
+
+    /** Return the square from which a move (a jump) removed a piece, or
+     *  -1. */
+    int vacated() {
+        return _vacated;
+    }
+
+    /** Return a new mask of squares whose pieces a move flipped. */
+    long[] flipped() {
+        return _flipped.clone();
+    }
+
+    /** Return a new mask of all squares whose contents changed. */
+    long[] changed() {
+        return _changed.clone();
+    }
+
+    /** Return true iff the contents of square SQ changed. */
+    boolean changed(int sq) {
+        return Geometry.contains(_changed, sq);
+    }
+
+    /** Return the side to move after the change. */
+    PieceColor whoseMove() {
+        return _whoseMove;
+    }
+
+    /** Return the number of moves made after the change. */
+    int numMoves() {
+        return _numMoves;
+    }
+
+    /** Return the number of red pieces after the change. */
+    int redPieces() {
+        return _redPieces;
+    }
+
+    /** Return the number of blue pieces after the change. */
+    int bluePieces() {
+        return _bluePieces;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s placed=%d vacated=%d flipped=%x:%x "
+                             + "changed=%x:%x %s %d %d-%d", _kind, _placed,
+                             _vacated, _flipped[1], _flipped[0],
+                             _changed[1], _changed[0], _whoseMove,
+                             _numMoves, _redPieces, _bluePieces);
+    }
+
+    /** Kind of change. */
+    private final Kind _kind;
+    /** Squares on which a piece was placed and from which one was
+     *  removed, or -1. */
+    private final int _placed, _vacated;
+    /** Masks of flipped and of all changed squares. */
+    private final long[] _flipped, _changed;
+    /** Side to move after the change. */
+    private final PieceColor _whoseMove;
+    /** Counters after the change. */
+    private final int _numMoves, _redPieces, _bluePieces;
+}
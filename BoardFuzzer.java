@@ -0,0 +1,504 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+import static ataxx.PieceColor.*;
+
+/** A randomized differential tester of Board.  It plays random games,
+ *  each on a board of random size with random blocks, with random undos
+ *  and with passes where they are forced, on a Board and on a
+ *  ReferenceBoard at once.  After every operation, it compares the two:
+ *  the position (pieces, blocks, side to move, and jump count), piece
+ *  counts, number of moves, winner, the set of legal moves, whether a
+ *  pass is legal, and the Board's incrementally maintained hash against
+ *  one computed afresh.  Games are played in parallel on several
+ *  threads.  The first failing game found is shrunk, by removing as
+ *  many of its operations as possible and trying smaller boards, to a
+ *  small sequence that still fails, which is reported as a script of
+ *  commands.
+ *  @author Hanqi Xiong
+ */
+class BoardFuzzer {
+
+    /** Most operations, other than placing blocks, in a game. */
+    static final int MAX_OPERATIONS = 200;
+    /** Most blocks placed (before reflection) in a game. */
+    static final int MAX_BLOCKS = 4;
+    /** Chance that an operation is an undo. */
+    static final double UNDO_CHANCE = 0.1;
+
+    /** A tester of Boards with no blocks placed on them. */
+    BoardFuzzer() {
+        this(Board::new);
+    }
+
+    /** A tester of the Boards produced by BOARDS, given the number of
+     *  squares on a side. */
+    BoardFuzzer(IntFunction<Board> boards) {
+        _boards = boards;
+    }
+
+    /** The kinds of operation. */
+    enum Kind {
+        /** A block (and its reflections). */
+        BLOCK,
+        /** A move other than a pass. */
+        MOVE,
+        /** A pass. */
+        PASS,
+        /** An undo of the last move. */
+        UNDO;
+    }
+
+    /** One operation in a game. */
+    static final class Op {
+
+        /** An operation of kind KIND on columns C0, C1 and rows R0, R1
+         *  (numbered from 0), as relevant. */
+        Op(Kind kind, int c0, int r0, int c1, int r1) {
+            _kind = kind;
+            _c0 = c0;
+            _r0 = r0;
+            _c1 = c1;
+            _r1 = r1;
+        }
+
+        /** Return my kind. */
+        Kind kind() {
+            return _kind;
+        }
+
+        /** Return the command that performs me in a game with two manual
+         *  players. */
+        @Override
+        public String toString() {
+            switch (_kind) {
+            case BLOCK:
+                return "block " + square(_c0, _r0);
+            case MOVE:
+                return square(_c0, _r0) + "-" + square(_c1, _r1);
+            case PASS:
+                return "-";
+            default:
+                return "back";
+            }
+        }
+
+        /** Return the designation of column C, row R. */
+        private static String square(int c, int r) {
+            return Move.square((char) ('a' + c), (char) ('1' + r));
+        }
+
+        /** My kind. */
+        private final Kind _kind;
+        /** My columns and rows. */
+        private final int _c0, _r0, _c1, _r1;
+    }
+
+    /** A game: the size of its board and its operations. */
+    static final class Case {
+
+        /** The game of OPS on a board with SIDE squares on a side. */
+        Case(int side, List<Op> ops) {
+            _side = side;
+            _ops = List.copyOf(ops);
+        }
+
+        /** Return the number of squares on a side of my board. */
+        int side() {
+            return _side;
+        }
+
+        /** Return my operations. */
+        List<Op> ops() {
+            return _ops;
+        }
+
+        /** Return a script of commands that plays me. */
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder();
+            out.append("size ").append(_side).append("\n");
+            out.append("manual red\nmanual blue\n");
+            for (Op op : _ops) {
+                out.append(op).append("\n");
+            }
+            return out.toString();
+        }
+
+        /** Size of my board. */
+        private final int _side;
+        /** My operations. */
+        private final List<Op> _ops;
+    }
+
+    /** A failing game, with a description of the failure. */
+    static final class Failure {
+
+        /** Failure MESSAGE in the game GAME0, which was game number
+         *  GAME. */
+        Failure(long game, Case game0, String message) {
+            _game = game;
+            _case = game0;
+            _message = message;
+        }
+
+        /** Return the number of the game in which the failure was
+         *  found. */
+        long game() {
+            return _game;
+        }
+
+        /** Return the failing game. */
+        Case failingCase() {
+            return _case;
+        }
+
+        /** Return a description of the failure. */
+        String message() {
+            return _message;
+        }
+
+        /** Number of the game. */
+        private final long _game;
+        /** The failing game. */
+        private final Case _case;
+        /** Description of the failure. */
+        private final String _message;
+    }
+
+    /** Play GAMES random games, numbered from 0, on THREADS threads, and
+     *  return a failure found (shrunk), or null if there is none.  Once
+     *  a failure is found, no more games are started, and the failure
+     *  reported is that of the lowest numbered failing game played.
+     *  Sets games() and operations() to the numbers of games and
+     *  operations checked. */
+    Failure run(long games, int threads) {
+        AtomicLong next = new AtomicLong(), played = new AtomicLong(),
+            operations = new AtomicLong();
+        AtomicReference<Failure> failure = new AtomicReference<>();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayList<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t += 1) {
+                tasks.add(workers.submit(() -> {
+                    for (long game = next.getAndIncrement();
+                         game < games && failure.get() == null;
+                         game = next.getAndIncrement()) {
+                        Failure found = play(game, operations);
+                        played.incrementAndGet();
+                        if (found != null) {
+                            failure.accumulateAndGet(found,
+                                (f0, f1) -> f0 == null
+                                || f1.game() < f0.game() ? f1 : f0);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (Exception excp) {
+            throw new Error("Internal failure: " + excp, excp);
+        } finally {
+            workers.shutdownNow();
+        }
+        _games = played.get();
+        _operations = operations.get();
+        Failure found = failure.get();
+        if (found == null) {
+            return null;
+        }
+        Case shrunk = shrink(found.failingCase());
+        return new Failure(found.game(), shrunk, check(shrunk));
+    }
+
+    /** Return the number of games checked by the last run. */
+    long games() {
+        return _games;
+    }
+
+    /** Return the number of operations checked by the last run. */
+    long operations() {
+        return _operations;
+    }
+
+    /** Play random game number GAME, comparing the boards after each
+     *  operation and adding the number of operations to OPERATIONS.
+     *  Returns the failure found, or null. */
+    Failure play(long game, AtomicLong operations) {
+        Random random = new Random(game * 0x9E3779B97F4A7C15L + 1);
+        int side = Board.MIN_SIDE
+            + random.nextInt(Board.MAX_SIDE - Board.MIN_SIDE + 1);
+        ArrayList<Op> ops = new ArrayList<>();
+        ReferenceBoard model = new ReferenceBoard(side);
+        for (int k = random.nextInt(MAX_BLOCKS + 1); k > 0; k -= 1) {
+            int c = random.nextInt(side), r = random.nextInt(side);
+            if (model.legalBlock(c, r)) {
+                ops.add(new Op(Kind.BLOCK, c, r, 0, 0));
+                model.block(c, r);
+            }
+        }
+        for (int k = 0; k < MAX_OPERATIONS; k += 1) {
+            boolean over = model.winner() != null;
+            if (model.numMoves() > 0
+                && (random.nextDouble() < UNDO_CHANCE
+                    || over && random.nextBoolean())) {
+                ops.add(new Op(Kind.UNDO, 0, 0, 0, 0));
+                model.undo();
+            } else if (over) {
+                break;
+            } else if (model.legalPass()) {
+                ops.add(new Op(Kind.PASS, 0, 0, 0, 0));
+                model.pass();
+            } else {
+                ArrayList<int[]> moves = model.legalMoves();
+                int[] m = moves.get(random.nextInt(moves.size()));
+                ops.add(new Op(Kind.MOVE, m[0], m[1], m[2], m[3]));
+                model.move(m[0], m[1], m[2], m[3]);
+            }
+        }
+        Case game0 = new Case(side, ops);
+        operations.addAndGet(ops.size());
+        String message = check(game0);
+        return message == null ? null : new Failure(game, game0, message);
+    }
+
+    /** Play GAME0 on a Board and a ReferenceBoard, comparing them after
+     *  each operation.  Returns a description of the first difference,
+     *  or of an exception thrown by the Board, or null if there is
+     *  none.  Operations that are not legal in the position reached are
+     *  skipped. */
+    String check(Case game0) {
+        return check(game0, new ArrayList<>());
+    }
+
+    /** Play GAME0 as for check(GAME0), returning the same result and
+     *  adding to APPLIED the operations performed: those not skipped, up
+     *  to and including the first that fails. */
+    private String check(Case game0, List<Op> applied) {
+        ReferenceBoard model = new ReferenceBoard(game0.side());
+        Board board;
+        try {
+            board = _boards.apply(game0.side());
+        } catch (RuntimeException excp) {
+            return "creating the board threw " + excp;
+        }
+        Board fresh = new Board(game0.side());
+        int[] moves = new int[Board.MAX_MOVES];
+        String diff = compare(board, model, fresh, moves);
+        if (diff != null) {
+            return "initially: " + diff;
+        }
+        for (Op op : game0.ops()) {
+            if (!valid(op, model)) {
+                continue;
+            }
+            applied.add(op);
+            try {
+                apply(op, board, model);
+            } catch (RuntimeException excp) {
+                return String.format("operation %d (%s) threw %s",
+                                     applied.size(), op, excp);
+            }
+            diff = compare(board, model, fresh, moves);
+            if (diff != null) {
+                return String.format("after operation %d (%s): %s",
+                                     applied.size(), op, diff);
+            }
+        }
+        return null;
+    }
+
+    /** Return true iff OP may be performed on MODEL. */
+    private static boolean valid(Op op, ReferenceBoard model) {
+        switch (op._kind) {
+        case BLOCK:
+            return model.legalBlock(op._c0, op._r0);
+        case MOVE:
+            return model.legalMove(op._c0, op._r0, op._c1, op._r1);
+        case PASS:
+            return model.legalPass();
+        default:
+            return model.numMoves() > 0;
+        }
+    }
+
+    /** Perform OP on BOARD and MODEL. */
+    private static void apply(Op op, Board board, ReferenceBoard model) {
+        switch (op._kind) {
+        case BLOCK:
+            model.block(op._c0, op._r0);
+            board.setBlock(col(op._c0), row(op._r0));
+            break;
+        case MOVE:
+            model.move(op._c0, op._r0, op._c1, op._r1);
+            board.makeMove(col(op._c0), row(op._r0),
+                           col(op._c1), row(op._r1));
+            break;
+        case PASS:
+            model.pass();
+            board.pass();
+            break;
+        default:
+            model.undo();
+            board.undo();
+            break;
+        }
+    }
+
+    /** Return a description of the first difference found between BOARD
+     *  and MODEL, or null if there is none, using FRESH, a board of the
+     *  same size, to compute the hash afresh and MOVES to hold legal
+     *  moves. */
+    private static String compare(Board board, ReferenceBoard model,
+                                  Board fresh, int[] moves) {
+        String expected = model.position();
+        if (board.side() != model.side()) {
+            return String.format("size is %d, not %d", board.side(),
+                                 model.side());
+        } else if (!board.position().equals(expected)) {
+            return String.format("position is %s, not %s",
+                                 board.position(), expected);
+        } else if (board.numPieces(RED) != model.count(RED)
+                   || board.numPieces(BLUE) != model.count(BLUE)) {
+            return String.format("piece counts are %d and %d, not %d and %d",
+                                 board.numPieces(RED), board.numPieces(BLUE),
+                                 model.count(RED), model.count(BLUE));
+        } else if (board.numMoves() != model.numMoves()) {
+            return String.format("number of moves is %d, not %d",
+                                 board.numMoves(), model.numMoves());
+        } else if (board.getWinner() != model.winner()) {
+            return String.format("winner is %s, not %s", board.getWinner(),
+                                 model.winner());
+        } else if (board.legalMove(Move.PACKED_PASS) != model.legalPass()) {
+            return "pass is " + (model.legalPass() ? "illegal" : "legal");
+        }
+        int n = board.legalMoves(moves, 0);
+        ArrayList<int[]> modelMoves = model.legalMoves();
+        int[] expectedMoves = new int[modelMoves.size()];
+        for (int i = 0; i < expectedMoves.length; i += 1) {
+            int[] m = modelMoves.get(i);
+            expectedMoves[i] =
+                Move.move(col(m[0]), row(m[1]), col(m[2]), row(m[3])).code();
+        }
+        Arrays.sort(moves, 0, n);
+        Arrays.sort(expectedMoves);
+        if (!Arrays.equals(moves, 0, n, expectedMoves, 0,
+                           expectedMoves.length)) {
+            return String.format("%d legal moves, not %d", n,
+                                 expectedMoves.length);
+        }
+        fresh.setPosition(expected);
+        if (board.hash() != fresh.hash()) {
+            return String.format("hash is %x, not %x", board.hash(),
+                                 fresh.hash());
+        }
+        return null;
+    }
+
+    /** Return a game that fails as GAME0 does (that is, check returns
+     *  non-null), with as few operations and as small a board as this
+     *  method can find by alternately removing operations and moving
+     *  them to smaller boards. */
+    Case shrink(Case game0) {
+        Case best = game0;
+        while (true) {
+            best = removeOperations(best);
+            Case smaller = null;
+            for (int side = Board.MIN_SIDE; side < best.side(); side += 1) {
+                Case candidate = resize(best, side);
+                if (check(candidate) != null) {
+                    smaller = candidate;
+                    break;
+                }
+            }
+            if (smaller == null) {
+                return best;
+            }
+            best = smaller;
+        }
+    }
+
+    /** Return a game that fails as GAME0 does, consisting of as few of its
+     *  operations as can be found by removing runs of them, starting
+     *  anywhere, starting with long runs.  Operations made illegal by a
+     *  removal, and those after the failure, are dropped as well. */
+    private Case removeOperations(Case game0) {
+        ArrayList<Op> ops = new ArrayList<>();
+        check(game0, ops);
+        Case best = new Case(game0.side(), ops);
+        for (int chunk = Math.max(1, ops.size() / 2); chunk >= 1; ) {
+            boolean removed = false;
+            for (int start = 0; start < ops.size(); ) {
+                ArrayList<Op> fewer = new ArrayList<>(ops.subList(0, start));
+                fewer.addAll(ops.subList(Math.min(ops.size(), start + chunk),
+                                         ops.size()));
+                ArrayList<Op> applied = new ArrayList<>();
+                if (check(new Case(best.side(), fewer), applied) != null) {
+                    best = new Case(best.side(), applied);
+                    ops = applied;
+                    removed = true;
+                } else {
+                    start += 1;
+                }
+            }
+            if (!removed) {
+                chunk /= 2;
+            }
+        }
+        return best;
+    }
+
+    /** Return GAME0 moved to a board with SIDE squares on a side.  Columns
+     *  and rows in the lower half of the board keep their numbers and the
+     *  others keep their distances from the upper edge, so that moves
+     *  near the corners, where the pieces start, stay near the same
+     *  corners. */
+    private static Case resize(Case game0, int side) {
+        ArrayList<Op> ops = new ArrayList<>();
+        for (Op op : game0.ops()) {
+            ops.add(new Op(op._kind,
+                           resize(op._c0, game0.side(), side),
+                           resize(op._r0, game0.side(), side),
+                           resize(op._c1, game0.side(), side),
+                           resize(op._r1, game0.side(), side)));
+        }
+        return new Case(side, ops);
+    }
+
+    /** Return column or row K of a board with SIDE0 squares on a side
+     *  moved to a board with SIDE1 squares on a side, as for
+     *  resize(Case, int). */
+    private static int resize(int k, int side0, int side1) {
+        return k < side0 / 2 ? k : k - side0 + side1;
+    }
+
+    /** Return the column designated by C, counting from 0. */
+    private static char col(int c) {
+        return (char) ('a' + c);
+    }
+
+    /** Return the row designated by R, counting from 0. */
+    private static char row(int r) {
+        return (char) ('1' + r);
+    }
+
+    /** Produces the Boards to be tested. */
+    private final IntFunction<Board> _boards;
+    /** Numbers of games and operations checked by the last run. */
+    private long _games, _operations;
+}
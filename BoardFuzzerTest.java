@@ -0,0 +1,62 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.PieceColor.*;
+
+/** Tests of BoardFuzzer.
+ *  @author Hanqi Xiong
+ */
+public class BoardFuzzerTest {
+
+    /** A Board that wrongly reports a win for red as soon as red has
+     *  more than five pieces. */
+    private static class FaultyBoard extends Board {
+
+        /** A faulty board with SIDE squares on a side. */
+        FaultyBoard(int side) {
+            super(side);
+        }
+
+        @Override
+        PieceColor getWinner() {
+            return numPieces(RED) > 5 ? RED : super.getWinner();
+        }
+    }
+
+    @Test
+    public void testBoardAgrees() {
+        BoardFuzzer fuzzer = new BoardFuzzer();
+        BoardFuzzer.Failure failure = fuzzer.run(300, 2);
+        assertNull(failure == null ? null : failure.message() + "\n"
+                   + failure.failingCase(), failure);
+        assertEquals(300, fuzzer.games());
+        assertTrue(fuzzer.operations() > 300);
+    }
+
+    @Test
+    public void testShrinking() {
+        BoardFuzzer fuzzer = new BoardFuzzer(FaultyBoard::new);
+        BoardFuzzer.Failure failure = fuzzer.run(100, 2);
+        assertNotNull(failure);
+        assertTrue(failure.message().contains("winner is"));
+        BoardFuzzer.Case shrunk = failure.failingCase();
+        assertNotNull(fuzzer.check(shrunk));
+        assertTrue(shrunk.toString(), shrunk.ops().size() <= 40);
+        for (int i = 0; i < shrunk.ops().size(); i += 1) {
+            ArrayList<BoardFuzzer.Op> fewer = new ArrayList<>(shrunk.ops());
+            fewer.remove(i);
+            assertNull(fuzzer.check(new BoardFuzzer.Case(shrunk.side(),
+                                                         fewer)));
+        }
+        assertTrue(shrunk.toString().startsWith("size " + shrunk.side()
+                                                + "\nmanual red\n"));
+    }
+}
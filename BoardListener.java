@@ -0,0 +1,23 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.List;
+
+/** An observer of the changes made to a Board.  Changes are delivered
+ *  in batches: normally each change as it is made, but all the changes
+ *  made between Board.beginChanges() and the matching
+ *  Board.endChanges() together, so that an observer may combine them
+ *  (for example, by taking the union of their changed squares) and do
+ *  work proportional to what changed rather than to the board.
+ *  @author Hanqi Xiong
+ */
+interface BoardListener {
+
+    /** Respond to CHANGES, oldest first, which have been made to
+     *  BOARD.  CHANGES is not empty and may not be modified. */
+    void boardChanged(Board board, List<BoardChange> changes);
+
+}
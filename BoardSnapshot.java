@@ -0,0 +1,217 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static ataxx.PieceColor.*;
+
+/** An immutable copy of the state of a Board: its Geometry, the contents
+ *  of its squares as masks (see Geometry) of the squares that are red,
+ *  blue, or blocked, the side to move, counters, and optionally the moves
+ *  made so far, as a persistent list shared with the board and with other
+ *  snapshots.  Snapshots take a few words and one small array, so boards
+ *  can make one after every change, and they may be handed to any thread
+ *  without synchronization.
+ *  @author Hanqi Xiong
+ */
+final class BoardSnapshot {
+
+    /** Number of longs in a mask. */
+    private static final int WORDS = Geometry.WORDS;
+
+    /** A snapshot of a board described by GEOMETRY, in which the squares
+     *  in the mask MASKS[C.ordinal() * Geometry.WORDS ...] hold color C
+     *  for C RED, BLUE, and BLOCKED, and the rest are empty, WHOSEMOVE is
+     *  to move, NUMMOVES moves have been made, NUMJUMPS of them jumps
+     *  since the last extend, the position's Board.hash() is HASH, and
+     *  HISTORY lists the moves made (or is null if not known).  MASKS is
+     *  copied. */
+    BoardSnapshot(Geometry geometry, long[] masks, PieceColor whoseMove,
+                  int numMoves, int numJumps, long hash, History history) {
+        _geometry = geometry;
+        for (PieceColor color : new PieceColor[] { RED, BLUE, BLOCKED }) {
+            System.arraycopy(masks, color.ordinal() * WORDS, _masks,
+                             slot(color), WORDS);
+        }
+        _whoseMove = whoseMove;
+        _numMoves = numMoves;
+        _numJumps = numJumps;
+        _hash = hash;
+        _history = history;
+    }
+
+    /** Return the number of squares on a side of the board. */
+    int side() {
+        return _geometry.side();
+    }
+
+    /** Return the contents of square C R, which is BLOCKED if it is not
+     *  on the board. */
+    PieceColor get(char c, char r) {
+        int side = side();
+        if (c < 'a' || c >= 'a' + side || r < '1' || r >= '1' + side) {
+            return BLOCKED;
+        }
+        int sq = (r - '1') * side + (c - 'a'), word = sq >>> 6;
+        long bit = 1L << sq;
+        return (_masks[slot(RED) + word] & bit) != 0 ? RED
+            : (_masks[slot(BLUE) + word] & bit) != 0 ? BLUE
+            : (_masks[slot(BLOCKED) + word] & bit) != 0 ? BLOCKED : EMPTY;
+    }
+
+    /** Return a new mask of the squares holding COLOR. */
+    long[] mask(PieceColor color) {
+        long[] result = _geometry.all();
+        for (int w = 0; w < WORDS; w += 1) {
+            if (color == EMPTY) {
+                result[w] &= ~(_masks[slot(RED) + w] | _masks[slot(BLUE) + w]
+                               | _masks[slot(BLOCKED) + w]);
+            } else {
+                result[w] &= _masks[slot(color) + w];
+            }
+        }
+        return result;
+    }
+
+    /** Return the number of pieces of COLOR. */
+    int numPieces(PieceColor color) {
+        return Geometry.count(mask(color));
+    }
+
+    /** Return the side to move. */
+    PieceColor whoseMove() {
+        return _whoseMove;
+    }
+
+    /** Return the number of moves made. */
+    int numMoves() {
+        return _numMoves;
+    }
+
+    /** Return the number of consecutive jumps made since the last
+     *  extend. */
+    int numJumps() {
+        return _numJumps;
+    }
+
+    /** Return the hash of the position, as for Board.hash(). */
+    long hash() {
+        return _hash;
+    }
+
+    /** Return the moves made so far, oldest first, or null if they were
+     *  not recorded. */
+    History history() {
+        return _history;
+    }
+
+    /** Return true iff WHO has a legal move (other than a pass). */
+    boolean canMove(PieceColor who) {
+        long[] reach = mask(who), empty = mask(EMPTY);
+        _geometry.grow(reach, reach);
+        _geometry.grow(reach, reach);
+        for (int w = 0; w < WORDS; w += 1) {
+            if ((reach[w] & empty[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Return true iff MOVE is legal in this position. */
+    boolean legalMove(Move move) {
+        if (move == null) {
+            return false;
+        } else if (move.isPass()) {
+            return !canMove(_whoseMove);
+        } else {
+            return (move.isJump() || move.isExtend())
+                && get(move.col0(), move.row0()) == _whoseMove
+                && get(move.col1(), move.row1()) == EMPTY;
+        }
+    }
+
+    /** Return the winner, as for Board.getWinner(). */
+    PieceColor winner() {
+        int red = numPieces(RED), blue = numPieces(BLUE);
+        if (red == 0) {
+            return BLUE;
+        } else if (blue == 0) {
+            return RED;
+        } else if (_numJumps >= Board.JUMP_LIMIT
+                   || (!canMove(RED) && !canMove(BLUE))) {
+            return red > blue ? RED : blue > red ? BLUE : EMPTY;
+        }
+        return null;
+    }
+
+    /** Return the position in _masks of the mask for COLOR (RED, BLUE,
+     *  or BLOCKED). */
+    private static int slot(PieceColor color) {
+        return color == RED ? 0 : color == BLUE ? WORDS : 2 * WORDS;
+    }
+
+    /** A list of moves that is never modified, so that a list may share
+     *  all but its last move with another. */
+    static final class History {
+
+        /** The list of moves PREVIOUS followed by MOVE.  PREVIOUS is null
+         *  for the list of one move. */
+        History(History previous, Move move) {
+            _previous = previous;
+            _move = move;
+            _size = previous == null ? 1 : previous._size + 1;
+        }
+
+        /** Return the list of my moves but the last (null if none). */
+        History previous() {
+            return _previous;
+        }
+
+        /** Return my last move. */
+        Move move() {
+            return _move;
+        }
+
+        /** Return the number of my moves. */
+        int size() {
+            return _size;
+        }
+
+        /** Return my moves, oldest first. */
+        List<Move> toList() {
+            ArrayList<Move> moves = new ArrayList<>(_size);
+            for (History h = this; h != null; h = h._previous) {
+                moves.add(h._move);
+            }
+            Collections.reverse(moves);
+            return moves;
+        }
+
+        /** All moves but the last, or null. */
+        private final History _previous;
+        /** The last move. */
+        private final Move _move;
+        /** Number of moves. */
+        private final int _size;
+    }
+
+    /** Tables for the size of the board. */
+    private final Geometry _geometry;
+    /** Masks of the red, blue, and blocked squares, each at its
+     *  slot(). */
+    private final long[] _masks = new long[3 * WORDS];
+    /** Side to move. */
+    private final PieceColor _whoseMove;
+    /** Counters. */
+    private final int _numMoves, _numJumps;
+    /** Hash of the position. */
+    private final long _hash;
+    /** Moves made so far, or null. */
+    private final History _history;
+}
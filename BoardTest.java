@@ -4,6 +4,14 @@
 
 package ataxx;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 
 import static ataxx.PieceColor.*;
@@ -25,8 +33,8 @@ public class BoardTest {
     private static final char[] ROWS = {'1', '2', '3', '4', '5', '6', '7'};
 
     private static void checkBoard(Board b, PieceColor[][] expectedColors) {
-        assertEquals(Board.SIDE, expectedColors.length);
-        assertEquals(Board.SIDE, expectedColors[0].length);
+        assertEquals(Board.DEFAULT_SIDE, expectedColors.length);
+        assertEquals(Board.DEFAULT_SIDE, expectedColors[0].length);
         for (int r = 0; r < expectedColors.length; r++) {
             for (int c = 0; c < expectedColors[0].length; c++) {
                 assertEquals("incorrect color at "
@@ -543,4 +551,260 @@ public class BoardTest {
             {EMPTY, EMPTY, EMPTY, EMPTY, EMPTY, EMPTY, RED},
             {BLUE, EMPTY, EMPTY, EMPTY, EMPTY, EMPTY, RED}
     };
+    @Test
+    public void testPositionNotation() {
+        Board b = new Board();
+        assertEquals("r5b/7/7/7/7/7/b5r r 0", b.position());
+        b.setBlock('c', '3');
+        makeMoves(b, new String[] { "a7-b7", "a1-b2", "g1-e1" });
+        String pos = b.position();
+        assertEquals("rr4b/7/2x1x2/7/2x1x2/1b5/b3r2 b 1", pos);
+        Board b1 = new Board();
+        b1.setPosition(pos);
+        assertEquals("positions differ", b, b1);
+        assertEquals("hashes differ", b.hash(), b1.hash());
+        assertEquals(BLUE, b1.whoseMove());
+        assertEquals(1, b1.numJumps());
+        assertEquals(b.redPieces(), b1.redPieces());
+        assertEquals(b.bluePieces(), b1.bluePieces());
+        assertEquals(b.totalOpen(), b1.totalOpen());
+        assertEquals(0, b1.numMoves());
+        try {
+            b1.setPosition("r5b/7/7/7/7/7/b6r r 0");
+            fail("accepted bad position");
+        } catch (GameException excp) {
+            assertEquals("bad position changed board", pos, b1.position());
+        }
+    }
+
+    @Test
+    public void testEncoding() {
+        Board b = new Board();
+        b.setBlock('b', '2');
+        makeMoves(b, new String[] { "a7-a5", "g7-g6", "g1-g2" });
+        byte[] buf = new byte[Board.ENCODED_SIZE + 3];
+        b.encode(buf, 3);
+        Board b1 = new Board();
+        b1.decode(buf, 3);
+        assertEquals(b.position(), b1.position());
+        assertEquals(b.hash(), b1.hash());
+        assertEquals(b.numPieces(RED), b1.numPieces(RED));
+    }
+
+    @Test
+    public void testSavedState() throws IOException {
+        Board b = new Board();
+        b.setBlock('b', '2');
+        makeMoves(b, new String[] { "a7-a5", "g7-g6", "g1-g2", "a1-c3" });
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        b.writeState(new DataOutputStream(bytes));
+        Board b1 = new Board();
+        b1.readState(new DataInputStream(
+                         new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(b.position(), b1.position());
+        assertEquals(b.allMoves(), b1.allMoves());
+        assertEquals(b.numMoves(), b1.numMoves());
+        while (b.numMoves() > 0) {
+            b.undo();
+            b1.undo();
+            assertEquals(b.position(), b1.position());
+            assertEquals(b.hash(), b1.hash());
+        }
+    }
+
+    @Test
+    public void testChanges() {
+        Board b = new Board();
+        ArrayList<List<BoardChange>> batches = new ArrayList<>();
+        b.addListener((board, changes) -> batches.add(changes));
+        makeMoves(b, new String[] { "g1-f2", "a1-b2", "f2-e3", "b2-c2",
+                                    "e3-c3" });
+        assertEquals(5, batches.size());
+        BoardChange jump = batches.get(4).get(0);
+        assertEquals(BoardChange.Kind.MOVE, jump.kind());
+        assertEquals(16, jump.placed());
+        assertEquals(18, jump.vacated());
+        assertArrayEquals(new long[] { (1L << 8) | (1L << 9), 0 },
+                          jump.flipped());
+        assertArrayEquals(new long[] {
+                (1L << 8) | (1L << 9) | (1L << 16) | (1L << 18), 0 },
+            jump.changed());
+        assertEquals(BLUE, jump.whoseMove());
+        assertEquals(5, jump.numMoves());
+        assertEquals(b.redPieces(), jump.redPieces());
+        assertEquals(b.bluePieces(), jump.bluePieces());
+
+        batches.clear();
+        b.beginChanges();
+        b.undo();
+        b.undo();
+        assertTrue(batches.isEmpty());
+        b.endChanges();
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).size());
+        BoardChange undo = batches.get(0).get(0);
+        assertEquals(BoardChange.Kind.UNDO, undo.kind());
+        assertArrayEquals(jump.changed(), undo.changed());
+        assertEquals(RED, undo.whoseMove());
+        assertArrayEquals(new long[] { 1L << 9, 0 },
+                          batches.get(0).get(1).changed());
+
+        batches.clear();
+        b.clear();
+        assertArrayEquals(new long[] { (1L << 49) - 1, 0 },
+                          batches.get(0).get(0).changed());
+        batches.clear();
+        b.setPosition("r5b/7/7/7/7/7/b5r b 1");
+        assertEquals(BoardChange.Kind.RESET, batches.get(0).get(0).kind());
+        assertArrayEquals(new long[] { (1L << 49) - 1, 0 },
+                          batches.get(0).get(0).changed());
+    }
+
+    @Test
+    public void testSnapshot() {
+        Board b = new Board();
+        b.setPublishing(true);
+        b.setBlock('c', '1');
+        BoardSnapshot start = b.published();
+        makeMoves(b, new String[] { "g1-f2", "a1-b1", "f2-e3", "b1-c2",
+                                    "e3-c3" });
+        BoardSnapshot s = b.published();
+        for (char r = '1'; r <= '7'; r += 1) {
+            for (char c = 'a'; c <= 'g'; c += 1) {
+                assertEquals(b.get(c, r), s.get(c, r));
+            }
+        }
+        assertEquals(b.whoseMove(), s.whoseMove());
+        assertEquals(b.numPieces(RED), s.numPieces(RED));
+        assertEquals(b.numPieces(BLUE), s.numPieces(BLUE));
+        assertEquals(b.canMove(RED), s.canMove(RED));
+        assertEquals(b.hash(), s.hash());
+        assertNull(s.winner());
+        assertEquals(b.allMoves(), s.history().toList());
+        assertTrue(s.legalMove(Move.move('b', '1', 'b', '2')));
+        assertFalse(s.legalMove(Move.move('c', '2', 'd', '2')));
+        assertFalse(s.legalMove(Move.pass()));
+        assertEquals(BLOCKED, start.get('e', '7'));
+        assertEquals(EMPTY, start.get('f', '2'));
+        assertEquals(RED, start.whoseMove());
+        assertEquals(2, start.numPieces(RED));
+        assertNull(start.history());
+
+        b.undo();
+        assertEquals(4, b.published().history().size());
+        assertSame(s.history().previous(), b.published().history());
+        assertEquals(5, s.history().size());
+
+        b.setPosition("r6/7/7/7/7/7/6b b 0");
+        assertNull(b.published().history());
+        assertEquals(BLUE, b.published().whoseMove());
+        assertEquals(1, b.published().numPieces(BLUE));
+        b.setPosition("rr5/bb5/7/7/7/7/7 r 0");
+        assertEquals(b.canMove(BLUE), b.published().canMove(BLUE));
+    }
+
+    @Test
+    public void testPackedMoves() {
+        Board b = new Board();
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = b.legalMoves(moves, 0);
+        assertEquals(16, n);
+        for (int i = 0; i < n; i += 1) {
+            assertTrue(b.legalMove(moves[i]));
+            assertEquals(RED, b.get(Move.unpack(moves[i]).col0(),
+                                   Move.unpack(moves[i]).row0()));
+        }
+        b.makeMove(Move.move('a', '7', 'b', '6').code());
+        assertEquals(BLUE, b.whoseMove());
+        assertEquals(3, b.numPieces(RED));
+        assertFalse(b.legalMove(Move.PACKED_PASS));
+
+        b.setPosition("rbb4/bbb4/bbb4/7/7/7/6b b 0");
+        b.makeMove(Move.move('g', '1', 'e', '1').code());
+        assertEquals(1, b.numJumps());
+        assertEquals(0, b.legalMoves(moves, 0));
+        assertTrue(b.legalMove(Move.PACKED_PASS));
+        b.pass();
+        assertEquals(BLUE, b.whoseMove());
+        assertEquals(1, b.numJumps());
+        assertEquals(Move.pass(), b.allMoves().get(1));
+        b.undo();
+        assertEquals(RED, b.whoseMove());
+        assertEquals(1, b.numJumps());
+        b.undo();
+        assertEquals(0, b.numJumps());
+        assertEquals(BLUE, b.get('g', '1'));
+    }
+
+    @Test
+    public void testSizes() throws IOException {
+        Board b = new Board(11);
+        assertEquals(11, b.side());
+        assertEquals("r9b/11/11/11/11/11/11/11/11/11/b9r r 0", b.position());
+        b.setBlock("c10");
+        assertEquals("r9b/2x5x2/11/11/11/11/11/11/11/2x5x2/b9r r 0",
+                     b.position());
+        assertEquals(BLOCKED, b.get('i', '2'));
+        int[] moves = new int[Board.MAX_MOVES];
+        assertEquals(14, b.legalMoves(moves, 0));
+        b.makeMove("k1-k2");
+        b.makeMove("k11-j10");
+        b.makeMove("a11-a9");
+        b.makeMove("a1-b3");
+        assertEquals(3, b.numPieces(RED));
+        assertEquals(3, b.numPieces(BLUE));
+        assertEquals(BLUE, b.get('j', (char) ('0' + 10)));
+        assertEquals(Move.move("k11-j10"), b.allMoves().get(1));
+        assertEquals("j10", Move.square('j', (char) ('0' + 10)));
+        assertTrue(b.toString(true).startsWith("11  - - "));
+
+        Board b1 = new Board();
+        b1.setPosition(b.position());
+        assertEquals(11, b1.side());
+        assertEquals(b.position(), b1.position());
+
+        BoardSnapshot s = b.snapshot();
+        assertEquals(11, s.side());
+        assertEquals(BLUE, s.get('k', (char) ('0' + 11)));
+        assertEquals(b.canMove(BLUE), s.canMove(BLUE));
+        assertEquals(3, s.numPieces(RED));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        b.writeState(new DataOutputStream(bytes));
+        Board b2 = new Board();
+        b2.readState(new DataInputStream(
+                         new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(b.position(), b2.position());
+        assertEquals(b.allMoves(), b2.allMoves());
+        while (b.numMoves() > 0) {
+            b.undo();
+            b2.undo();
+            assertEquals(b.position(), b2.position());
+            assertEquals(b.hash(), b2.hash());
+        }
+        assertEquals("r9b/2x5x2/11/11/11/11/11/11/11/2x5x2/b9r r 0",
+                     b.position());
+
+        Board b5 = new Board(5);
+        assertEquals("r3b/5/5/5/b3r r 0", b5.position());
+        b5.setBlock('c', '3');
+        assertEquals(14, b5.legalMoves(moves, 0));
+        b5.clear(Board.DEFAULT_SIDE);
+        assertEquals("r5b/7/7/7/7/7/b5r r 0", b5.position());
+        for (int side : new int[] { 4, 12 }) {
+            try {
+                new Board(side);
+                fail("accepted board size " + side);
+            } catch (GameException excp) {
+                /* Expected. */
+            }
+        }
+        try {
+            b5.setPosition("4/4/4/4 r 0");
+            fail("accepted bad board size");
+        } catch (GameException excp) {
+            assertEquals("r5b/7/7/7/7/7/b5r r 0", b5.position());
+        }
+    }
+
 }
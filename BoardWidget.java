@@ -9,10 +9,14 @@ import ucb.gui2.Pad;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.BasicStroke;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 
 import java.awt.event.MouseEvent;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
 
 import static ataxx.PieceColor.*;
 import static ataxx.Utils.*;
@@ -24,8 +28,6 @@ class BoardWidget extends Pad  {
 
     /** Length of side of one square, in pixels. */
     static final int SQDIM = 50;
-    /** Number of squares on a side. */
-    static final int SIDE = Board.SIDE;
     /** Radius of circle representing a piece. */
     static final int PIECE_RADIUS = 15;
     /** Dimension of a block. */
@@ -50,14 +52,27 @@ class BoardWidget extends Pad  {
     private static final BasicStroke BLOCK_STROKE = new BasicStroke(5.0f);
 
     /** A new widget sending commands resulting from mouse clicks
-     *  to COMMANDQUEUE. */
-    BoardWidget(ArrayBlockingQueue<String> commandQueue) {
-        _commandQueue = commandQueue;
+     *  to COMMANDS. */
+    BoardWidget(Consumer<String> commands) {
+        _commands = commands;
         setMouseHandler("click", this::handleClick);
-        _dim = SQDIM * SIDE;
         _blockMode = false;
+        for (PieceColor color : PieceColor.values()) {
+            _squareImages[color.ordinal()] = renderSquare(color);
+        }
+        resize(Board.DEFAULT_SIDE);
+    }
+
+    /** Display an empty board with SIDE squares on a side. */
+    private void resize(int side) {
+        _side = side;
+        _dim = SQDIM * side;
         setPreferredSize(_dim, _dim);
         setMinimumSize(_dim, _dim);
+        _contents = new PieceColor[side * side];
+        Arrays.fill(_contents, EMPTY);
+        me.revalidate();
+        me.repaint();
     }
 
     /** Indicate that SQ (of the form CR) is selected, or that none is
@@ -67,35 +82,66 @@ class BoardWidget extends Pad  {
             _selectedCol = _selectedRow = 0;
         } else {
             _selectedCol = sq.charAt(0);
-            _selectedRow = sq.charAt(1);
+            _selectedRow = Move.row(sq.substring(1));
         }
-        repaint();
     }
 
+    /** Draw the squares that intersect the clip region of G, and the
+     *  right and bottom edges of the board.  Each square is copied from
+     *  the image for its contents, which supplies the grid lines along
+     *  its top and left edges only. */
     @Override
     public synchronized void paintComponent(Graphics2D g) {
-        g.setColor(BLANK_COLOR);
-        g.fillRect(0, 0, _dim, _dim);
-        for (int i = 0; i <= _dim; i += SQDIM) {
-            for (int j = 0; j <= _dim; j += SQDIM) {
-                g.setColor(Color.BLACK);
-                g.drawLine(i, j, i, _dim);
-                g.drawLine(i, j, _dim, j);
-            }
+        Rectangle clip = g.getClipBounds();
+        int side = _side;
+        int x0 = 0, y0 = 0, x1 = side - 1, y1 = side - 1;
+        if (clip != null) {
+            x0 = Math.max(0, clip.x / SQDIM);
+            y0 = Math.max(0, clip.y / SQDIM);
+            x1 = Math.min(side - 1, (clip.x + clip.width - 1) / SQDIM);
+            y1 = Math.min(side - 1, (clip.y + clip.height - 1) / SQDIM);
         }
-        for (int i = 0; i < _model.EXTENDED_SIDE * _model.EXTENDED_SIDE; i++) {
-            if (_model.get(i) == BLOCKED) {
-                drawBlock(g, i % 11 - 2, i / 11 - 2);
-            }
-            if (_model.get(i) == BLUE || _model.get(i) == RED) {
-                drawPiece(g, _model.get(i), i % 11 - 2, i / 11 - 2);
+        for (int y = y0; y <= y1; y += 1) {
+            for (int x = x0; x <= x1; x += 1) {
+                PieceColor contents = _contents[(side - 1 - y) * side + x];
+                g.drawImage(_squareImages[contents.ordinal()],
+                            x * SQDIM, y * SQDIM, null);
             }
         }
+        if (x1 == side - 1 || y1 == side - 1) {
+            int edge = SQDIM * side - 1;
+            g.setColor(LINE_COLOR);
+            g.setStroke(LINE_STROKE);
+            g.drawLine(edge, 0, edge, edge);
+            g.drawLine(0, edge, edge, edge);
+        }
     }
-    /** Draw a block centered at (CX, CY) on G. */
+
+    /** Return an image of a square containing CONTENTS, with the grid
+     *  lines along its top and left edges. */
+    private BufferedImage renderSquare(PieceColor contents) {
+        BufferedImage image =
+            new BufferedImage(SQDIM, SQDIM, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(BLANK_COLOR);
+        g.fillRect(0, 0, SQDIM, SQDIM);
+        g.setColor(LINE_COLOR);
+        g.setStroke(LINE_STROKE);
+        g.drawLine(0, 0, SQDIM, 0);
+        g.drawLine(0, 0, 0, SQDIM);
+        if (contents == BLOCKED) {
+            drawBlock(g, 0, 0);
+        } else if (contents == RED || contents == BLUE) {
+            drawPiece(g, contents, 0, 0);
+        }
+        g.dispose();
+        return image;
+    }
+
+    /** Draw a block in the square CX columns from the left and CY rows
+     *  from the top of G. */
     void drawBlock(Graphics2D g, int cx, int cy) {
         g.setColor(BLOCK_COLOR);
-        cy = 6 - cy;
         g.fillRect(SQDIM * cx, SQDIM * cy, SQDIM, SQDIM);
         g.drawRect(SQDIM * cx, SQDIM * cy, SQDIM, SQDIM);
     }
@@ -103,8 +149,8 @@ class BoardWidget extends Pad  {
     /** Draw a red circle.
      * @param g the board
      * @param color color of the board
-     * @param cx change of x
-     * @param cy change of y
+     * @param cx column of the square, from the left
+     * @param cy row of the square, from the top
      * End. */
     void drawPiece(Graphics2D g, PieceColor color, int cx, int cy) {
         if (color == BLUE) {
@@ -113,7 +159,6 @@ class BoardWidget extends Pad  {
         if (color == RED) {
             g.setColor(RED_COLOR);
         }
-        cy = 6 - cy;
         int length = PIECE_RADIUS * 2;
         g.drawOval(SQDIM * cx + 10, SQDIM * cy + 10, length, length);
         g.fillOval(SQDIM * cx + 10, SQDIM * cy + 10, length, length);
@@ -139,20 +184,24 @@ class BoardWidget extends Pad  {
         char b = _selectedRow;
         if (where.getButton() == MouseEvent.BUTTON1) {
             mouseCol = (char) (x / SQDIM + 'a');
-            mouseRow = (char) ((SQDIM * SIDE - y) / SQDIM + '1');
-            if (mouseCol >= 'a' && mouseCol <= 'g'
-                && mouseRow >= '1' && mouseRow <= '7') {
+            mouseRow = (char) ((SQDIM * _side - y) / SQDIM + '1');
+            if (mouseCol >= 'a' && mouseCol < 'a' + _side
+                && mouseRow >= '1' && mouseRow < '1' + _side) {
                 if (_blockMode) {
-                    if (_model.get(mouseCol, mouseRow) != BLOCKED) {
-                        String input = "block " + mouseCol + mouseRow + "";
-                        _commandQueue.offer(input);
+                    if (contents(mouseCol, mouseRow) != BLOCKED) {
+                        String input =
+                            "block " + Move.square(mouseCol, mouseRow);
+                        _commands.accept(input);
                     }
                 } else {
                     if (_selectedCol != 0) {
-                        if (_model.legalMove(a, b, mouseCol, mouseRow)) {
+                        if (legalMove(a, b, mouseCol, mouseRow)) {
                             String input;
-                            input = "" + _selectedCol + _selectedRow + '-';
-                            _commandQueue.offer(input + mouseCol + mouseRow);
+                            input = Move.square(_selectedCol, _selectedRow)
+                                + '-';
+                            _commands.accept(input
+                                             + Move.square(mouseCol,
+                                                           mouseRow));
                         }
                         _selectedCol = _selectedRow = 0;
                     } else {
@@ -162,19 +211,86 @@ class BoardWidget extends Pad  {
                 }
             }
         }
-        repaint();
     }
 
+    /** Return true iff C0 R0-C1 R1 is a legal move in the position
+     *  displayed. */
+    private synchronized boolean legalMove(char c0, char r0,
+                                           char c1, char r1) {
+        Move move = Move.move(c0, r0, c1, r1);
+        return move != null && (move.isExtend() || move.isJump())
+            && contents(c0, r0) == _whoseMove && contents(c1, r1) == EMPTY;
+    }
+
+    /** Return the contents of square C R as displayed. */
+    private synchronized PieceColor contents(char c, char r) {
+        return _contents[(r - '1') * _side + (c - 'a')];
+    }
+
+    /** Display the position on BOARD.  Only the squares whose contents
+     *  differ from those displayed are repainted. */
     public synchronized void update(Board board) {
-        _model = new Board(board);
-        repaint();
+        _whoseMove = board.whoseMove();
+        if (board.side() != _side) {
+            resize(board.side());
+        }
+        for (int sq = 0; sq < _contents.length; sq += 1) {
+            updateSquare(board, sq);
+        }
+    }
+
+    /** Display the effect of CHANGES on BOARD, repainting only the
+     *  squares they changed. */
+    public synchronized void boardChanged(Board board,
+                                          List<BoardChange> changes) {
+        if (board.side() != _side) {
+            update(board);
+            return;
+        }
+        _whoseMove = changes.get(changes.size() - 1).whoseMove();
+        for (int w = 0; w < Geometry.WORDS; w += 1) {
+            long changed = 0;
+            for (BoardChange change : changes) {
+                changed |= change.changed()[w];
+            }
+            for (; changed != 0; changed &= changed - 1) {
+                updateSquare(board,
+                             64 * w + Long.numberOfTrailingZeros(changed));
+            }
+        }
+    }
+
+    /** Display the contents of square SQ (numbered as for _contents) on
+     *  BOARD, repainting it if they have changed. */
+    private void updateSquare(Board board, int sq) {
+        PieceColor contents =
+            board.get((char) ('a' + sq % _side), (char) ('1' + sq / _side));
+        if (contents != _contents[sq]) {
+            _contents[sq] = contents;
+            repaintSquare(sq);
+        }
+    }
+
+    /** Request that square SQ (numbered as for _contents) be
+     *  repainted. */
+    private void repaintSquare(int sq) {
+        me.repaint((sq % _side) * SQDIM, (_side - 1 - sq / _side) * SQDIM,
+                   SQDIM, SQDIM);
     }
 
     /** Dimension of current drawing surface in pixels. */
     private int _dim;
 
-    /** Model being displayed. */
-    private static Board _model;
+    /** Number of squares on a side of the board displayed. */
+    private int _side;
+    /** Contents of the squares displayed, indexed by _side * row +
+     *  column, counting from 0 at a1. */
+    private PieceColor[] _contents;
+    /** The side to move in the position displayed. */
+    private PieceColor _whoseMove = RED;
+    /** Images of squares, indexed by the ordinal of their contents. */
+    private final BufferedImage[] _squareImages =
+        new BufferedImage[PieceColor.values().length];
 
     /** Coordinates of currently selected square, or '\0' if no selection. */
     private char _selectedCol, _selectedRow;
@@ -183,5 +299,5 @@ class BoardWidget extends Pad  {
     private boolean _blockMode;
 
     /** Destination for commands derived from mouse clicks. */
-    private ArrayBlockingQueue<String> _commandQueue;
+    private Consumer<String> _commands;
 }
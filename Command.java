@@ -15,10 +15,18 @@ import static ataxx.GameException.*;
  */
 class Command {
 
+    /** Start of a record command, whose operand (a file name) is not
+     *  converted to lower case. */
+    private static final String RECORD_PREFIX = "record ";
+
+    /** Pattern for a square on the largest board. */
+    private static final String SQUARE = "[a-k](?:1[01]|[1-9])";
+
     /** A list of all commands. */
     private static final String[] COMMAND_NAMES = {
-        "auto", "block", "board", "dump", "help", "manual",
-        "new", "q", "quiet", "quit", "seed", "undo", "verbose",
+        "analyze", "auto", "back", "block", "board", "dump", "forward",
+        "goto", "help", "jfr", "load", "manual", "new", "q", "quiet", "quit",
+        "record", "seed", "size", "undo", "verbose",
     };
 
     /** Command types.  PIECEMOVE indicates a move of the form
@@ -28,12 +36,20 @@ class Command {
     enum Type {
         COMMENT("#.*|$"),
         AUTO("auto\\s+(red|blue)"),
-        BLOCK("block\\s+([a-g][1-7])"),
+        ANALYZE("analyze(?:\\s+(\\d+(?:ms|s)?))?(?:\\s+(\\d+))?"),
+        BLOCK("block\\s+(" + SQUARE + ")"),
         MANUAL("manual\\s+(red|blue)"),
+        JFR("jfr\\s+(on|off)"),
+        LOAD("load\\s+([rbx0-9/]+\\s+[rb](?:\\s+\\d+)?)"),
+        RECORD("record\\s+(\\S+)"),
         SEED("seed\\s+(\\d+)"),
+        SIZE("size\\s+(\\d+)"),
+        GOTO("goto\\s+(\\d+)"),
+        BACK("back(?:\\s+(\\d+))?"),
+        FORWARD("forward(?:\\s+(\\d+))?"),
         START,
         /* Regular moves. */
-        PIECEMOVE("(-|[a-g][1-7]-[a-g][1-7])"),
+        PIECEMOVE("(-|" + SQUARE + "-" + SQUARE + ")"),
         QUIT("q|quit"),
         NEW, DUMP, HELP,
         /* Extra commands. */
@@ -84,6 +100,10 @@ class Command {
         if (command == null) {
             return new Command(Type.EOF);
         }
+        Command scanned = scan(command);
+        if (scanned != null) {
+            return scanned;
+        }
         command = canonicalizeCommand(command);
         for (Type type : Type.values()) {
             Matcher mat = type._pattern.matcher(command);
@@ -98,6 +118,57 @@ class Command {
         throw new Error("Internal failure: error command did not match.");
     }
 
+    /** Return the Command denoted by COMMAND if it is a comment, a
+     *  move of at most two rows and columns in the form c0r0-c1r1 (with
+     *  one-digit rows) or -, or a command without operands written
+     *  in full, and otherwise null.  This is a fast path for the commands
+     *  that scripts and engines send most; it examines each character
+     *  once and allocates nothing, returning Commands created in
+     *  advance.  parseCommand's regular expressions handle everything
+     *  else, including all errors. */
+    private static Command scan(String command) {
+        int start, end;
+        for (start = 0; start < command.length()
+                 && command.charAt(start) <= ' '; start += 1) {
+            continue;
+        }
+        for (end = command.length(); end > start
+                 && command.charAt(end - 1) <= ' '; end -= 1) {
+            continue;
+        }
+        int len = end - start;
+        if (len == 0 || command.charAt(start) == '#') {
+            return COMMENT_COMMAND;
+        } else if (len == 1 && command.charAt(start) == '-') {
+            return PASS_COMMAND;
+        } else if (len == 5 && command.charAt(start + 2) == '-') {
+            char c0 = Character.toLowerCase(command.charAt(start)),
+                r0 = command.charAt(start + 1),
+                c1 = Character.toLowerCase(command.charAt(start + 3)),
+                r1 = command.charAt(start + 4);
+            if (Move.shortSquare(c0, r0) && Move.shortSquare(c1, r1)
+                && Math.abs(c1 - c0) <= 2 && Math.abs(r1 - r0) <= 2) {
+                return MOVE_COMMANDS[moveIndex(c0, r0, c1, r1)];
+            }
+            return null;
+        }
+        for (int i = 0; i < BARE_NAMES.length; i += 1) {
+            if (len == BARE_NAMES[i].length()
+                && command.regionMatches(true, start, BARE_NAMES[i], 0, len)) {
+                return BARE_COMMANDS[i];
+            }
+        }
+        return null;
+    }
+
+    /** Return the index in MOVE_COMMANDS of the move C0R0-C1R1, which
+     *  moves at most two rows and columns between squares with one-digit
+     *  rows. */
+    private static int moveIndex(char c0, char r0, char c1, char r1) {
+        return (((c0 - 'a') * SHORT_ROWS + r0 - '1') * 5 + c1 - c0 + 2) * 5
+            + r1 - r0 + 2;
+    }
+
     /** Return COMMAND with the full command name that uniquely fits
      *  substituted for the command name. COMMAND may start with any
      *  prefix of a valid command name, as long as that name is unique.
@@ -111,6 +182,9 @@ class Command {
         } else if (command.startsWith("#")) {
             return "#";
         }
+        if (command.toLowerCase().startsWith(RECORD_PREFIX)) {
+            return RECORD_PREFIX + command.substring(RECORD_PREFIX.length());
+        }
         command = command.toLowerCase();
 
         int prefixLen = Math.max(command.indexOf(" "), command.length());
@@ -138,6 +212,53 @@ class Command {
         }
     }
 
+    /** The Command for an empty line or comment. */
+    private static final Command COMMENT_COMMAND =
+        new Command(Type.COMMENT);
+    /** The Command for a pass. */
+    private static final Command PASS_COMMAND =
+        new Command(Type.PIECEMOVE, "-");
+    /** Number of rows designated by a single digit. */
+    private static final int SHORT_ROWS = 9;
+    /** Commands for all moves c0r0-c1r1 of at most two rows and columns
+     *  between squares with one-digit rows, indexed by moveIndex. */
+    private static final Command[] MOVE_COMMANDS =
+        new Command[Move.MAX_SIDE * SHORT_ROWS * 5 * 5];
+    /** Full names of the commands without operands that scan
+     *  recognizes. */
+    private static final String[] BARE_NAMES = {
+        "board", "dump", "help", "new", "q", "quiet", "quit", "start",
+        "undo", "verbose",
+    };
+    /** The types of the commands named by BARE_NAMES. */
+    private static final Type[] BARE_TYPES = {
+        Type.BOARD, Type.DUMP, Type.HELP, Type.NEW, Type.QUIT, Type.QUIET,
+        Type.QUIT, Type.START, Type.UNDO, Type.VERBOSE,
+    };
+    /** The Commands denoted by BARE_NAMES. */
+    private static final Command[] BARE_COMMANDS =
+        new Command[BARE_NAMES.length];
+
+    static {
+        for (char c0 = 'a'; Move.shortSquare(c0, '1'); c0 += 1) {
+            for (char r0 = '1'; Move.shortSquare(c0, r0); r0 += 1) {
+                for (int dc = -2; dc <= 2; dc += 1) {
+                    for (int dr = -2; dr <= 2; dr += 1) {
+                        char c1 = (char) (c0 + dc), r1 = (char) (r0 + dr);
+                        if (Move.shortSquare(c1, r1)) {
+                            MOVE_COMMANDS[moveIndex(c0, r0, c1, r1)] =
+                                new Command(Type.PIECEMOVE,
+                                            "" + c0 + r0 + "-" + c1 + r1);
+                        }
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < BARE_NAMES.length; i += 1) {
+            BARE_COMMANDS[i] = new Command(BARE_TYPES[i]);
+        }
+    }
+
     /** The command name. */
     private final Type _type;
     /** Command arguments. */
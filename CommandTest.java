@@ -38,11 +38,52 @@ public class CommandTest {
         checkError("auto red foo");
     }
 
+    @Test public void testANALYZE() {
+        check("analyze", ANALYZE, null, null);
+        check("analyze 6", ANALYZE, "6", null);
+        check("analyze 500ms 3", ANALYZE, "500ms", "3");
+        check("analyze 2s", ANALYZE, "2s", null);
+        checkError("analyze deep");
+    }
+
     @Test public void testBLOCK() {
         check("block b3", BLOCK, "b3");
+        check("block k10", BLOCK, "k10");
         checkError("block");
     }
 
+    @Test public void testLOAD() {
+        check("load r5b/7/7/7/7/7/b5r r 0", LOAD, "r5b/7/7/7/7/7/b5r r 0");
+        check("load r5b/7/2x1x2/7/2x1x2/7/b5r b",
+              LOAD, "r5b/7/2x1x2/7/2x1x2/7/b5r b");
+        check("load r9b/11/11/11/11/11/11/11/11/11/b9r r",
+              LOAD, "r9b/11/11/11/11/11/11/11/11/11/b9r r");
+        checkError("load");
+        checkError("load r5b/7/7/7/7/7/b5r");
+    }
+
+    @Test public void testRECORD() {
+        check("record games.rec", RECORD, "games.rec");
+        check("record Games/Self.rec", RECORD, "Games/Self.rec");
+        checkError("record");
+        checkError("record a b");
+    }
+
+    @Test public void testScanned() {
+        check("  A7-B6 ", PIECEMOVE, "a7-b6");
+        check("-", PIECEMOVE, "-");
+        check("g1-a7", PIECEMOVE, "g1-a7");
+        check("QUIET", QUIET);
+        check("q", QUIT);
+        check("quit", QUIT);
+        check("# note", COMMENT);
+        check("   ", COMMENT);
+        check("a8-b6", PIECEMOVE, "a8-b6");
+        check("k9-i9", PIECEMOVE, "k9-i9");
+        checkError("l8-b6");
+        checkError("a7-b6 x");
+    }
+
     @Test public void testSEED() {
         check("seed 142", SEED, "142");
         checkError("seed");
@@ -75,9 +116,27 @@ public class CommandTest {
         checkError("a3b3");
         checkError("a3-b3 foo");
         checkError("3a-3b");
-        checkError("h3-g3");
+        check("b10-c11", PIECEMOVE, "b10-c11");
+        checkError("l3-k3");
         checkError("a0-a1");
-        checkError("a7-a8");
+        checkError("a11-a12");
+        checkError("a01-a1");
+    }
+
+    @Test public void testNavigation() {
+        check("goto 180", GOTO, "180");
+        check("back", BACK, (String) null);
+        check("back 3", BACK, "3");
+        check("forward 12", FORWARD, "12");
+        check("forward", FORWARD, (String) null);
+        checkError("goto");
+        checkError("back x");
+    }
+
+    @Test public void testSIZE() {
+        check("size 9", SIZE, "9");
+        checkError("size");
+        checkError("size nine");
     }
 
 }
@@ -12,4 +12,27 @@ class Defaults {
     /** Current version designator. */
     static final String VERSION = "Attax 3.0";
 
+    /** Depth to which the analyze command searches, by default. */
+    static final int ANALYSIS_DEPTH = 4;
+
+    /** Size, in characters, of the buffer used to report output when
+     *  replaying. */
+    static final int REPORT_BUFFER_SIZE = 1 << 16;
+
+    /** Greatest time, in milliseconds, that replay output is held before
+     *  being written out. */
+    static final long REPORT_FLUSH_INTERVAL = 200;
+
+    /** Least time, in milliseconds, between successive reports of the
+     *  progress of an AI's search. */
+    static final long PROGRESS_INTERVAL = 100;
+
+    /** Greatest depth to which the analyze command searches when it is
+     *  given a time limit instead of a depth. */
+    static final int MAX_ANALYSIS_DEPTH = 64;
+
+    /** Log base 2 of the number of static values an AI caches, by
+     *  default. */
+    static final int EVAL_CACHE_LOG_SIZE = 16;
+
 }
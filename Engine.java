@@ -0,0 +1,548 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static ataxx.PieceColor.*;
+
+/** Drives an AI through a line-oriented protocol intended for other
+ *  programs rather than people, in the spirit of the Universal Chess
+ *  Interface.  Each input line is one command; words are separated by
+ *  blanks.  The commands are
+ *
+ *    ataxx     Identify: replies "id name ..." and then "ataxxok".
+ *    isready   Replies "readyok" once any preceding command is done.
+ *    newgame   Forget everything learned from earlier searches.
+ *    position startpos [size N] [blocks SQ...] [moves MOVE...]
+ *    position pos ROWS SIDE [JUMPS] [blocks SQ...] [moves MOVE...]
+ *              Set the position to the initial one (on a board with N
+ *              squares on a side, by default 7), or to the one given
+ *              in the notation of the load command (see Board), with
+ *              the given blocks (as for the block command), after MOVEs
+ *              (in the usual C0R0-C1R1 or - notation, where rows may
+ *              have two digits on larger boards).
+ *    go [depth N] [movetime MSEC] [nodes N] [infinite]
+ *              Search the current position within all of the given
+ *              limits, in any order.  Without a depth, searches to
+ *              the AI's usual depth if there are no other limits, and
+ *              otherwise as deep as the other limits allow, reporting
+ *              "info depth D score S nodes N nps R time MSEC pv MOVE..."
+ *              as each iteration completes, and "bestmove MOVE" (or
+ *              "bestmove none" if the game is over) at the end.
+ *              Scores are from the point of view of the side to move.
+ *    stop      End the current search early, which still reports its
+ *              best move.
+ *    quit      Exit.
+ *
+ *  Other lines produce "info string unknown command".  Searches run on
+ *  a separate thread, so that stop and isready are handled during a
+ *  search.  Input is parsed and output formatted directly from and into
+ *  reused byte buffers, so that a host can drive many positions per
+ *  second through a pipe without creating garbage per command.
+ *  @author Hanqi Xiong
+ */
+class Engine {
+
+    /** Depth of a "go" with no depth limit but some other limit. */
+    static final int UNLIMITED_DEPTH = Defaults.MAX_ANALYSIS_DEPTH;
+
+    /** Default depth of a "go" with no limits. */
+    static final int DEFAULT_DEPTH = Defaults.ANALYSIS_DEPTH;
+
+    /** An engine reading commands from IN and writing responses to
+     *  OUT. */
+    Engine(InputStream in, OutputStream out) {
+        _in = in;
+        _out = out;
+        _ai = new AI(null, RED, 0, _control);
+        _ai.setListener(this::info);
+    }
+
+    /** Process commands until "quit" or the end of input, and return an
+     *  exit code. */
+    int run() {
+        try {
+            while (readLine()) {
+                if (!execute()) {
+                    break;
+                }
+            }
+            stop();
+            awaitSearch();
+            flush();
+            return 0;
+        } catch (IOException excp) {
+            return 1;
+        } finally {
+            _searcher.shutdownNow();
+        }
+    }
+
+    /** Execute the command in _line, returning false iff it is "quit". */
+    private boolean execute() throws IOException {
+        _pos = 0;
+        if (!nextWord()) {
+            return true;
+        } else if (wordIs("go")) {
+            go();
+        } else if (wordIs("stop")) {
+            stop();
+        } else if (wordIs("isready")) {
+            awaitSearch();
+            line("readyok");
+        } else if (wordIs("position")) {
+            position();
+        } else if (wordIs("newgame")) {
+            awaitSearch();
+            _ai = new AI(null, RED, 0, _control);
+            _ai.setListener(this::info);
+        } else if (wordIs("ataxx")) {
+            synchronized (this) {
+                text("id name ").text(Defaults.VERSION).endLine();
+                text("id author Hanqi Xiong").endLine();
+                text("ataxxok").endLine();
+                flush();
+            }
+        } else if (wordIs("quit")) {
+            return false;
+        } else {
+            line("info string unknown command");
+        }
+        return true;
+    }
+
+    /** Execute "position ...". */
+    private void position() throws IOException {
+        awaitSearch();
+        if (!nextWord()) {
+            line("info string bad position");
+            return;
+        } else if (wordIs("startpos")) {
+            int side = Board.DEFAULT_SIDE, end = _pos;
+            if (nextWord() && wordIs("size")) {
+                if (!nextWord() || !isNumeral() || wordLength() > 2
+                    || wordValue() < Board.MIN_SIDE
+                    || wordValue() > Board.MAX_SIDE) {
+                    line("info string bad position");
+                    return;
+                }
+                side = (int) wordValue();
+            } else {
+                _pos = end;
+            }
+            _board.clear(side);
+        } else if (wordIs("pos")) {
+            int start = _pos;
+            nextWord();
+            nextWord();
+            int end = _pos;
+            if (nextWord() && wordValue() >= 0 && isNumeral()) {
+                end = _pos;
+            } else {
+                _pos = end;
+            }
+            _span.set(start, end);
+            try {
+                _board.setPosition(_span);
+            } catch (GameException excp) {
+                line("info string bad position");
+                return;
+            }
+        } else {
+            line("info string bad position");
+            return;
+        }
+        boolean blocks = false;
+        while (nextWord()) {
+            if (wordIs("blocks")) {
+                blocks = true;
+            } else if (wordIs("moves")) {
+                blocks = false;
+            } else if (blocks && square(0) == wordLength()
+                       && _board.legalBlock(_col, _row)) {
+                _board.setBlock(_col, _row);
+            } else if (!blocks && !makeMove()) {
+                line("info string illegal move");
+                return;
+            }
+        }
+    }
+
+    /** Make the move denoted by the current word on _board, returning
+     *  false if it is not a legal move. */
+    private boolean makeMove() {
+        Move move;
+        if (wordLength() == 1 && wordChar(0) == '-') {
+            move = Move.pass();
+        } else {
+            int k = square(0);
+            if (k < 0 || k == wordLength() || wordChar(k) != '-') {
+                return false;
+            }
+            char c0 = _col, r0 = _row;
+            if (square(k + 1) != wordLength()) {
+                return false;
+            }
+            move = Move.move(c0, r0, _col, _row);
+        }
+        if (!_board.legalMove(move)) {
+            return false;
+        }
+        _board.makeMove(move);
+        return true;
+    }
+
+    /** Parse the designation of a square of _board, such as "c3" or
+     *  "b10", starting at position K of the current word, setting _col
+     *  and _row to its column and row.  Returns the position just after
+     *  it, or -1 if there is no such designation at K. */
+    private int square(int k) {
+        int n = wordLength(), end = k + 1, r = 0, side = _board.side();
+        if (end >= n || wordChar(k) < 'a' || wordChar(k) >= 'a' + side
+            || wordChar(end) == '0') {
+            return -1;
+        }
+        for (; end < n && end <= k + 2; end += 1) {
+            char d = wordChar(end);
+            if (d < '0' || d > '9') {
+                break;
+            }
+            r = 10 * r + d - '0';
+        }
+        if (r < 1 || r > side) {
+            return -1;
+        }
+        _col = wordChar(k);
+        _row = (char) ('0' + r);
+        return end;
+    }
+
+    /** Execute "go ...". */
+    private void go() throws IOException {
+        awaitSearch();
+        int depth = -1;
+        long millis = 0, nodes = 0;
+        boolean infinite = false;
+        while (nextWord()) {
+            if (wordIs("infinite")) {
+                infinite = true;
+            } else if (wordIs("depth") && nextWord()) {
+                depth = (int) Math.min(wordValue(), UNLIMITED_DEPTH);
+            } else if (wordIs("movetime") && nextWord()) {
+                millis = wordValue();
+            } else if (wordIs("nodes") && nextWord()) {
+                nodes = wordValue();
+            }
+        }
+        if (depth < 0) {
+            depth = infinite || millis > 0 || nodes > 0
+                ? UNLIMITED_DEPTH : DEFAULT_DEPTH;
+        }
+        _control.setTimeLimit(millis);
+        _control.setNodeLimit(nodes);
+        _control.clear();
+        int maxDepth = Math.max(depth, 1);
+        _search = _searcher.submit(() -> search(maxDepth));
+    }
+
+    /** Search _board to MAXDEPTH and report the best move.  Runs on the
+     *  search thread. */
+    private void search(int maxDepth) {
+        Move best = null;
+        if (_board.getWinner() == null) {
+            best = _board.canMove(_board.whoseMove())
+                ? _ai.findMove(_board, maxDepth) : Move.pass();
+        }
+        synchronized (this) {
+            text("bestmove ");
+            if (best == null) {
+                text("none");
+            } else {
+                move(best);
+            }
+            endLine();
+            try {
+                flush();
+            } catch (IOException excp) {
+                /* Ignore: the host has gone away. */
+            }
+        }
+    }
+
+    /** Report INFO on the progress of the current search.  Called on the
+     *  search thread. */
+    private synchronized void info(SearchInfo info) {
+        int sense = _board.whoseMove() == RED ? 1 : -1;
+        text("info depth ").number(info.depth());
+        text(" score ").number(sense * info.score());
+        text(" nodes ").number(info.nodes());
+        text(" nps ").number(info.nps());
+        text(" time ").number(info.elapsed() / 1_000_000);
+        text(" pv");
+        for (Move move : info.pv()) {
+            text(" ");
+            move(move);
+        }
+        endLine();
+        try {
+            flush();
+        } catch (IOException excp) {
+            _control.stop();
+        }
+    }
+
+    /** Stop any search in progress. */
+    private void stop() {
+        _control.stop();
+    }
+
+    /** Wait for any search in progress to finish. */
+    private void awaitSearch() {
+        if (_search == null) {
+            return;
+        }
+        try {
+            _search.get();
+        } catch (InterruptedException | ExecutionException excp) {
+            _control.stop();
+        }
+        _search = null;
+    }
+
+    /* Input.  Each line is read into _line, and then divided into words
+     * by nextWord, which sets _wordStart and _pos to the bounds of the
+     * next word. */
+
+    /** Read the next line of input into _line, returning false at the end
+     *  of input. */
+    private boolean readLine() throws IOException {
+        _lineLength = 0;
+        while (true) {
+            if (_inPos == _inLimit) {
+                _inLimit = _in.read(_inBuf);
+                _inPos = 0;
+                if (_inLimit <= 0) {
+                    _inLimit = 0;
+                    return _lineLength > 0;
+                }
+            }
+            byte b = _inBuf[_inPos++];
+            if (b == '\n') {
+                return true;
+            } else if (b != '\r') {
+                if (_lineLength == _line.length) {
+                    _line = Arrays.copyOf(_line, 2 * _lineLength);
+                }
+                _line[_lineLength++] = b;
+            }
+        }
+    }
+
+    /** Advance to the next word of _line, returning false if there is
+     *  none. */
+    private boolean nextWord() {
+        while (_pos < _lineLength && _line[_pos] <= ' ') {
+            _pos += 1;
+        }
+        _wordStart = _pos;
+        while (_pos < _lineLength && _line[_pos] > ' ') {
+            _pos += 1;
+        }
+        return _pos > _wordStart;
+    }
+
+    /** Return the length of the current word. */
+    private int wordLength() {
+        return _pos - _wordStart;
+    }
+
+    /** Return character K of the current word. */
+    private char wordChar(int k) {
+        return (char) (_line[_wordStart + k] & 0xff);
+    }
+
+    /** Return true iff the current word is WORD. */
+    private boolean wordIs(String word) {
+        if (word.length() != wordLength()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i += 1) {
+            if (wordChar(i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return true iff the current word is a decimal numeral. */
+    private boolean isNumeral() {
+        for (int i = 0; i < wordLength(); i += 1) {
+            if (wordChar(i) < '0' || wordChar(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** A view of part of the current line as a CharSequence. */
+    private class Span implements CharSequence {
+
+        /** Make me denote _line[START .. END-1]. */
+        void set(int start, int end) {
+            _start = start;
+            _end = end;
+        }
+
+        @Override
+        public int length() {
+            return _end - _start;
+        }
+
+        @Override
+        public char charAt(int k) {
+            return (char) (_line[_start + k] & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(_line, _start, _end - _start,
+                              StandardCharsets.ISO_8859_1);
+        }
+
+        /** Bounds of the text I denote in _line. */
+        private int _start, _end;
+    }
+
+    /** Return the value of the current word as a non-negative decimal
+     *  numeral, ignoring any other characters. */
+    private long wordValue() {
+        long value = 0;
+        for (int i = 0; i < wordLength(); i += 1) {
+            char c = wordChar(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+            }
+        }
+        return value;
+    }
+
+    /* Output.  Text is accumulated in _outBuf and written by flush.
+     * Callers on different threads synchronize on this Engine. */
+
+    /** Write S followed by a newline, and flush. */
+    private synchronized void line(String s) throws IOException {
+        text(s).endLine();
+        flush();
+    }
+
+    /** Append S (which is ASCII) to the output, returning this. */
+    private Engine text(String s) {
+        for (int i = 0; i < s.length(); i += 1) {
+            put(s.charAt(i));
+        }
+        return this;
+    }
+
+    /** Append the decimal numeral for N to the output, returning this. */
+    private Engine number(long n) {
+        if (n < 0) {
+            put('-');
+            n = -n;
+        }
+        int start = _outLength;
+        do {
+            put((char) ('0' + n % 10));
+            n /= 10;
+        } while (n > 0);
+        for (int i = start, j = _outLength - 1; i < j; i += 1, j -= 1) {
+            byte t = _outBuf[i];
+            _outBuf[i] = _outBuf[j];
+            _outBuf[j] = t;
+        }
+        return this;
+    }
+
+    /** Append MOVE to the output. */
+    private void move(Move move) {
+        if (move.isPass()) {
+            put('-');
+        } else {
+            put(move.col0());
+            number(move.row0() - '0');
+            put('-');
+            put(move.col1());
+            number(move.row1() - '0');
+        }
+    }
+
+    /** Append a newline to the output. */
+    private void endLine() {
+        put('\n');
+    }
+
+    /** Append C to the output. */
+    private void put(char c) {
+        if (_outLength == _outBuf.length) {
+            _outBuf = Arrays.copyOf(_outBuf, 2 * _outLength);
+        }
+        _outBuf[_outLength++] = (byte) c;
+    }
+
+    /** Write all output accumulated so far. */
+    private void flush() throws IOException {
+        _out.write(_outBuf, 0, _outLength);
+        _out.flush();
+        _outLength = 0;
+    }
+
+    /** Source of commands. */
+    private final InputStream _in;
+    /** Destination of responses. */
+    private final OutputStream _out;
+    /** Input buffer. */
+    private final byte[] _inBuf = new byte[1 << 16];
+    /** Position of next unread byte in _inBuf, and end of valid data. */
+    private int _inPos, _inLimit;
+    /** The current line. */
+    private byte[] _line = new byte[256];
+    /** Length of the current line. */
+    private int _lineLength;
+    /** Reused view of part of _line. */
+    private final Span _span = new Span();
+    /** Start of the current word in _line, and position just after it. */
+    private int _wordStart, _pos;
+    /** Column and row of the square last parsed by square(int). */
+    private char _col, _row;
+    /** Output buffer. */
+    private byte[] _outBuf = new byte[1 << 12];
+    /** Number of bytes in _outBuf. */
+    private int _outLength;
+
+    /** The current position. */
+    private final Board _board = new Board();
+    /** Limits and cancellation for searches. */
+    private final SearchControl _control = new SearchControl();
+    /** The AI doing the searching. */
+    private AI _ai;
+    /** Runs searches. */
+    private final ExecutorService _searcher =
+        Executors.newSingleThreadExecutor();
+    /** The current or last search, or null if it has been waited for. */
+    private Future<?> _search;
+}
@@ -0,0 +1,215 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of Engine, driven through pipes as by a host program.
+ *  @author Hanqi Xiong
+ */
+public class EngineTest {
+
+    /** An Engine running on its own thread, with pipes to its input
+     *  and from its output. */
+    private static class Host {
+
+        /** Start an engine. */
+        Host() throws IOException {
+            PipedInputStream engineIn = new PipedInputStream(1 << 16);
+            PipedOutputStream engineOut = new PipedOutputStream();
+            _toEngine = new PipedOutputStream(engineIn);
+            _fromEngine =
+                new BufferedReader(new InputStreamReader(
+                                       new PipedInputStream(engineOut,
+                                                            1 << 16),
+                                       StandardCharsets.US_ASCII));
+            Engine engine = new Engine(engineIn, engineOut);
+            _thread = new Thread(() -> _exit = engine.run());
+            _thread.setDaemon(true);
+            _thread.start();
+        }
+
+        /** Send the lines of TEXT to the engine. */
+        void send(String text) throws IOException {
+            _toEngine.write(text.getBytes(StandardCharsets.US_ASCII));
+            _toEngine.flush();
+        }
+
+        /** Return the lines the engine writes, up to and including the
+         *  first that starts with PREFIX. */
+        List<String> readUntil(String prefix) throws IOException {
+            List<String> lines = new ArrayList<>();
+            while (true) {
+                String line = _fromEngine.readLine();
+                assertNotNull("engine output ended", line);
+                lines.add(line);
+                if (line.startsWith(prefix)) {
+                    return lines;
+                }
+            }
+        }
+
+        /** Send "quit", and return the engine's exit code. */
+        int quit() throws IOException {
+            send("quit\n");
+            try {
+                _thread.join(10000);
+            } catch (InterruptedException excp) {
+                fail("interrupted");
+            }
+            assertFalse("engine did not exit", _thread.isAlive());
+            return _exit;
+        }
+
+        /** Input to the engine. */
+        private final PipedOutputStream _toEngine;
+        /** Output from the engine. */
+        private final BufferedReader _fromEngine;
+        /** Thread running the engine. */
+        private final Thread _thread;
+        /** The engine's exit code. */
+        private volatile int _exit = -1;
+    }
+
+    /** Return the depths reported by the "info depth" lines of LINES, in
+     *  order. */
+    private static List<Integer> depths(List<String> lines) {
+        List<Integer> result = new ArrayList<>();
+        for (String line : lines) {
+            if (line.startsWith("info depth ")) {
+                result.add(Integer.parseInt(line.split(" ")[2]));
+            }
+        }
+        return result;
+    }
+
+    /** Return the search depth reported by the last "info depth" line of
+     *  LINES. */
+    private static int lastDepth(List<String> lines) {
+        List<Integer> depths = depths(lines);
+        return depths.isEmpty() ? 0 : depths.get(depths.size() - 1);
+    }
+
+    /** Return the move of the "bestmove" line that ends LINES. */
+    private static String bestMove(List<String> lines) {
+        String last = lines.get(lines.size() - 1);
+        assertTrue(last.startsWith("bestmove "));
+        return last.substring("bestmove ".length());
+    }
+
+    @Test
+    public void testHandshake() throws IOException {
+        Host host = new Host();
+        host.send("ataxx\n");
+        List<String> lines = host.readUntil("ataxxok");
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).startsWith("id name "));
+        host.send("frobnicate\nisready\n");
+        assertEquals(List.of("info string unknown command", "readyok"),
+                     host.readUntil("readyok"));
+        assertEquals(0, host.quit());
+    }
+
+    @Test
+    public void testPositionAndGo() throws IOException {
+        Host host = new Host();
+        host.send("position startpos blocks c3 moves a7-b6 a1-a2\n"
+                  + "go depth 3\n");
+        List<String> lines = host.readUntil("bestmove");
+        assertEquals(List.of(1, 2, 3), depths(lines));
+        Board board = new Board();
+        board.setBlock('c', '3');
+        board.makeMove("a7-b6");
+        board.makeMove("a1-a2");
+        assertTrue(board.legalMove(Move.move(bestMove(lines))));
+
+        host.send("position startpos moves a7-a4\nisready\n");
+        assertEquals(List.of("info string illegal move", "readyok"),
+                     host.readUntil("readyok"));
+        host.send("position pos r6/7/7/7/7/7/7 b\ngo\n");
+        assertEquals("none", bestMove(host.readUntil("bestmove")));
+        host.send("position startpos size 9 moves a9-b8\ngo depth 1\n");
+        lines = host.readUntil("bestmove");
+        board = new Board(9);
+        board.makeMove("a9-b8");
+        assertTrue(board.legalMove(Move.move(bestMove(lines))));
+        assertEquals(0, host.quit());
+    }
+
+    @Test
+    public void testLimits() throws IOException {
+        Host host = new Host();
+        for (String go : new String[] {
+                "go depth 2 movetime 60000", "go movetime 60000 depth 2",
+                "go depth 2 nodes 100000000", "go nodes 100000000 depth 2",
+                "go infinite depth 2", "go depth 2 infinite" }) {
+            host.send("position startpos\n" + go + "\n");
+            assertEquals(go, 2, lastDepth(host.readUntil("bestmove")));
+        }
+        host.send("position startpos\ngo\n");
+        assertEquals(Engine.DEFAULT_DEPTH,
+                     lastDepth(host.readUntil("bestmove")));
+        host.send("position startpos\ngo nodes 20000\n");
+        List<String> lines = host.readUntil("bestmove");
+        int depth = lastDepth(lines);
+        assertTrue(depth >= 1 && depth < Engine.UNLIMITED_DEPTH);
+        String last = lines.get(lines.size() - 2);
+        long nodes = Long.parseLong(last.split(" ")[6]);
+        assertTrue(nodes <= 20000 + SearchControl.POLL_INTERVAL);
+        assertEquals(0, host.quit());
+    }
+
+    @Test
+    public void testStop() throws IOException {
+        Host host = new Host();
+        host.send("position startpos moves a7-b6\ngo infinite\n");
+        host.readUntil("info depth 1 ");
+        host.send("stop\nisready\n");
+        List<String> lines = host.readUntil("readyok");
+        lines.remove(lines.size() - 1);
+        int depth = lastDepth(lines);
+        assertTrue(depth < Engine.UNLIMITED_DEPTH);
+        Board board = new Board();
+        board.makeMove("a7-b6");
+        assertTrue(board.legalMove(Move.move(bestMove(lines))));
+
+        host.send("go movetime 100\nstop\nisready\n");
+        lines = host.readUntil("readyok");
+        lines.remove(lines.size() - 1);
+        assertTrue(board.legalMove(Move.move(bestMove(lines))));
+        assertEquals(0, host.quit());
+    }
+
+    @Test
+    public void testWinScore() throws IOException {
+        Host host = new Host();
+        for (String pos : new String[] {
+                "xxxxx/xxxxx/xxxxx/xxxxx/rb3 r 0",
+                "xxxxx/xxxxx/xxxxx/xxxxx/br3 b 0" }) {
+            host.send("position pos " + pos + "\ngo depth 30\n");
+            List<String> lines = host.readUntil("bestmove");
+            assertEquals(30, lastDepth(lines));
+            for (String line : lines) {
+                if (line.startsWith("info depth ")) {
+                    long score = Long.parseLong(line.split(" ")[4]);
+                    assertTrue(pos + ": " + line,
+                               score > Integer.MAX_VALUE / 4);
+                }
+            }
+        }
+        assertEquals(0, host.quit());
+    }
+
+}
@@ -0,0 +1,83 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.Arrays;
+
+/** A fixed-size, direct-mapped cache of static evaluations, keyed by
+ *  Board.hash().  Unlike a TranspositionTable, it holds only the exact
+ *  static value of each position, never a search result or bound, so
+ *  that a cached value is always what the evaluation itself would
+ *  return.
+ *
+ *  An EvalCache may be shared by searches on several threads without
+ *  locking.  Each entry is two longs: the value word, and the key XORed
+ *  with the value word.  A lookup succeeds only if the two words read
+ *  are consistent with the key sought, so an entry that is torn by
+ *  concurrent stores (or, on some JVMs, a long that is itself torn)
+ *  reads as a miss rather than as a wrong value.
+ *  @author Hanqi Xiong
+ */
+class EvalCache {
+
+    /** Value returned by lookup for positions not in the cache. */
+    static final long MISS = Long.MIN_VALUE;
+    /** Greatest allowed log base 2 of the number of entries. */
+    static final int MAX_LOG_SIZE = 28;
+
+    /** A cache with 2**LOGSIZE entries. */
+    EvalCache(int logSize) {
+        if (logSize < 0 || logSize > MAX_LOG_SIZE) {
+            throw new IllegalArgumentException("bad cache size");
+        }
+        int size = 1 << logSize;
+        _mask = size - 1;
+        _checks = new long[size];
+        _data = new long[size];
+    }
+
+    /** Return the number of entries. */
+    int size() {
+        return _mask + 1;
+    }
+
+    /** Return the cached value of the position with hash KEY, or MISS if
+     *  there is none. */
+    long lookup(long key) {
+        int i = (int) key & _mask;
+        long data = _data[i], check = _checks[i];
+        if ((check ^ data) != key || data == 0) {
+            return MISS;
+        }
+        return (int) data;
+    }
+
+    /** Record that the position with hash KEY has static value VALUE,
+     *  replacing any entry for a different position. */
+    void store(long key, int value) {
+        int i = (int) key & _mask;
+        long data = (value & 0xffffffffL) | VALID;
+        _data[i] = data;
+        _checks[i] = key ^ data;
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        Arrays.fill(_checks, 0);
+        Arrays.fill(_data, 0);
+    }
+
+    /** Bit set in the value word of every valid entry (so that an
+     *  all-zero word denotes an empty slot). */
+    private static final long VALID = 1L << 32;
+
+    /** Mask used to convert keys to indices. */
+    private final int _mask;
+    /** Keys of the stored positions, each XORed with its value word. */
+    private final long[] _checks;
+    /** Value word of each entry: the value in the low 32 bits, and
+     *  VALID. */
+    private final long[] _data;
+}
@@ -0,0 +1,55 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.PieceColor.*;
+
+/** Tests of EvalCache and of its use by AI.
+ *  @author Hanqi Xiong
+ */
+public class EvalCacheTest {
+
+    @Test
+    public void testLookup() {
+        EvalCache cache = new EvalCache(4);
+        assertEquals(16, cache.size());
+        assertEquals(EvalCache.MISS, cache.lookup(0));
+        assertEquals(EvalCache.MISS, cache.lookup(0x1234));
+        cache.store(0x1234, -7);
+        cache.store(0x5671, 0);
+        assertEquals(-7, cache.lookup(0x1234));
+        assertEquals(0, cache.lookup(0x5671));
+        assertEquals(EvalCache.MISS, cache.lookup(0x2234));
+        cache.store(0x2234, Integer.MAX_VALUE);
+        assertEquals(Integer.MAX_VALUE, cache.lookup(0x2234));
+        assertEquals(EvalCache.MISS, cache.lookup(0x1234));
+        cache.clear();
+        assertEquals(EvalCache.MISS, cache.lookup(0x2234));
+        assertEquals(EvalCache.MISS, cache.lookup(0x5671));
+    }
+
+    @Test
+    public void testSearch() {
+        Board board = new Board();
+        board.makeMove("a7-b6");
+        board.makeMove("a1-b2");
+        AI cached = new AI(null, RED, 0, new SearchControl()),
+            uncached = new AI(null, RED, 0, new SearchControl());
+        cached.setEvalCacheSize(12);
+        uncached.setEvalCacheSize(0);
+        assertEquals(uncached.findMove(board, 4),
+                     cached.findMove(board, 4));
+        assertEquals(uncached.lastValue(), cached.lastValue());
+        assertEquals(uncached.nodes(), cached.nodes());
+        SearchStats stats = cached.stats();
+        assertEquals(0, uncached.stats().evalProbes);
+        assertTrue(stats.evalProbes > 0);
+        assertTrue(stats.evalHits > 0);
+        assertTrue(stats.evalHits < stats.evalProbes);
+    }
+}
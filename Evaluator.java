@@ -0,0 +1,248 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static ataxx.PieceColor.*;
+
+/** Scores a stream of positions in parallel.  Each input line holds one
+ *  position in the one-line notation of Board.position(); blank lines
+ *  and lines starting with '#' are skipped.  For each position, one
+ *  output line, in input order, holds the position, the best move found
+ *  for the side to move (- if it must pass, "none" if the game is over),
+ *  and its value (positive values favor red).  Malformed positions
+ *  produce "error" in place of the move and value.
+ *
+ *  One thread reads lines and hands them to a pool of workers, each with
+ *  its own Board and AI (so that their tables and move-ordering history
+ *  are reused from one position to the next).  The calling thread writes
+ *  the results in order from a reorder buffer.  At most WINDOW positions
+ *  are between being read and being written at any time, so memory use
+ *  does not depend on the number of positions.
+ *  @author Hanqi Xiong
+ */
+class Evaluator {
+
+    /** Number of positions in progress per worker. */
+    static final int WINDOW_PER_WORKER = 16;
+
+    /** An Evaluator that uses WORKERS threads to search each position to
+     *  DEPTH. */
+    Evaluator(int workers, int depth) {
+        _workers = workers;
+        _depth = depth;
+        _window = workers * WINDOW_PER_WORKER;
+    }
+
+    /** An Evaluator that uses a thread per processor to search each
+     *  position to the default analysis depth. */
+    Evaluator() {
+        this(Runtime.getRuntime().availableProcessors(),
+             Defaults.ANALYSIS_DEPTH);
+    }
+
+    /** Evaluate each position read from IN, writing the results to OUT.
+     *  Returns the number of positions evaluated. */
+    long evaluate(BufferedReader in, Writer out) throws IOException {
+        BlockingQueue<Job> jobs = new ArrayBlockingQueue<>(_window);
+        Results results = new Results(_window);
+        ExecutorService threads = Executors.newFixedThreadPool(_workers + 1);
+        try {
+            Future<?> reader =
+                threads.submit(() -> read(in, jobs, results));
+            for (int i = 0; i < _workers; i += 1) {
+                threads.execute(() -> work(jobs, results));
+            }
+            long count;
+            for (count = 0; true; count += 1) {
+                String result = results.take(count);
+                if (result == null) {
+                    break;
+                }
+                out.write(result);
+                out.write('\n');
+            }
+            out.flush();
+            reader.get();
+            return count;
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw new IOException("evaluation interrupted");
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof IOException) {
+                throw (IOException) excp.getCause();
+            }
+            throw new IOException(excp.getCause());
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    /** Read positions from IN, queueing them on JOBS, and tell RESULTS how
+     *  many there were.  Finally, queue an end marker for each worker. */
+    private Void read(BufferedReader in, BlockingQueue<Job> jobs,
+                      Results results)
+        throws IOException, InterruptedException {
+        long count = 0;
+        try {
+            while (true) {
+                String line = in.readLine();
+                if (line == null) {
+                    break;
+                }
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                results.reserve(count);
+                jobs.put(new Job(count, line));
+                count += 1;
+            }
+        } finally {
+            results.finish(count);
+            for (int i = 0; i < _workers; i += 1) {
+                jobs.put(Job.END);
+            }
+        }
+        return null;
+    }
+
+    /** Evaluate positions from JOBS, sending the results to RESULTS,
+     *  until reaching an end marker. */
+    private void work(BlockingQueue<Job> jobs, Results results) {
+        Board board = new Board();
+        AI ai = new AI(null, RED, 0, new SearchControl());
+        StringBuilder result = new StringBuilder();
+        try {
+            while (true) {
+                Job job = jobs.take();
+                if (job == Job.END) {
+                    return;
+                }
+                result.setLength(0);
+                evaluate(job.position, board, ai, result);
+                results.put(job.seq, result.toString());
+            }
+        } catch (InterruptedException excp) {
+            return;
+        }
+    }
+
+    /** Append the evaluation of POSITION to RESULT, using BOARD and AI. */
+    private void evaluate(String position, Board board, AI ai,
+                          StringBuilder result) {
+        try {
+            board.setPosition(position);
+        } catch (GameException excp) {
+            result.append(position).append(" error");
+            return;
+        }
+        board.appendPosition(result);
+        result.append(' ');
+        if (board.getWinner() != null) {
+            result.append("none ").append(pieceDifference(board));
+        } else if (!board.canMove(board.whoseMove())) {
+            result.append("- ").append(pieceDifference(board));
+        } else {
+            Move best = ai.findMove(board, _depth);
+            result.append(best).append(' ').append(ai.lastValue());
+        }
+    }
+
+    /** Return the number of red pieces on BOARD less the number of blue
+     *  pieces. */
+    private static int pieceDifference(Board board) {
+        return board.redPieces() - board.bluePieces();
+    }
+
+    /** A position to be evaluated. */
+    private static class Job {
+        /** Marks the end of the input. */
+        static final Job END = new Job(-1, null);
+
+        /** The SEQ'th position (from 0), whose notation is POSITION. */
+        Job(long seq, String position) {
+            this.seq = seq;
+            this.position = position;
+        }
+
+        /** Number of this position in the input, from 0. */
+        final long seq;
+        /** The position in one-line notation. */
+        final String position;
+    }
+
+    /** A buffer holding the results for a window of consecutive
+     *  positions, so that they may be written in order although they are
+     *  completed out of order. */
+    private static class Results {
+
+        /** A buffer for results of SIZE consecutive positions. */
+        Results(int size) {
+            _slots = new String[size];
+        }
+
+        /** Wait until there is room for the result of the SEQ'th
+         *  position. */
+        synchronized void reserve(long seq) throws InterruptedException {
+            while (seq >= _next + _slots.length) {
+                wait();
+            }
+        }
+
+        /** Record that RESULT is the result of the SEQ'th position. */
+        synchronized void put(long seq, String result) {
+            _slots[(int) (seq % _slots.length)] = result;
+            notifyAll();
+        }
+
+        /** Record that there are COUNT positions in all. */
+        synchronized void finish(long count) {
+            _count = count;
+            notifyAll();
+        }
+
+        /** Wait for and return the result of the SEQ'th position, which
+         *  must be the one after the last one taken, or return null if
+         *  there are only SEQ positions. */
+        synchronized String take(long seq) throws InterruptedException {
+            int k = (int) (seq % _slots.length);
+            while (_slots[k] == null && seq < _count) {
+                wait();
+            }
+            if (seq >= _count) {
+                return null;
+            }
+            String result = _slots[k];
+            _slots[k] = null;
+            _next = seq + 1;
+            notifyAll();
+            return result;
+        }
+
+        /** Results by position number modulo the buffer size. */
+        private final String[] _slots;
+        /** Number of the next position whose result is to be taken. */
+        private long _next;
+        /** Total number of positions, once known. */
+        private long _count = Long.MAX_VALUE;
+    }
+
+    /** Number of worker threads. */
+    private final int _workers;
+    /** Depth to which positions are searched. */
+    private final int _depth;
+    /** Greatest number of positions in progress at once. */
+    private final int _window;
+}
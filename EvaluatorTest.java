@@ -0,0 +1,54 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of Evaluator.
+ *  @author Hanqi Xiong
+ */
+public class EvaluatorTest {
+
+    /** Number of positions in testOrder: several times the window. */
+    private static final int POSITIONS = 300;
+
+    /** Opening moves used to vary the positions. */
+    private static final String[] MOVES = { "a7-a6", "g7-g6", "g1-g2" };
+
+    @Test
+    public void testOrder() throws IOException {
+        Board board = new Board();
+        StringBuilder input = new StringBuilder("# comment\n\n");
+        String[] positions = new String[POSITIONS];
+        for (int i = 0; i < POSITIONS; i += 1) {
+            board.clear();
+            board.setBlock((char) ('c' + i % 2), '3');
+            for (int k = 0; k < i % 4; k += 1) {
+                board.makeMove(Move.move(MOVES[k]));
+            }
+            positions[i] = board.position();
+            input.append(positions[i]).append('\n');
+        }
+        input.append("rrr b\n");
+        StringWriter output = new StringWriter();
+        long count = new Evaluator(3, 1).evaluate(
+            new BufferedReader(new StringReader(input.toString())), output);
+        assertEquals(POSITIONS + 1, count);
+        String[] lines = output.toString().split("\n");
+        assertEquals(POSITIONS + 1, lines.length);
+        for (int i = 0; i < POSITIONS; i += 1) {
+            assertTrue(lines[i], lines[i].startsWith(positions[i] + " "));
+            assertEquals(lines[i], 3 + 2, lines[i].split(" ").length);
+        }
+        assertEquals("rrr b error", lines[POSITIONS]);
+    }
+
+}
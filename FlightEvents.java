@@ -0,0 +1,131 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+
+/** Java Flight Recorder events for profiling searches, board updates,
+ *  command execution, and input.  Events are created only while
+ *  recording is on (see start()), so that when it is off, each
+ *  instrumented operation costs one test of a flag.
+ *  @author Hanqi Xiong
+ */
+class FlightEvents {
+
+    /** File to which recordings are written. */
+    static final String RECORDING_FILE = "ataxx.jfr";
+
+    /** Board events are recorded for one in this many board operations;
+     *  a power of 2. */
+    static final int BOARD_SAMPLE_INTERVAL = 64;
+
+    /** An AI's search for a move. */
+    @Name("ataxx.Search")
+    @Label("AI Search")
+    @Category("Ataxx")
+    static class Search extends Event {
+        /** Depth of the last completed iteration. */
+        @Label("Depth")
+        int depth;
+        /** Nodes visited. */
+        @Label("Nodes")
+        long nodes;
+        /** Value of the chosen move (positive favors red). */
+        @Label("Score")
+        int score;
+        /** The chosen move. */
+        @Label("Move")
+        String move;
+    }
+
+    /** A move made or undone on a Board (sampled). */
+    @Name("ataxx.BoardChange")
+    @Label("Board Change")
+    @Category("Ataxx")
+    static class BoardChange extends Event {
+        /** "make" or "undo". */
+        @Label("Operation")
+        String operation;
+        /** Number of moves made before the operation. */
+        @Label("Ply")
+        int ply;
+    }
+
+    /** Execution of a command by a Game. */
+    @Name("ataxx.Command")
+    @Label("Command")
+    @Category("Ataxx")
+    static class CommandExecuted extends Event {
+        /** The type of command. */
+        @Label("Type")
+        String type;
+        /** The command as entered. */
+        @Label("Text")
+        String text;
+    }
+
+    /** Time spent waiting for a line of input. */
+    @Name("ataxx.InputWait")
+    @Label("Input Wait")
+    @Category("Ataxx")
+    static class InputWait extends Event {
+    }
+
+    /** Return true iff events are being recorded. */
+    static boolean enabled() {
+        return _enabled;
+    }
+
+    /** Return true iff the board operation whose (running) count is
+     *  COUNT should be recorded. */
+    static boolean sampleBoard(int count) {
+        return _enabled && (count & (BOARD_SAMPLE_INTERVAL - 1)) == 0;
+    }
+
+    /** Start recording my events, if not already doing so. */
+    static synchronized void start() {
+        if (_recording != null) {
+            return;
+        }
+        _recording = new Recording();
+        _recording.enable(Search.class);
+        _recording.enable(BoardChange.class);
+        _recording.enable(CommandExecuted.class);
+        _recording.enable(InputWait.class);
+        _recording.setToDisk(true);
+        _recording.start();
+        _enabled = true;
+    }
+
+    /** Stop recording, if doing so, and write what has been recorded to
+     *  RECORDING_FILE. */
+    static synchronized void stop() {
+        if (_recording == null) {
+            return;
+        }
+        _enabled = false;
+        try {
+            _recording.stop();
+            _recording.dump(Paths.get(RECORDING_FILE));
+        } catch (IOException excp) {
+            System.err.printf("Could not write %s%n", RECORDING_FILE);
+        } finally {
+            _recording.close();
+            _recording = null;
+        }
+    }
+
+    /** True iff events are being recorded. */
+    private static volatile boolean _enabled;
+    /** The current recording, or null. */
+    private static Recording _recording;
+}
@@ -7,7 +7,9 @@ package ataxx;
 import ucb.gui2.TopLevel;
 import ucb.gui2.LayoutSpec;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import java.io.InputStream;
 import java.io.BufferedReader;
@@ -20,7 +22,8 @@ import static ataxx.Utils.*;
 /** The GUI for the Ataxx game.
  *  @author Hanqi Xiong
  */
-class GUI extends TopLevel implements View, CommandSource, Reporter {
+class GUI extends TopLevel
+    implements View, BoardListener, AsyncCommandSource, Reporter {
 
     /* The implementation strategy applied here is to make it as
      * unnecessary as possible for the rest of the program to know that it
@@ -29,7 +32,8 @@ class GUI extends TopLevel implements View, CommandSource, Reporter {
      * To this end, we first have made Board observable, so that the
      * GUI gets notified of changes to a Game's board and can interrogate
      * it as needed, while the Game and Board themselves need not be aware
-     * that it is being watched.
+     * that it is being watched.  As a BoardListener, the GUI is told which
+     * squares each change affected, and redraws only those.
      *
      * Second, instead of creating a new API by which the GUI communicates
      * with a Game, we instead simply arrange to make the GUI's input look
@@ -42,10 +46,16 @@ class GUI extends TopLevel implements View, CommandSource, Reporter {
      * Manual player can handle all commands and moves from the GUI.
      *
      * See also Main.java for how this might get set up.
+     *
+     * Commands are delivered asynchronously (see AsyncCommandSource), so
+     * that the Game can wait for them while an AI searches, and a command
+     * such as Quit or New overrides the search as soon as it is given.
      */
 
     /** Minimum size of board in pixels. */
     private static final int MIN_SIZE = 300;
+    /** Greatest number of commands held for the Game. */
+    private static final int MAX_QUEUED = 5;
 
     /** A new GUI with TITLE as its window title. */
     GUI(String title) {
@@ -66,7 +76,7 @@ class GUI extends TopLevel implements View, CommandSource, Reporter {
         addMenuRadioButton("Options->Players->Blue Manual", "Blue",
                            false, (dummy) -> send("manual blue"));
         addMenuButton("Info->Help", this::doHelp);
-        _widget = new BoardWidget(_commandQueue);
+        _widget = new BoardWidget((cmnd) -> send("%s", cmnd));
         add(_widget,
             new LayoutSpec("height", "1",
                            "width", "REMAINDER",
@@ -111,7 +121,9 @@ class GUI extends TopLevel implements View, CommandSource, Reporter {
 
     /** Execute 'pass' command, if legal. */
     private synchronized void doPass(String unused) {
-        if (_board.legalMove(Move.pass())) {
+        BoardSnapshot position = _board.published();
+        if (position != null && position.winner() == null
+            && position.legalMove(Move.pass())) {
             send("-");
         }
     }
@@ -155,6 +167,24 @@ class GUI extends TopLevel implements View, CommandSource, Reporter {
     public void announceMove(Move move, PieceColor player) {
     }
 
+    @Override
+    public void announceAnalysis(SearchInfo info) {
+        setLabel("State", fmt("%s: %s (%d)",
+                              _board.published().whoseMove(),
+                              info.move(), info.score()));
+    }
+
+    @Override
+    public void announceProgress(PieceColor player, int depth, long nodes) {
+        setLabel("State", fmt("%s thinking: depth %d, %,d nodes",
+                              player, depth, nodes));
+    }
+
+    @Override
+    public void announceBanner(String banner) {
+        System.out.println(banner);
+    }
+
     @Override
     public void msg(String format, Object... args) {
         showMessage(String.format(format, args), "Message", "information");
@@ -169,13 +199,26 @@ class GUI extends TopLevel implements View, CommandSource, Reporter {
         _widget.update(board);
     }
 
+    @Override
+    public void boardChanged(Board board, List<BoardChange> changes) {
+        _board = board;
+        _widget.boardChanged(board, changes);
+        updateLabel();
+    }
+
     @Override
     public String getCommand(String ignored) {
-        try {
-            return _commandQueue.take();
-        } catch (InterruptedException excp) {
-            throw new Error("unexpected interrupt");
+        return nextCommand().join();
+    }
+
+    @Override
+    public synchronized CompletableFuture<String> nextCommand() {
+        if (_pending == null || _pending.isDone()) {
+            String cmnd = _commandQueue.poll();
+            _pending = cmnd == null ? new CompletableFuture<>()
+                : CompletableFuture.completedFuture(cmnd);
         }
+        return _pending;
     }
 
     /** Return true iff we are currently in block-setting mode. */
@@ -211,17 +254,26 @@ class GUI extends TopLevel implements View, CommandSource, Reporter {
         setLabel("State", label);
     }
 
-    /** Add the command described by FORMAT, ARGS (as for String.format) to
-     *  the queue of waiting commands returned by getCommand. */
-    private void send(String format, Object... args) {
-        _commandQueue.offer(fmt(format, args));
+    /** Deliver the command described by FORMAT, ARGS (as for
+     *  String.format) to the Game waiting for it, or, if it is not
+     *  waiting, add it to the queue of commands returned by
+     *  nextCommand.  Commands beyond MAX_QUEUED are dropped. */
+    private synchronized void send(String format, Object... args) {
+        String cmnd = fmt(format, args);
+        if (_pending != null && !_pending.isDone()) {
+            _pending.complete(cmnd);
+        } else if (_commandQueue.size() < MAX_QUEUED) {
+            _commandQueue.add(cmnd);
+        }
     }
 
     /** Contains the drawing logic for the Ataxx model. */
     private BoardWidget _widget;
-    /** Queue for commands going to the controlling Game. */
-    private final ArrayBlockingQueue<String> _commandQueue =
-        new ArrayBlockingQueue<>(5);
+    /** Queue for commands going to the controlling Game that it is not
+     *  yet waiting for. */
+    private final ArrayDeque<String> _commandQueue = new ArrayDeque<>();
+    /** The future last returned by nextCommand. */
+    private CompletableFuture<String> _pending;
     /** The model of the game. */
     private Board _board;
 }
@@ -4,6 +4,19 @@
 
 package ataxx;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
 import static ataxx.PieceColor.*;
 import static ataxx.GameException.error;
 import static ataxx.Utils.*;
@@ -16,6 +29,9 @@ class Game {
     /** Name of resource containing help message. */
     private static final String HELP = "ataxx/Help.txt";
 
+    /** Version of the format written by snapshot(). */
+    private static final int SNAPSHOT_VERSION = 5;
+
     /** A new Game that takes command/move input from INP, logs
      *  commands if LOGGING, displays the board using VIEW, and uses REPORTER
      *  for messages to the user and error messages. SEED is intended to
@@ -29,7 +45,13 @@ class Game {
         _seed = (long) (Math.random() * Long.MAX_VALUE);
 
         _board = new Board();
-        _board.setNotifier((b) -> _view.update(b));
+        _board.setPublishing(true);
+        if (_view instanceof BoardListener) {
+            _board.addListener((BoardListener) _view);
+            _view.update(_board);
+        } else {
+            _board.setNotifier((b) -> _view.update(b));
+        }
     }
 
     /** Returns the game board.  This board is not intended to be modified
@@ -38,6 +60,36 @@ class Game {
         return _board;
     }
 
+    /** Return the control used to limit and cancel AI searches in this
+     *  game. */
+    SearchControl searchControl() {
+        return _searchControl;
+    }
+
+    /** Return the executor on which AIs in this game run their searches,
+     *  or null if they search on the thread that calls play(). */
+    ExecutorService searchExecutor() {
+        return _searchExecutor;
+    }
+
+    /** Have AIs in this game run their searches on EXECUTOR (or on the
+     *  thread that calls play(), if null).  Several games may share one
+     *  executor, which then limits the number of concurrent searches. */
+    void setSearchExecutor(ExecutorService executor) {
+        _searchExecutor = executor;
+    }
+
+    /** Abort any AI search in progress, and arrange that the next
+     *  command comes from my command source rather than from an AI, so
+     *  that a command queued by the user (such as "quit" or "new") takes
+     *  effect immediately.  An aborted AI still makes the best move it
+     *  has found so far.  May be called from any thread. */
+    void interrupt() {
+        _interrupted = true;
+        _searchControl.stop();
+        _analysisControl.stop();
+    }
+
     /** Return true iff the current game is not over. */
     boolean gameInProgress() {
         return _board.getWinner() == null;
@@ -49,8 +101,9 @@ class Game {
     int play() {
         boolean winnerAnnounced;
 
-        System.out.println("Welcome to " + Defaults.VERSION);
+        _reporter.announceBanner("Welcome to " + Defaults.VERSION);
         _board.clear();
+        _line.reset(_board);
         setManual(RED);
         setAuto(BLUE);
         _exit = -1;
@@ -60,18 +113,30 @@ class Game {
             if (_board.getWinner() == null) {
                 winnerAnnounced = false;
                 try {
-                    executeCommand(getPlayer(_board.whoseMove()).getMove());
+                    Player player = getPlayer(_board.whoseMove());
+                    if (_interrupted && player.isAuto()) {
+                        executeCommand(getCommand(prompt()));
+                    } else if (player.isAuto()
+                               && _inp instanceof AsyncCommandSource) {
+                        executeCommand(autoMove((AI) player,
+                                                (AsyncCommandSource) _inp));
+                    } else {
+                        executeCommand(player.getMove());
+                    }
                 } catch (GameException e) {
                     reportError(e.getMessage());
                 }
             } else if (!gameInProgress()) {
                 if (!winnerAnnounced) {
+                    endRecord(_board.getWinner());
+                    checkpoint();
                     _reporter.announceWin(_board.getWinner());
                     winnerAnnounced = true;
                 }
                 executeCommand(getCommand("-> "));
             }
         }
+        stopRecording();
         return _exit;
     }
 
@@ -84,10 +149,53 @@ class Game {
         }
     }
 
+    /** Return the next command for a turn of AI, which is to move, while
+     *  also accepting commands from SOURCE.  The AI searches on a
+     *  dedicated executor, and whichever of its move and the next
+     *  command from SOURCE is ready first is returned.  If the command
+     *  wins, the search is stopped and its result discarded, so that
+     *  commands such as "quit" or "new" take effect at once. */
+    private String autoMove(AI ai, AsyncCommandSource source) {
+        CompletableFuture<String> command = source.nextCommand();
+        if (!command.isDone()) {
+            _searchControl.clear();
+            CompletableFuture<Move> search =
+                ai.searchAsync(asyncSearchExecutor());
+            CompletableFuture.anyOf(search, command).join();
+            if (!command.isDone()) {
+                Move move = search.join();
+                reportMove(move, ai.myColor());
+                return move.toString();
+            }
+            _searchControl.stop();
+            search.handle((move, excp) -> move).join();
+            _searchControl.clear();
+        }
+        return command.join();
+    }
+
+    /** Return the executor used for AI searches that run while commands
+     *  are being accepted: my search executor, if any, and otherwise a
+     *  single daemon thread created when first needed. */
+    private ExecutorService asyncSearchExecutor() {
+        if (_searchExecutor == null) {
+            _searchExecutor = Executors.newSingleThreadExecutor((task) -> {
+                Thread thread = new Thread(task, "ataxx-search");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return _searchExecutor;
+    }
+
     /** Return a command from the current source, using PROMPT as a
      *  prompt, if needed. */
     String getCommand(String prompt) {
         String cmnd = _inp.getCommand(prompt);
+        if (_interrupted) {
+            _interrupted = false;
+            _searchControl.clear();
+        }
         if (cmnd == null) {
             return "quit";
         } else {
@@ -99,7 +207,18 @@ class Game {
     void makeMove(String moveStr) {
         Move move = Move.move(moveStr);
         if (_board.legalMove(move)) {
+            if (_recorder != null && _board.numMoves() == 0) {
+                _recorder.startGame(_board, _seed);
+            }
+            _line.add(_board, move.code());
             _board.makeMove(move);
+            if (_recorder != null) {
+                _recorder.move(move);
+            }
+            if (_checkpointInterval > 0
+                && _board.numMoves() % _checkpointInterval == 0) {
+                checkpoint();
+            }
         } else {
             throw error("illegal move");
         }
@@ -114,29 +233,263 @@ class Game {
         if (_board.numMoves() > 0) {
             throw error("block-setting must precede first move.");
         }
-        if (!place.matches("[a-i][1-9]")) {
-            throw error("invalid square designation");
+        _board.setBlock(place);
+        _line.reset(_board);
+    }
+
+    /** Set up a new game on a board with SIDE squares on a side. */
+    void size(int side) {
+        if (_board.numMoves() > 0) {
+            throw error("size-setting must precede first move.");
         }
-        _board.setBlock(place.charAt(0), place.charAt(1));
+        Geometry.of(side);
+        endRecord(null);
+        _board.clear(side);
+        _line.reset(_board);
+    }
+
+    /** Set the board to the position POS, given in the one-line notation
+     *  described in Board. */
+    void load(String pos) {
+        endRecord(null);
+        _board.setPosition(pos);
+        _line.reset(_board);
     }
 
     /** Undo the last move, and also the previous one, if that player is
-     *  automatic. */
+     *  automatic.  The moves undone remain in the line of play, so that
+     *  forward() can make them again. */
     void undo() {
-        if (_board.numMoves() > 0) {
-            _board.undo();
-            if (_board.numMoves() > 0
-                && getPlayer(_board.whoseMove()).isAuto()) {
-                _board.undo();
+        int ply = _board.numMoves();
+        if (ply > _line.start()) {
+            ply -= 1;
+            if (ply > _line.start()
+                && getPlayer(_board.whoseMove().opposite()).isAuto()) {
+                ply -= 1;
+            }
+            goTo(ply);
+        }
+    }
+
+    /** Move to ply PLY of the current line of play: the moves made since
+     *  the game started, or since its position was last set, including
+     *  any taken back by undo, back, or goto.  Throws a GameException if
+     *  there is no such ply. */
+    void goTo(int ply) {
+        int current = _board.numMoves();
+        _board.beginChanges();
+        try {
+            _line.moveTo(_board, ply);
+        } finally {
+            _board.endChanges();
+        }
+        if (_recorder != null) {
+            _recorder.truncate(ply);
+            for (int k = current; k < ply; k += 1) {
+                _recorder.move(Move.unpack(_line.move(k)));
+            }
+        }
+    }
+
+    /** Move back N plies in the current line of play, or to its start if
+     *  there are fewer. */
+    void back(int n) {
+        goTo(Math.max(_line.start(), _board.numMoves() - n));
+    }
+
+    /** Move forward N plies in the current line of play, or to its end if
+     *  there are fewer. */
+    void forward(int n) {
+        goTo(Math.min(_line.length(), _board.numMoves() + n));
+    }
+
+    /** Record games in binary form (see GameRecord) in the file named
+     *  FILE, starting with the next game begun, and stopping any previous
+     *  recording. */
+    void record(String file) {
+        stopRecording();
+        try {
+            _recorder = new GameRecordWriter(new FileOutputStream(file));
+        } catch (IOException excp) {
+            throw error("cannot record to %s", file);
+        }
+    }
+
+    /** Write the game being recorded, if any, giving WINNER as its
+     *  result (null if unfinished). */
+    private void endRecord(PieceColor winner) {
+        if (_recorder != null) {
+            try {
+                _recorder.endGame(winner);
+            } catch (IOException excp) {
+                _recorder = null;
+                reportError("could not write game record: %s",
+                            excp.getMessage());
             }
         }
     }
 
+    /** Write any game being recorded and stop recording. */
+    private void stopRecording() {
+        if (_recorder != null) {
+            try {
+                _recorder.close();
+            } catch (IOException excp) {
+                reportError("could not write game record: %s",
+                            excp.getMessage());
+            }
+            _recorder = null;
+        }
+    }
+
+    /** Return a snapshot of my state: my board, including its move and
+     *  undo history, which players are automatic and the seed of each
+     *  that is, my seed, and whether I am verbose.  It is intended for
+     *  restore(), possibly in another Game, and is typically a few
+     *  hundred bytes. */
+    byte[] snapshot() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(SNAPSHOT_VERSION);
+            out.writeLong(_seed);
+            int flags = _verbose ? 1 : 0;
+            for (PieceColor color : new PieceColor[] { RED, BLUE }) {
+                Player player = getPlayer(color);
+                flags = 2 * flags + (player != null && player.isAuto() ? 1 : 0);
+            }
+            out.writeByte(flags);
+            for (PieceColor color : new PieceColor[] { RED, BLUE }) {
+                Player player = getPlayer(color);
+                if (player != null && player.isAuto()) {
+                    out.writeLong(((AI) player).seed());
+                }
+            }
+            _board.writeState(out);
+        } catch (IOException excp) {
+            throw new Error("Internal failure: " + excp);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Restore the state saved in SNAPSHOT by snapshot().  The board is
+     *  set directly, without replaying moves.  Automatic players become
+     *  new AIs with the seeds recorded for them.  The contents of the
+     *  AIs' search tables are not saved: a restored AI starts with empty
+     *  tables of its own or, when it searches on a shared pool (as under
+     *  --serve), with those of the pool's thread, which other sessions
+     *  also fill.  So the moves it then chooses may differ from those
+     *  the original AI would have chosen, although with searches limited
+     *  only by depth they usually do not.  Throws a GameException,
+     *  leaving me unchanged, if SNAPSHOT is invalid. */
+    void restore(byte[] snapshot) {
+        try {
+            readSnapshot(snapshot, false);
+            endRecord(null);
+            readSnapshot(snapshot, true);
+        } catch (EOFException excp) {
+            throw error("invalid snapshot: truncated");
+        } catch (IOException excp) {
+            throw error("invalid snapshot: %s", excp.getMessage());
+        }
+    }
+
+    /** Read SNAPSHOT, throwing IOException if it is invalid.  Sets my
+     *  state accordingly iff APPLY. */
+    private void readSnapshot(byte[] snapshot, boolean apply)
+        throws IOException {
+        DataInputStream in =
+            new DataInputStream(new ByteArrayInputStream(snapshot));
+        if (in.readUnsignedByte() != SNAPSHOT_VERSION) {
+            throw new IOException("unknown version");
+        }
+        long seed = in.readLong();
+        int flags = in.readUnsignedByte();
+        long redSeed = (flags & 2) != 0 ? in.readLong() : 0,
+            blueSeed = (flags & 1) != 0 ? in.readLong() : 0;
+        (apply ? _board : new Board()).readState(in);
+        if (in.available() > 0) {
+            throw new IOException("extra data");
+        }
+        if (apply) {
+            _board.beginChanges();
+            try {
+                _line.reset(_board);
+            } finally {
+                _board.endChanges();
+            }
+            _seed = seed;
+            _verbose = (flags & 4) != 0;
+            setPlayer(RED, (flags & 2) != 0 ? new AI(this, RED, redSeed)
+                      : new Manual(this, RED));
+            setPlayer(BLUE, (flags & 1) != 0 ? new AI(this, BLUE, blueSeed)
+                      : new Manual(this, BLUE));
+        }
+    }
+
+    /** Arrange that after every INTERVAL moves, and at the end of each
+     *  game, a snapshot() is taken and passed to SINK, running on
+     *  EXECUTOR, so that slow storage does not delay play.  An INTERVAL
+     *  of 0 turns this off. */
+    void setCheckpoints(int interval, Executor executor,
+                        Consumer<byte[]> sink) {
+        _checkpointInterval = interval;
+        _checkpointExecutor = executor;
+        _checkpointSink = sink;
+    }
+
+    /** Take a snapshot and pass it to the checkpoint sink, if
+     *  checkpoints are on. */
+    private void checkpoint() {
+        if (_checkpointInterval > 0) {
+            byte[] snapshot = snapshot();
+            Consumer<byte[]> sink = _checkpointSink;
+            _checkpointExecutor.execute(() -> sink.accept(snapshot));
+        }
+    }
+
+    /** Report scores and principal variations for the best COUNT moves
+     *  (all moves, if null) of the side to move.  LIMIT is null (search
+     *  to the default depth), a depth ("N"), or a total time to spend
+     *  ("Ns" or "Nms").  Each line is reported as soon as it is found.
+     *  The analysis runs on my search executor, if I have one. */
+    void analyze(String limit, String count) {
+        if (!gameInProgress() || !_board.canMove(_board.whoseMove())) {
+            throw error("no moves to analyze");
+        }
+        int depth = Defaults.ANALYSIS_DEPTH;
+        long millis = 0;
+        if (limit != null) {
+            if (limit.endsWith("ms")) {
+                millis = toLong(limit.substring(0, limit.length() - 2));
+                depth = Defaults.MAX_ANALYSIS_DEPTH;
+            } else if (limit.endsWith("s")) {
+                millis = 1000 * toLong(limit.substring(0, limit.length() - 1));
+                depth = Defaults.MAX_ANALYSIS_DEPTH;
+            } else {
+                depth = toInt(limit);
+            }
+        }
+        if (_analyst == null) {
+            _analyst = new AI(this, _board.whoseMove(), _seed,
+                              _analysisControl);
+        }
+        _analysisControl.clear();
+        _analyst.analyze(_board, depth, millis,
+                         count == null ? Integer.MAX_VALUE : toInt(count),
+                         _reporter, _searchExecutor);
+    }
+
     /** Report the move MOVE by PLAYER. */
     void reportMove(Move move, PieceColor player) {
         _reporter.announceMove(move, player);
     }
 
+    /** Report that PLAYER's search has reached depth DEPTH after NODES
+     *  nodes. */
+    void reportProgress(PieceColor player, int depth, long nodes) {
+        _reporter.announceProgress(player, depth, nodes);
+    }
+
     /** Send a message to the user as determined by FORMAT and ARGS, which
      *  are interpreted as for String.format or PrintWriter.printf. */
     void message(String format, Object... args) {
@@ -172,7 +525,9 @@ class Game {
 
     /** Clear the board to its initial state. */
     void clear() {
+        endRecord(null);
         _board.clear();
+        _line.reset(_board);
     }
 
     /** Print the current board using standard board-dump format. */
@@ -187,7 +542,7 @@ class Game {
 
     /** Print a help message. */
     private void help() {
-        printHelpResource(HELP, System.out);
+        _reporter.msg("%s", helpResource(HELP));
     }
 
     /** Seed the random-number generator with SEED. */
@@ -197,6 +552,24 @@ class Game {
 
     /** Execute command CMNDSTR.  Throws GameException on errors. */
     private void executeCommand(String cmndStr) {
+        if (!FlightEvents.enabled()) {
+            doCommand(cmndStr);
+            return;
+        }
+        FlightEvents.CommandExecuted event =
+            new FlightEvents.CommandExecuted();
+        event.begin();
+        event.text = cmndStr;
+        try {
+            event.type = doCommand(cmndStr).toString();
+        } finally {
+            event.commit();
+        }
+    }
+
+    /** Execute command CMNDSTR, returning its type.  Throws
+     *  GameException on errors. */
+    private Command.Type doCommand(String cmndStr) {
         Command cmnd = Command.parseCommand(cmndStr);
         String[] parts = cmnd.operands();
         log(cmndStr);
@@ -207,6 +580,9 @@ class Game {
             case AUTO:
                 setAuto(parseColor(parts[0]));
                 break;
+            case ANALYZE:
+                analyze(parts[0], parts[1]);
+                break;
             case BOARD:
                 printBoard();
                 break;
@@ -228,18 +604,43 @@ class Game {
             case QUIT:
                 _exit = 0;
                 break;
+            case JFR:
+                if (parts[0].equals("on")) {
+                    FlightEvents.start();
+                } else {
+                    FlightEvents.stop();
+                }
+                break;
             case SEED:
                 setSeed(toLong(parts[0]));
                 break;
+            case SIZE:
+                size(toInt(parts[0]));
+                break;
             case VERBOSE:
                 _verbose = true;
                 break;
             case UNDO:
                 undo();
                 break;
+            case GOTO:
+                goTo(toInt(parts[0]));
+                break;
+            case BACK:
+                back(parts[0] == null ? 1 : toInt(parts[0]));
+                break;
+            case FORWARD:
+                forward(parts[0] == null ? 1 : toInt(parts[0]));
+                break;
             case BLOCK:
                 block(parts[0]);
                 break;
+            case LOAD:
+                load(parts[0]);
+                break;
+            case RECORD:
+                record(parts[0]);
+                break;
             case PIECEMOVE:
                 makeMove(parts[0]);
                 break;
@@ -255,6 +656,7 @@ class Game {
         } catch (GameException excp) {
             reportError(excp.getMessage());
         }
+        return cmnd.commandType();
     }
 
     /** Print a message on the logging stream, if any, appending a newline.
@@ -262,7 +664,7 @@ class Game {
      *  String.format. */
     private void log(String format, Object... args) {
         if (_logging) {
-            System.out.printf(format + "%n", args);
+            _reporter.log(format, args);
         }
     }
 
@@ -282,10 +684,20 @@ class Game {
 
     /** The board on which I record all moves. */
     private final Board _board;
+    /** The current line of play on _board. */
+    private final MoveHistory _line = new MoveHistory();
     /** Displayer of boards. */
     private View _view;
     /** True iff we are logging commands. */
     private boolean _logging;
+    /** Number of moves between checkpoints, or 0 for none. */
+    private int _checkpointInterval;
+    /** Runs checkpoint writes. */
+    private Executor _checkpointExecutor;
+    /** Receives checkpoint snapshots. */
+    private Consumer<byte[]> _checkpointSink;
+    /** Writer of game records, or null if not recording. */
+    private GameRecordWriter _recorder;
 
     /** True iff we should print the board after each move. */
     private boolean _verbose;
@@ -295,6 +707,19 @@ class Game {
      */
     private long _seed;
 
+    /** Executor for AI searches, or null. */
+    private ExecutorService _searchExecutor;
+    /** Limits and cancellation for AI searches. */
+    private final SearchControl _searchControl = new SearchControl();
+    /** Limits and cancellation for analysis searches. */
+    private final SearchControl _analysisControl = new SearchControl();
+    /** AI used for the analyze command, created when first needed, and
+     *  kept so that its search results are reused. */
+    private AI _analyst;
+    /** True iff interrupt() has been called since the last command was
+     *  read from _inp. */
+    private volatile boolean _interrupted;
+
     /** When set to a non-negative value, indicates that play should terminate
      *  at the earliest possible point, returning _exit.  When negative,
      *  indicates that the session is not over. */
@@ -0,0 +1,96 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import static ataxx.Board.DEFAULT_SIDE;
+
+/** The binary format of game records, as written by GameRecordWriter and
+ *  read by GameRecordReader.  A file of records starts with the four
+ *  bytes of MAGIC, followed by any number of games.  Each game is
+ *
+ *      GAME_TAG
+ *      The seed in effect when the game started, as 8 bytes, most
+ *          significant first.
+ *      Either a count, N, of blocked squares followed by N squares, or
+ *          LOADED followed by the starting position in the
+ *          Board.ENCODED_SIZE-byte encoding of Board.encode.  Only
+ *          blocked squares in the lower-left quadrant are listed (their
+ *          reflections are implied).
+ *      The moves, in order.
+ *      One of RED_WINS, BLUE_WINS, DRAW, or UNFINISHED.
+ *
+ *  A square is one byte: 7 * row + column, counting from 0 at a1.  An
+ *  extend is just its target square, since it makes no difference which
+ *  adjacent piece is copied.  A jump is JUMP plus its target square,
+ *  followed by a byte giving the offset of its source from its target,
+ *  as an index into JUMP_OFFSETS.  A pass is PASS.  So most moves take
+ *  one byte, and none take more than two.  Only games on boards of the
+ *  standard size (Board.DEFAULT_SIDE) are recorded.
+ *  @author Hanqi Xiong
+ */
+class GameRecord {
+
+    /** First bytes of a file of game records. */
+    static final byte[] MAGIC = { 'A', 'T', 'X', 1 };
+
+    /** Number of squares. */
+    static final int SQUARES = DEFAULT_SIDE * DEFAULT_SIDE;
+
+    /** Marks the start of a game. */
+    static final int GAME_TAG = 0xA7;
+    /** Marks a game that starts from a loaded position. */
+    static final int LOADED = 0xFF;
+
+    /** Added to the target square of a jump. */
+    static final int JUMP = SQUARES;
+    /** A pass. */
+    static final int PASS = 0xF0;
+    /** Results that end a game. */
+    static final int RED_WINS = 0xF1, BLUE_WINS = 0xF2, DRAW = 0xF3,
+        UNFINISHED = 0xF4;
+
+    /** Column and row offsets from the target of a jump to its source. */
+    static final int[][] JUMP_OFFSETS = {
+        { -2, -2 }, { -1, -2 }, { 0, -2 }, { 1, -2 }, { 2, -2 },
+        { -2, -1 }, { 2, -1 }, { -2, 0 }, { 2, 0 }, { -2, 1 }, { 2, 1 },
+        { -2, 2 }, { -1, 2 }, { 0, 2 }, { 1, 2 }, { 2, 2 },
+    };
+
+    /** Return the result code for a game won by WINNER (RED, BLUE, EMPTY
+     *  for a draw, or null if unfinished). */
+    static int result(PieceColor winner) {
+        return winner == null ? UNFINISHED
+            : winner == PieceColor.RED ? RED_WINS
+            : winner == PieceColor.BLUE ? BLUE_WINS : DRAW;
+    }
+
+    /** Return the square number of column C and row R. */
+    static int square(char c, char r) {
+        return (r - '1') * DEFAULT_SIDE + (c - 'a');
+    }
+
+    /** Return the column of square number SQ. */
+    static char col(int sq) {
+        return (char) ('a' + sq % DEFAULT_SIDE);
+    }
+
+    /** Return the row of square number SQ. */
+    static char row(int sq) {
+        return (char) ('1' + sq / DEFAULT_SIDE);
+    }
+
+    /** Return the index in JUMP_OFFSETS of the offset of the source of
+     *  JUMP from its target. */
+    static int jumpOffset(Move jump) {
+        int dc = jump.col0() - jump.col1(), dr = jump.row0() - jump.row1();
+        for (int k = 0; k < JUMP_OFFSETS.length; k += 1) {
+            if (JUMP_OFFSETS[k][0] == dc && JUMP_OFFSETS[k][1] == dr) {
+                return k;
+            }
+        }
+        throw new IllegalArgumentException("not a jump: " + jump);
+    }
+
+}
@@ -0,0 +1,219 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static ataxx.GameRecord.*;
+import static ataxx.PieceColor.*;
+
+/** Reads games written in the binary format described in GameRecord,
+ *  replaying them directly onto a Board.  Typical use:
+ *
+ *      while (reader.startGame(board)) {
+ *          for (Move m = reader.nextMove(board); m != null;
+ *               m = reader.nextMove(board)) {
+ *              board.makeMove(m);
+ *              ...
+ *          }
+ *      }
+ *
+ *  or simply readGame(board) to replay each game to its end.
+ *  @author Hanqi Xiong
+ */
+class GameRecordReader implements Closeable {
+
+    /** A reader of game records from IN. */
+    GameRecordReader(InputStream in) throws IOException {
+        _in = new BufferedInputStream(in, GameRecordWriter.BUFFER_SIZE);
+        for (byte b : MAGIC) {
+            if (readByte() != (b & 0xff)) {
+                throw new IOException("not a file of game records");
+            }
+        }
+    }
+
+    /** Read the start of the next game, setting BOARD to its starting
+     *  position.  Any moves of the previous game not yet read are
+     *  skipped.  Returns false if there are no more games. */
+    boolean startGame(Board board) throws IOException {
+        skipMoves();
+        int tag = _in.read();
+        if (tag == -1) {
+            return false;
+        } else if (tag != GAME_TAG) {
+            throw malformed();
+        }
+        _seed = 0;
+        for (int i = 0; i < 8; i += 1) {
+            _seed = (_seed << 8) | readByte();
+        }
+        board.clear(Board.DEFAULT_SIDE);
+        int blocks = readByte();
+        if (blocks == LOADED) {
+            for (int i = 0; i < _position.length; i += 1) {
+                _position[i] = (byte) readByte();
+            }
+            board.decode(_position, 0);
+        } else {
+            for (int i = 0; i < blocks; i += 1) {
+                int sq = readSquare();
+                board.setBlock(col(sq), row(sq));
+            }
+        }
+        _inGame = true;
+        _winner = null;
+        _finished = false;
+        return true;
+    }
+
+    /** Return the next move of the current game, which is to be made on
+     *  BOARD (which must hold the position reached so far), or null at
+     *  the end of the game. */
+    Move nextMove(Board board) throws IOException {
+        if (!_inGame) {
+            return null;
+        }
+        int code = readByte();
+        if (code < JUMP) {
+            return extend(board, col(code), row(code));
+        } else if (code < JUMP + SQUARES) {
+            int sq = code - JUMP;
+            int offset = readByte();
+            if (offset >= JUMP_OFFSETS.length) {
+                throw malformed();
+            }
+            return Move.move((char) (col(sq) + JUMP_OFFSETS[offset][0]),
+                             (char) (row(sq) + JUMP_OFFSETS[offset][1]),
+                             col(sq), row(sq));
+        } else if (code == PASS) {
+            return Move.pass();
+        }
+        _inGame = false;
+        switch (code) {
+        case RED_WINS:
+            _winner = RED;
+            break;
+        case BLUE_WINS:
+            _winner = BLUE;
+            break;
+        case DRAW:
+            _winner = EMPTY;
+            break;
+        case UNFINISHED:
+            break;
+        default:
+            throw malformed();
+        }
+        _finished = code != UNFINISHED;
+        return null;
+    }
+
+    /** Read the next game, replaying all its moves on BOARD.  Returns
+     *  false if there are no more games. */
+    boolean readGame(Board board) throws IOException {
+        if (!startGame(board)) {
+            return false;
+        }
+        for (Move move = nextMove(board); move != null;
+             move = nextMove(board)) {
+            if (!board.legalMove(move)) {
+                throw new IOException("illegal move in game record: "
+                                      + move);
+            }
+            board.makeMove(move);
+        }
+        return true;
+    }
+
+    /** Return the seed recorded for the current game. */
+    long seed() {
+        return _seed;
+    }
+
+    /** Return true iff the current game has been read to its end, and
+     *  was recorded as finished. */
+    boolean finished() {
+        return _finished;
+    }
+
+    /** Return the recorded winner of the current game (RED, BLUE, or
+     *  EMPTY for a draw), once read to its end, or null if it has not
+     *  been or was unfinished. */
+    PieceColor winner() {
+        return _winner;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _in.close();
+    }
+
+    /** Skip the unread moves of the current game, if any. */
+    private void skipMoves() throws IOException {
+        while (_inGame) {
+            int code = readByte();
+            if (code >= JUMP && code < JUMP + SQUARES) {
+                readByte();
+            } else if (code >= JUMP + SQUARES && code != PASS) {
+                _inGame = false;
+                _finished = code != UNFINISHED;
+            }
+        }
+    }
+
+    /** Return the extend to C R for the side to move on BOARD. */
+    private Move extend(Board board, char c, char r) throws IOException {
+        PieceColor me = board.whoseMove();
+        for (int dc = -1; dc <= 1; dc += 1) {
+            for (int dr = -1; dr <= 1; dr += 1) {
+                if (board.get((char) (c + dc), (char) (r + dr)) == me) {
+                    return Move.move((char) (c + dc), (char) (r + dr), c, r);
+                }
+            }
+        }
+        throw malformed();
+    }
+
+    /** Read and return a square number. */
+    private int readSquare() throws IOException {
+        int sq = readByte();
+        if (sq >= SQUARES) {
+            throw malformed();
+        }
+        return sq;
+    }
+
+    /** Read and return one byte, which must be present. */
+    private int readByte() throws IOException {
+        int b = _in.read();
+        if (b == -1) {
+            throw new EOFException("truncated game record");
+        }
+        return b;
+    }
+
+    /** Return an exception reporting a malformed record. */
+    private static IOException malformed() {
+        return new IOException("malformed game record");
+    }
+
+    /** Source of records. */
+    private final InputStream _in;
+    /** Buffer for an encoded position. */
+    private final byte[] _position = new byte[Board.ENCODED_SIZE];
+    /** True iff the moves of the current game have not all been read. */
+    private boolean _inGame;
+    /** Seed of the current game. */
+    private long _seed;
+    /** Winner of the current game, if known. */
+    private PieceColor _winner;
+    /** True iff the current game was recorded as finished. */
+    private boolean _finished;
+}
@@ -0,0 +1,64 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.PieceColor.*;
+
+/** Tests of GameRecordWriter and GameRecordReader.
+ *  @author Hanqi Xiong
+ */
+public class GameRecordTest {
+
+    /** Moves of a game on a board with a block at c3, including jumps
+     *  and extends by both sides. */
+    private static final String[] MOVES = {
+        "a7-b6", "g7-e6", "g1-g3", "a1-b2", "b6-d6", "a1-c1",
+    };
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GameRecordWriter writer = new GameRecordWriter(bytes);
+        Board board = new Board();
+        board.setBlock('c', '3');
+        writer.startGame(board, 42);
+        for (String move : MOVES) {
+            board.makeMove(Move.move(move));
+            writer.move(Move.move(move));
+        }
+        String played = board.position();
+        writer.endGame(null);
+        Board loaded = new Board();
+        loaded.setPosition("rr4b/7/7/7/7/7/b5r b 1");
+        writer.startGame(loaded, -1);
+        writer.move(Move.move("g7-g6"));
+        writer.move(Move.move("a7-a5"));
+        writer.truncate(1);
+        writer.endGame(BLUE);
+        writer.close();
+        assertEquals(2, writer.games());
+
+        GameRecordReader reader =
+            new GameRecordReader(new ByteArrayInputStream(bytes.toByteArray()));
+        Board replay = new Board();
+        assertTrue(reader.readGame(replay));
+        assertEquals(42, reader.seed());
+        assertFalse(reader.finished());
+        assertEquals(played, replay.position());
+        assertTrue(reader.readGame(replay));
+        assertEquals(-1, reader.seed());
+        assertEquals(BLUE, reader.winner());
+        assertEquals("rr4b/6b/7/7/7/7/b5r r 0", replay.position());
+        assertFalse(reader.readGame(replay));
+    }
+
+}
@@ -0,0 +1,157 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+
+import static ataxx.GameRecord.*;
+import static ataxx.PieceColor.*;
+
+/** Writes games to a stream in the binary format described in
+ *  GameRecord.  The moves of the game in progress are held until it
+ *  ends (so that moves may be taken back); each finished game is then
+ *  encoded and written in one piece.
+ *  @author Hanqi Xiong
+ */
+class GameRecordWriter implements Closeable {
+
+    /** Size of my output buffer. */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /** A writer of game records to OUT. */
+    GameRecordWriter(OutputStream out) throws IOException {
+        _out = new BufferedOutputStream(out, BUFFER_SIZE);
+        _out.write(MAGIC);
+    }
+
+    /** Start recording a game whose starting position is START (which
+     *  has no moves), using SEED as its seed.  Discards any unfinished
+     *  game not yet written.  Games on boards of other than the standard
+     *  size are not recorded. */
+    void startGame(Board start, long seed) {
+        _moves.clear();
+        _started = false;
+        if (start.side() != Board.DEFAULT_SIDE) {
+            return;
+        }
+        _header.reset();
+        _header.write(GAME_TAG);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            _header.write((int) (seed >>> shift));
+        }
+        if (findBlocks(start)) {
+            _header.write(_blocks.size());
+            for (int sq : _blocks) {
+                _header.write(sq);
+            }
+        } else {
+            _header.write(LOADED);
+            start.encode(_position, 0);
+            _header.write(_position, 0, _position.length);
+        }
+        _started = true;
+    }
+
+    /** Set _blocks to the canonical blocked squares of START, returning
+     *  true iff START is the initial position with those blocks. */
+    private boolean findBlocks(Board start) {
+        Board standard = new Board();
+        _blocks.clear();
+        try {
+            for (char c = 'a'; c <= 'd'; c += 1) {
+                for (char r = '1'; r <= '4'; r += 1) {
+                    if (start.get(c, r) == BLOCKED
+                        && standard.get(c, r) == EMPTY) {
+                        standard.setBlock(c, r);
+                        _blocks.add(square(c, r));
+                    }
+                }
+            }
+        } catch (GameException excp) {
+            return false;
+        }
+        return standard.position().equals(start.position());
+    }
+
+    /** Record MOVE (which may be a pass) as the next move of the current
+     *  game.  Does nothing if no game is being recorded. */
+    void move(Move move) {
+        if (_started) {
+            _moves.add(move);
+        }
+    }
+
+    /** Take back all but the first N moves of the current game. */
+    void truncate(int n) {
+        while (_moves.size() > n) {
+            _moves.remove(_moves.size() - 1);
+        }
+    }
+
+    /** End the current game, if one is being recorded, writing it with
+     *  WINNER (RED, BLUE, EMPTY for a draw, or null if unfinished) as its
+     *  result. */
+    void endGame(PieceColor winner) throws IOException {
+        if (!_started) {
+            return;
+        }
+        _started = false;
+        _header.writeTo(_out);
+        for (Move move : _moves) {
+            if (move.isPass()) {
+                _out.write(PASS);
+            } else if (move.isJump()) {
+                _out.write(JUMP + square(move.col1(), move.row1()));
+                _out.write(jumpOffset(move));
+            } else {
+                _out.write(square(move.col1(), move.row1()));
+            }
+        }
+        _out.write(result(winner));
+        _moves.clear();
+        _games += 1;
+    }
+
+    /** Return the number of games written. */
+    long games() {
+        return _games;
+    }
+
+    /** Write out any buffered data. */
+    void flush() throws IOException {
+        _out.flush();
+    }
+
+    /** Write any unfinished game, and close my stream. */
+    @Override
+    public void close() throws IOException {
+        try {
+            endGame(null);
+        } finally {
+            _out.close();
+        }
+    }
+
+    /** Destination of the records. */
+    private final OutputStream _out;
+    /** The encoded header of the current game. */
+    private final ByteArrayOutputStream _header =
+        new ByteArrayOutputStream();
+    /** Moves of the current game. */
+    private final ArrayList<Move> _moves = new ArrayList<>();
+    /** Canonical blocked squares of the current game. */
+    private final ArrayList<Integer> _blocks = new ArrayList<>();
+    /** Buffer for an encoded position. */
+    private final byte[] _position = new byte[Board.ENCODED_SIZE];
+    /** True iff a game is being recorded. */
+    private boolean _started;
+    /** Number of games written. */
+    private long _games;
+}
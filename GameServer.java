@@ -0,0 +1,155 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** A server that plays a separate session of Ataxx with each client that
+ *  connects to it over TCP.  Each session is a Game whose commands come
+ *  from, and whose messages go to, its connection, exactly as if it were
+ *  being played at a terminal.  Sessions run on virtual threads where the
+ *  Java runtime provides them (and on ordinary threads otherwise), so
+ *  that a session blocked on input costs little.  The AI searches of all
+ *  sessions share a fixed pool of search threads, so that CPU-bound
+ *  searches cannot starve the threads handling I/O, and so that the
+ *  sessions' AIs can borrow the search tables of those threads (see
+ *  SearchTables) rather than each keeping its own.
+ *  @author Hanqi Xiong
+ */
+class GameServer {
+
+    /** Maximum number of pending connections. */
+    static final int BACKLOG = 4096;
+
+    /** A server that will listen on PORT (0 for any free port), running at
+     *  most SEARCHTHREADS AI searches at once. */
+    GameServer(int port, int searchThreads) throws IOException {
+        _channel = ServerSocketChannel.open();
+        _channel.bind(new InetSocketAddress(port), BACKLOG);
+        _sessions = sessionExecutor();
+        _searches =
+            Executors.newFixedThreadPool(
+                searchThreads, SearchTables.threads("ataxx-search"));
+    }
+
+    /** A server on PORT that runs one fewer search at a time than there
+     *  are processors (but at least one). */
+    GameServer(int port) throws IOException {
+        this(port,
+             Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    /** Return the port on which I listen. */
+    int port() {
+        try {
+            return ((InetSocketAddress) _channel.getLocalAddress()).getPort();
+        } catch (IOException excp) {
+            return -1;
+        }
+    }
+
+    /** Return the number of sessions that have started. */
+    int sessionsStarted() {
+        return _started.get();
+    }
+
+    /** Return the number of sessions in progress. */
+    int sessionsActive() {
+        return _active.get();
+    }
+
+    /** Accept connections and start a session for each, until close() is
+     *  called. */
+    void serve() throws IOException {
+        try {
+            while (true) {
+                SocketChannel client = _channel.accept();
+                _started.incrementAndGet();
+                _active.incrementAndGet();
+                _sessions.execute(() -> session(client));
+            }
+        } catch (ClosedChannelException excp) {
+            return;
+        }
+    }
+
+    /** Stop accepting connections.  Sessions in progress continue. */
+    void close() throws IOException {
+        _channel.close();
+        _sessions.shutdown();
+        _searches.shutdown();
+    }
+
+    /** Play a session over CLIENT, closing it at the end. */
+    private void session(SocketChannel client) {
+        try (client) {
+            PrintStream out =
+                new PrintStream(new BufferedOutputStream(
+                                    Channels.newOutputStream(client)),
+                                true, StandardCharsets.UTF_8);
+            ReaderSource inp =
+                new ReaderSource(Channels.newReader(client,
+                                                    StandardCharsets.UTF_8),
+                                 false);
+            Game game =
+                new Game(inp, (b) -> { }, new TextReporter(out, out), false);
+            game.setSearchExecutor(_searches);
+            game.play();
+            out.flush();
+        } catch (IOException | RuntimeException excp) {
+            Utils.debug(1, "session ended: %s", excp);
+        } finally {
+            _active.decrementAndGet();
+        }
+    }
+
+    /** Return an executor that runs each task on a new virtual thread, if
+     *  the Java runtime supports them, and otherwise on a (cached)
+     *  ordinary thread. */
+    private static ExecutorService sessionExecutor() {
+        try {
+            Method virtual =
+                Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException excp) {
+            return Executors.newCachedThreadPool(daemonThreads("ataxx-game"));
+        }
+    }
+
+    /** Return a factory for daemon threads named NAME-1, NAME-2, .... */
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return (task) -> {
+            Thread thread = new Thread(task, name + "-"
+                                       + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /** Channel on which I accept connections. */
+    private final ServerSocketChannel _channel;
+    /** Runs sessions. */
+    private final ExecutorService _sessions;
+    /** Runs AI searches for all sessions. */
+    private final ExecutorService _searches;
+    /** Number of sessions started. */
+    private final AtomicInteger _started = new AtomicInteger();
+    /** Number of sessions in progress. */
+    private final AtomicInteger _active = new AtomicInteger();
+}
@@ -0,0 +1,135 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of GameServer, using clients on the loopback interface.
+ *  @author Hanqi Xiong
+ */
+public class GameServerTest {
+
+    /** Number of concurrent sessions opened by testManySessions. */
+    private static final int SESSIONS = 2000;
+
+    /** Start a server on a free port, running it on a new thread. */
+    private static GameServer startServer() throws IOException {
+        GameServer server = new GameServer(0, 2);
+        Thread thread = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException excp) {
+                /* Ignore: test will fail. */
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return server;
+    }
+
+    /** Return a client connected to SERVER. */
+    private static SocketChannel connect(GameServer server)
+        throws IOException {
+        return SocketChannel.open(new InetSocketAddress("localhost",
+                                                        server.port()));
+    }
+
+    /** Send the lines of TEXT to CLIENT. */
+    private static void send(SocketChannel client, String text)
+        throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) {
+            client.write(buf);
+        }
+    }
+
+    /** Return what is received from CLIENT up to and including the first
+     *  occurrence of TEXT, or everything received, if the server closes
+     *  the connection first. */
+    private static String receiveUntil(SocketChannel client, String text)
+        throws IOException {
+        StringBuilder result = new StringBuilder();
+        ByteBuffer buf = ByteBuffer.allocate(1);
+        while (result.indexOf(text) < 0 && client.read(buf) >= 0) {
+            buf.flip();
+            result.append((char) buf.get());
+            buf.clear();
+        }
+        return result.toString();
+    }
+
+    /** Return everything received from CLIENT until the server closes
+     *  the connection. */
+    private static String receiveAll(SocketChannel client)
+        throws IOException {
+        StringBuilder result = new StringBuilder();
+        ByteBuffer buf = ByteBuffer.allocate(1 << 12);
+        while (client.read(buf) >= 0) {
+            buf.flip();
+            result.append(StandardCharsets.UTF_8.decode(buf));
+            buf.clear();
+        }
+        client.close();
+        return result.toString();
+    }
+
+    @Test
+    public void testSession() throws IOException {
+        GameServer server = startServer();
+        SocketChannel client = connect(server);
+        send(client, "a7-b6\nquit\n");
+        String output = receiveAll(client);
+        assertTrue("no welcome", output.contains("Welcome"));
+        assertTrue("no AI reply", output.contains("* Blue moves"));
+        server.close();
+    }
+
+    @Test
+    public void testManySessions() throws IOException {
+        GameServer server = startServer();
+        SocketChannel[] clients = new SocketChannel[SESSIONS];
+        for (int i = 0; i < SESSIONS; i += 1) {
+            clients[i] = connect(server);
+        }
+        for (SocketChannel client : clients) {
+            send(client, "block c3\ndump\nquit\n");
+        }
+        for (SocketChannel client : clients) {
+            String output = receiveAll(client);
+            assertTrue("no board dump", output.contains("===")
+                       && output.contains("X"));
+        }
+        assertEquals("sessions lost", SESSIONS, server.sessionsStarted());
+        server.close();
+    }
+    @Test
+    public void testManyAIMoves() throws IOException {
+        GameServer server = startServer();
+        SocketChannel[] clients = new SocketChannel[SESSIONS];
+        for (int i = 0; i < SESSIONS; i += 1) {
+            clients[i] = connect(server);
+            send(clients[i], "a7-b6\n");
+        }
+        for (SocketChannel client : clients) {
+            assertTrue("no AI reply",
+                       receiveUntil(client, "* Blue moves").endsWith(
+                           "* Blue moves"));
+        }
+        assertEquals("sessions ended early", SESSIONS,
+                     server.sessionsActive());
+        for (SocketChannel client : clients) {
+            send(client, "quit\n");
+            receiveAll(client);
+        }
+        server.close();
+    }
+}
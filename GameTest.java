@@ -0,0 +1,106 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of Game snapshots.
+ *  @author Hanqi Xiong
+ */
+public class GameTest {
+
+    /** A Reporter that records the moves announced to it, and ignores
+     *  everything else. */
+    private static class MoveRecorder implements Reporter {
+        @Override
+        public void announceWin(PieceColor side) {
+        }
+
+        @Override
+        public void announceMove(Move move, PieceColor player) {
+            moves.add(move.toString());
+        }
+
+        @Override
+        public void announceAnalysis(SearchInfo info) {
+        }
+
+        @Override
+        public void msg(String format, Object... args) {
+        }
+
+        @Override
+        public void err(String format, Object... args) {
+        }
+
+        @Override
+        public void log(String format, Object... args) {
+        }
+
+        /** The moves announced so far. */
+        final List<String> moves = new ArrayList<>();
+    }
+
+    /** Return a source that supplies COMMANDS in turn, and then
+     *  "quit". */
+    private static CommandSource source(String... commands) {
+        List<String> rest = new ArrayList<>(Arrays.asList(commands));
+        return (prompt) -> rest.isEmpty() ? "quit" : rest.remove(0);
+    }
+
+    /** Return a game that takes commands from SOURCE and reports to
+     *  REPORTER. */
+    private static Game game(CommandSource source, Reporter reporter) {
+        return new Game(source, (b) -> { }, reporter, false);
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() {
+        MoveRecorder original = new MoveRecorder();
+        Game game = game(source("seed 3", "auto blue", "auto red"),
+                         original);
+        List<byte[]> snapshots = new ArrayList<>();
+        game.setCheckpoints(1, Runnable::run, snapshots::add);
+        game.play();
+        int n = original.moves.size();
+        assertTrue(n > 20);
+
+        for (int k : new int[] { 1, 10, n / 2 }) {
+            byte[] snapshot = snapshots.get(k - 1);
+            MoveRecorder restored = new MoveRecorder();
+            Game[] copy = new Game[1];
+            boolean[] started = new boolean[1];
+            copy[0] = game((prompt) -> {
+                if (started[0]) {
+                    return "quit";
+                }
+                started[0] = true;
+                copy[0].restore(snapshot);
+                return "# restored";
+            }, restored);
+            copy[0].play();
+            assertEquals("after move " + k, original.moves.subList(k, n),
+                         restored.moves);
+        }
+    }
+
+    @Test
+    public void testSnapshotSeeds() {
+        Game game = game(source("seed 3", "auto blue", "seed 11",
+                                "manual red"),
+                         new MoveRecorder());
+        game.play();
+        byte[] snapshot = game.snapshot();
+        Game copy = game(source(), new MoveRecorder());
+        copy.restore(snapshot);
+        assertArrayEquals(snapshot, copy.snapshot());
+    }
+
+}
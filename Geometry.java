@@ -0,0 +1,248 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.Arrays;
+
+import static ataxx.GameException.error;
+
+/** The tables that depend on the size of a board.  Boards of all sizes
+ *  share one layout of linearized indices (see Board): the squares of a
+ *  board with SIDE squares on a side occupy the lower left of an array
+ *  with rows of Move.EXTENDED_SIDE squares, and everything else is
+ *  border.  So moves have the same packed codes on boards of all sizes,
+ *  while a Geometry lists, for its size, just the squares on the board
+ *  and, for each, the squares on the board within one and within two
+ *  rows and columns of it.  Scans over a board, and over the moves from
+ *  or the neighbors of a square, therefore never visit the border.
+ *
+ *  Squares are also numbered SIDE * row + column, counting from 0 at
+ *  a1.  A set of squares is represented as a mask of WORDS longs, in
+ *  which square N is bit N % 64 of word N / 64.
+ *
+ *  There is one Geometry for each size, shared by all boards of that
+ *  size.  Its arrays must not be modified.
+ *  @author Hanqi Xiong
+ */
+final class Geometry {
+
+    /** Fewest squares on a side. */
+    static final int MIN_SIDE = 5;
+    /** Most squares on a side. */
+    static final int MAX_SIDE = Move.MAX_SIDE;
+    /** Number of longs in a mask of squares. */
+    static final int WORDS = 2;
+
+    /** Return the Geometry of boards with SIDE squares on a side.  Throws
+     *  a GameException if there are no such boards. */
+    static Geometry of(int side) {
+        if (side < MIN_SIDE || side > MAX_SIDE) {
+            throw error("board size must be between %d and %d",
+                        MIN_SIDE, MAX_SIDE);
+        }
+        return GEOMETRIES[side];
+    }
+
+    /** The Geometry for boards with SIDE squares on a side. */
+    private Geometry(int side) {
+        _side = side;
+        _squares = side * side;
+        _indices = new int[_squares];
+        _numbers = new int[STRIDE * STRIDE];
+        _moveStart = new int[STRIDE * STRIDE + 1];
+        _neighborStart = new int[STRIDE * STRIDE + 1];
+        int[] moves = new int[_squares * 24],
+            neighbors = new int[_squares * 8];
+        int m, n, k;
+        m = n = k = 0;
+        Arrays.fill(_numbers, -1);
+        for (int c = 0; c < side; c += 1) {
+            for (int r = 0; r < side; r += 1) {
+                int sq = (r + 2) * STRIDE + c + 2;
+                _indices[k] = sq;
+                _numbers[sq] = r * side + c;
+                k += 1;
+            }
+        }
+        for (int sq = 0; sq < _numbers.length; sq += 1) {
+            _moveStart[sq] = m;
+            _neighborStart[sq] = n;
+            if (_numbers[sq] < 0) {
+                continue;
+            }
+            for (int dc = -2; dc <= 2; dc += 1) {
+                for (int dr = -2; dr <= 2; dr += 1) {
+                    int to = sq + dr * STRIDE + dc;
+                    if ((dc == 0 && dr == 0) || _numbers[to] < 0) {
+                        continue;
+                    }
+                    moves[m] = to;
+                    m += 1;
+                    if (Math.abs(dc) <= 1 && Math.abs(dr) <= 1) {
+                        neighbors[n] = to;
+                        n += 1;
+                    }
+                }
+            }
+        }
+        _moveStart[_numbers.length] = m;
+        _neighborStart[_numbers.length] = n;
+        _moveTargets = Arrays.copyOf(moves, m);
+        _neighbors = Arrays.copyOf(neighbors, n);
+
+        _all = new long[WORDS];
+        _firstColumn = new long[WORDS];
+        _lastColumn = new long[WORDS];
+        for (int sq = 0; sq < _squares; sq += 1) {
+            addSquare(_all, sq);
+            if (sq % side == 0) {
+                addSquare(_firstColumn, sq);
+            } else if (sq % side == side - 1) {
+                addSquare(_lastColumn, sq);
+            }
+        }
+        _jumpsByte = (2 * _squares + 1 + 7) / 8;
+        _encodedSize = (_jumpsByte + 1 + 7) / 8 * 8;
+    }
+
+    /** Return the number of squares on a side. */
+    int side() {
+        return _side;
+    }
+
+    /** Return the number of squares. */
+    int squares() {
+        return _squares;
+    }
+
+    /** Return the linearized indices of the squares, by column and then
+     *  by row. */
+    int[] indices() {
+        return _indices;
+    }
+
+    /** Return an array giving, for each linearized index, the number of
+     *  its square (-1 for border squares). */
+    int[] numbers() {
+        return _numbers;
+    }
+
+    /** Return the number of the square with linearized index SQ, or -1 if
+     *  it is in the border. */
+    int number(int sq) {
+        return _numbers[sq];
+    }
+
+    /** Return the linearized index of the square numbered N. */
+    int index(int n) {
+        return (n / _side + 2) * STRIDE + n % _side + 2;
+    }
+
+    /** Return the linearized indices of the squares to which a piece
+     *  may move: those to which a piece on the square with index SQ may
+     *  move are moveTargets()[moveStart()[SQ]] up to, but not including,
+     *  moveTargets()[moveStart()[SQ + 1]], by column and then row
+     *  offset. */
+    int[] moveTargets() {
+        return _moveTargets;
+    }
+
+    /** Return the starting positions in moveTargets() of the targets of
+     *  each square, indexed by linearized index. */
+    int[] moveStart() {
+        return _moveStart;
+    }
+
+    /** Return the linearized indices of the neighbors of squares,
+     *  arranged as for moveTargets(). */
+    int[] neighbors() {
+        return _neighbors;
+    }
+
+    /** Return the starting positions in neighbors() of the neighbors of
+     *  each square, indexed by linearized index. */
+    int[] neighborStart() {
+        return _neighborStart;
+    }
+
+    /** Return a new mask of all squares. */
+    long[] all() {
+        return _all.clone();
+    }
+
+    /** Set to RESULT the mask of the squares in or adjacent to a square
+     *  in the mask SQUARES. */
+    void grow(long[] squares, long[] result) {
+        long wide0 = squares[0] | (squares[0] << 1 & ~_firstColumn[0])
+            | ((squares[0] >>> 1 | squares[1] << 63) & ~_lastColumn[0]);
+        long wide1 = squares[1]
+            | ((squares[1] << 1 | squares[0] >>> 63) & ~_firstColumn[1])
+            | (squares[1] >>> 1 & ~_lastColumn[1]);
+        int s = _side;
+        result[0] = (wide0 | wide0 << s | (wide0 >>> s | wide1 << 64 - s))
+            & _all[0];
+        result[1] = (wide1 | (wide1 << s | wide0 >>> 64 - s) | wide1 >>> s)
+            & _all[1];
+    }
+
+    /** Return the size of the binary encoding of a position (see
+     *  Board.encode). */
+    int encodedSize() {
+        return _encodedSize;
+    }
+
+    /** Return the index of the byte holding the jump count in the binary
+     *  encoding of a position. */
+    int jumpsByte() {
+        return _jumpsByte;
+    }
+
+    /** Add the square numbered SQ to MASK. */
+    static void addSquare(long[] mask, int sq) {
+        mask[sq >>> 6] |= 1L << sq;
+    }
+
+    /** Return true iff the square numbered SQ is in MASK. */
+    static boolean contains(long[] mask, int sq) {
+        return (mask[sq >>> 6] & 1L << sq) != 0;
+    }
+
+    /** Return the number of squares in MASK. */
+    static int count(long[] mask) {
+        int n = 0;
+        for (long word : mask) {
+            n += Long.bitCount(word);
+        }
+        return n;
+    }
+
+    /** Length of a row of linearized indices. */
+    private static final int STRIDE = Move.EXTENDED_SIDE;
+
+    /** The Geometries, indexed by side. */
+    private static final Geometry[] GEOMETRIES = new Geometry[MAX_SIDE + 1];
+
+    static {
+        assert MAX_SIDE * MAX_SIDE <= 64 * WORDS;
+        for (int side = MIN_SIDE; side <= MAX_SIDE; side += 1) {
+            GEOMETRIES[side] = new Geometry(side);
+        }
+    }
+
+    /** Number of squares on a side, and in all. */
+    private final int _side, _squares;
+    /** Linearized indices of the squares. */
+    private final int[] _indices;
+    /** Number of the square at each linearized index, or -1. */
+    private final int[] _numbers;
+    /** Targets of moves, and where those from each square start. */
+    private final int[] _moveTargets, _moveStart;
+    /** Neighbors, and where those of each square start. */
+    private final int[] _neighbors, _neighborStart;
+    /** Masks of all squares and of the first and last columns. */
+    private final long[] _all, _firstColumn, _lastColumn;
+    /** Size of the binary encoding, and index of its jump count. */
+    private final int _encodedSize, _jumpsByte;
+}
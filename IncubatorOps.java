@@ -0,0 +1,86 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/** VectorOps using the incubating vector API, which the JIT compiles to
+ *  SIMD instructions.  Use only through VectorOps.best(), which loads
+ *  this class only if the jdk.incubator.vector module is present.
+ *  Dot products widen each vector of shorts to two vectors of ints, so
+ *  that products do not overflow.
+ *  @author Hanqi Xiong
+ */
+final class IncubatorOps implements VectorOps {
+
+    /** Vectors of shorts of the preferred size. */
+    private static final VectorSpecies<Short> SHORTS =
+        ShortVector.SPECIES_PREFERRED;
+    /** Vectors of ints of the same size, with half as many lanes. */
+    private static final VectorSpecies<Integer> INTS =
+        IntVector.SPECIES_PREFERRED;
+
+    /** The fallback for the elements left over after whole vectors. */
+    private static final ScalarOps SCALAR = new ScalarOps();
+
+    @Override
+    public void add(short[] acc, int off, short[] w, int wOff, int n) {
+        int i, end = SHORTS.loopBound(n);
+        for (i = 0; i < end; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, acc, off + i)
+                .add(ShortVector.fromArray(SHORTS, w, wOff + i))
+                .intoArray(acc, off + i);
+        }
+        SCALAR.add(acc, off + i, w, wOff + i, n - i);
+    }
+
+    @Override
+    public void sub(short[] acc, int off, short[] w, int wOff, int n) {
+        int i, end = SHORTS.loopBound(n);
+        for (i = 0; i < end; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, acc, off + i)
+                .sub(ShortVector.fromArray(SHORTS, w, wOff + i))
+                .intoArray(acc, off + i);
+        }
+        SCALAR.sub(acc, off + i, w, wOff + i, n - i);
+    }
+
+    @Override
+    public void addSub(short[] acc, int off, short[] w, int addOff,
+                       int subOff, int n) {
+        int i, end = SHORTS.loopBound(n);
+        for (i = 0; i < end; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, acc, off + i)
+                .add(ShortVector.fromArray(SHORTS, w, addOff + i))
+                .sub(ShortVector.fromArray(SHORTS, w, subOff + i))
+                .intoArray(acc, off + i);
+        }
+        SCALAR.addSub(acc, off + i, w, addOff + i, subOff + i, n - i);
+    }
+
+    @Override
+    public int clippedDot(short[] acc, int off, short[] w, int wOff, int n,
+                          int limit) {
+        IntVector sum = IntVector.zero(INTS);
+        int i, end = SHORTS.loopBound(n);
+        for (i = 0; i < end; i += SHORTS.length()) {
+            ShortVector a = ShortVector.fromArray(SHORTS, acc, off + i)
+                .max((short) 0).min((short) limit),
+                b = ShortVector.fromArray(SHORTS, w, wOff + i);
+            for (int part = 0; part < 2; part += 1) {
+                IntVector a1 = (IntVector)
+                    a.convertShape(VectorOperators.S2I, INTS, part),
+                    b1 = (IntVector)
+                    b.convertShape(VectorOperators.S2I, INTS, part);
+                sum = sum.add(a1.mul(b1));
+            }
+        }
+        return sum.reduceLanes(VectorOperators.ADD)
+            + SCALAR.clippedDot(acc, off + i, w, wOff + i, n - i, limit);
+    }
+}
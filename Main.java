@@ -4,11 +4,24 @@
 
 package ataxx;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.List;
 
 import static ataxx.Utils.*;
 
@@ -28,14 +41,58 @@ public class Main {
      *       --log: Print commands.
      *       --strict: Strict mode---players errors cause error exit.
      *       --debug: Set level of debugging information.
+     *       --evalcache=N: Cache up to 2**N static values in each AI
+     *                      (none if N is 0).
+     *       --network=FILE: Have AIs evaluate positions on boards of
+     *                       its size with the network in FILE (see
+     *                       Network).  With --bench, also compare the
+     *                       network with counting pieces.
+     *       --jfr: Record Flight Recorder events in ataxx.jfr.
+     *       --serve=PORT: Play a session with each client that connects
+     *                     to PORT.
+     *       --engine: Accept commands from programs (see Engine).
+     *       --replay: Read the input files as fast as possible, without
+     *                 prompting, and buffer output (see ReplaySource and
+     *                 AsyncReporter).
+     *       --evaluate: Score each position in the first trailing
+     *                   argument, writing the results to the second
+     *                   (see Evaluator).
+     *       --index: Index the games recorded in the first trailing
+     *                argument, writing the index to the second (see
+     *                PositionIndex).
+     *       --query: Report the games in the index named by the trailing
+     *                argument that reached each position read from the
+     *                standard input.
+     *       --bench: Report how the speed of moves and of search varies
+     *                with the size of the board (see Bench).
+     *       --fuzz=GAMES: Check Board against a simple model of the
+     *                     rules in GAMES random games (see BoardFuzzer).
      *  Trailing arguments are input files; the standard input is the
      *  default.
      */
     public static void main(String[] args0) {
         CommandArgs args =
             new CommandArgs("--display{0,1} --strict --version --timing --log"
+                            + " --jfr --serve=(\\d+){0,1} --engine --evaluate"
+                            + " --index --query --replay --bench"
+                            + " --fuzz=(\\d+){0,1} --evalcache=(\\d+){0,1}"
+                            + " --network=(.+){0,1}"
                             + " --debug=(\\d+){0,1} --=(.*){0,}", args0);
 
+        if (args.ok() && args.contains("--network")) {
+            try {
+                _network =
+                    Network.read(Paths.get(args.getFirst("--network")));
+            } catch (IOException excp) {
+                System.err.printf("Could not read network: %s%n",
+                                  excp.getMessage());
+                System.exit(1);
+            }
+        }
+
+        if (args.ok() && args.contains("--engine")) {
+            System.exit(new Engine(System.in, System.out).run());
+        }
 
         System.out.println("CS61B Ataxx! Version 3.0");
 
@@ -50,17 +107,80 @@ public class Main {
         }
 
         _strict = args.contains("--strict");
+        _timing = args.contains("--timing");
+        if (args.contains("--jfr")) {
+            FlightEvents.start();
+        }
         boolean log = args.contains("--log");
+        if (args.contains("--evalcache")) {
+            _evalCacheLogSize = args.getInt("--evalcache");
+            if (_evalCacheLogSize > EvalCache.MAX_LOG_SIZE) {
+                usage();
+                System.exit(1);
+            }
+        }
         if (args.contains("--debug")) {
             Utils.setMessageLevel(args.getInt("--debug"));
         }
 
+        if (args.contains("--evaluate")) {
+            if (args.get("--").size() != 2) {
+                usage();
+                System.exit(1);
+            }
+            evaluate(args.get("--").get(0), args.get("--").get(1));
+            return;
+        }
+
+        if (args.contains("--index")) {
+            if (args.get("--").size() != 2) {
+                usage();
+                System.exit(1);
+            }
+            index(args.get("--").get(0), args.get("--").get(1));
+            return;
+        }
+
+        if (args.contains("--query")) {
+            if (args.get("--").size() != 1) {
+                usage();
+                System.exit(1);
+            }
+            query(args.get("--").get(0));
+            return;
+        }
+
+        if (args.contains("--bench")) {
+            Bench bench = new Bench(System.out);
+            bench.run();
+            bench.compare(_network);
+            return;
+        }
+
+        if (args.contains("--fuzz")) {
+            System.exit(fuzz(args.getInt("--fuzz")));
+        }
+
+        if (args.contains("--serve")) {
+            serve(args.getInt("--serve"));
+            return;
+        }
+
         Game game;
+        AsyncReporter reporter = null;
         if (args.contains("--display")) {
             GUI display = new GUI("Ataxx!");
             game = new Game(display, display, display, log);
             display.pack();
             display.setVisible(true);
+        } else if (args.contains("--replay")) {
+            reporter = new AsyncReporter(
+                new OutputStreamWriter(
+                    new FileOutputStream(FileDescriptor.out)),
+                System.err, Defaults.REPORT_BUFFER_SIZE,
+                Defaults.REPORT_FLUSH_INTERVAL);
+            game = new Game(replaySource(args.get("--")),
+                            (b) -> { }, reporter, log);
         } else {
             TextSource source;
             ArrayList<Reader> inReaders = new ArrayList<>();
@@ -83,9 +203,156 @@ public class Main {
             game = new Game(new TextSource(inReaders),
                             (b) -> { }, new TextReporter(), log);
         }
-        System.exit(game.play());
+        int exitCode = game.play();
+        if (reporter != null) {
+            try {
+                reporter.close();
+            } catch (IOException excp) {
+                System.err.printf("Output error: %s%n", excp.getMessage());
+            }
+        }
+        reportTotalTimes();
+        FlightEvents.stop();
+        System.exit(exitCode);
+    }
+
+    /** Return a source of commands read without prompting from the files
+     *  named in NAMES (- denoting the standard input), in order, or from
+     *  the standard input if there are none. */
+    private static ReplaySource replaySource(List<String> names) {
+        ArrayList<ReadableByteChannel> inputs = new ArrayList<>();
+        if (names.isEmpty()) {
+            inputs.add(Channels.newChannel(System.in));
+        }
+        for (String name : names) {
+            try {
+                inputs.add(name.equals("-") ? Channels.newChannel(System.in)
+                           : FileChannel.open(Paths.get(name)));
+            } catch (IOException excp) {
+                System.err.printf("Could not open %s%n", name);
+                System.exit(1);
+            }
+        }
+        return new ReplaySource(inputs);
     }
 
+    /** Play sessions with clients connecting on PORT, until killed. */
+    private static void serve(int port) {
+        try {
+            GameServer server = new GameServer(port);
+            System.err.printf("Serving on port %d%n", server.port());
+            server.serve();
+        } catch (IOException excp) {
+            System.err.printf("Could not serve on port %d: %s%n", port,
+                              excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Write the evaluation of each position in the file named INPUT to
+     *  the file named OUTPUT. */
+    private static void evaluate(String input, String output) {
+        try (BufferedReader in = new BufferedReader(new FileReader(input));
+             Writer out = new BufferedWriter(new FileWriter(output))) {
+            long start = System.currentTimeMillis();
+            long count = new Evaluator().evaluate(in, out);
+            System.err.printf("Evaluated %d positions in %d msec%n", count,
+                              System.currentTimeMillis() - start);
+        } catch (IOException excp) {
+            System.err.printf("Could not evaluate %s: %s%n", input,
+                              excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Write an index of the games recorded in the file named RECORDS to
+     *  the file named INDEX. */
+    private static void index(String records, String index) {
+        try (GameRecordReader in =
+             new GameRecordReader(new FileInputStream(records))) {
+            long start = System.currentTimeMillis();
+            long count = PositionIndex.build(in, Paths.get(index),
+                                             PositionIndex.RUN_ENTRIES);
+            System.err.printf("Indexed %d positions in %d msec%n", count,
+                              System.currentTimeMillis() - start);
+        } catch (IOException | GameException excp) {
+            System.err.printf("Could not index %s: %s%n", records,
+                              excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Check Board against ReferenceBoard in GAMES random games on all
+     *  processors, reporting the rate of checking and any failure, which
+     *  is shrunk to a short script of commands.  Returns 0 if there is no
+     *  failure and 1 otherwise. */
+    private static int fuzz(long games) {
+        BoardFuzzer fuzzer = new BoardFuzzer();
+        long start = System.nanoTime();
+        BoardFuzzer.Failure failure =
+            fuzzer.run(games, Runtime.getRuntime().availableProcessors());
+        double seconds = Math.max(1, System.nanoTime() - start) * 1e-9;
+        System.out.printf("%d games, %d operations in %.1f s"
+                          + " (%.0f operations/s)%n", fuzzer.games(),
+                          fuzzer.operations(), seconds,
+                          fuzzer.operations() / seconds);
+        if (failure == null) {
+            return 0;
+        }
+        System.out.printf("Game %d failed: %s%nReproduced by:%n%s",
+                          failure.game(), failure.message(),
+                          failure.failingCase());
+        return 1;
+    }
+
+    /** Report, for each position read from the standard input (in
+     *  one-line notation), the games in the index in the file named
+     *  INDEX that reached it and how they ended. */
+    private static void query(String index) {
+        try (PositionIndex positions = new PositionIndex(Paths.get(index));
+             BufferedReader in =
+                 new BufferedReader(new InputStreamReader(System.in))) {
+            Board board = new Board();
+            for (String line = in.readLine(); line != null;
+                 line = in.readLine()) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    board.setPosition(line);
+                } catch (GameException excp) {
+                    System.out.println(excp.getMessage());
+                    continue;
+                }
+                long key = board.canonicalHash();
+                int[] results = new int[4];
+                long i;
+                for (i = positions.find(key);
+                     i < positions.size() && positions.key(i) == key;
+                     i += 1) {
+                    results[positions.result(i) - GameRecord.RED_WINS] += 1;
+                    if (results[0] + results[1] + results[2] + results[3]
+                        <= MAX_QUERY_GAMES) {
+                        System.out.printf("game %d ply %d%n",
+                                          positions.game(i),
+                                          positions.ply(i));
+                    }
+                }
+                System.out.printf("%s: red wins %d, blue wins %d, draws %d,"
+                                  + " unfinished %d%n", line, results[0],
+                                  results[1], results[2], results[3]);
+            }
+        } catch (IOException excp) {
+            System.err.printf("Could not query %s: %s%n", index,
+                              excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Greatest number of games listed for each position queried. */
+    private static final int MAX_QUERY_GAMES = 20;
+
     /** Print usage message. */
     private static void usage() {
         printHelpResource(USAGE, System.err);
@@ -100,39 +367,64 @@ public class Main {
 
     /* TIMING */
 
-    /** Start timing an operation. */
-    static void startTiming() {
-        if (_timing) {
-            _startTime = System.currentTimeMillis();
-        }
+    /** Return true iff AIs should time. */
+    static boolean isTiming() {
+        return _timing;
     }
 
-    /** End the timing started with the last call to startTiming().
-     *  Report result if we are timing. */
-    static void endTiming() {
+    /** Record a search whose statistics, including its elapsed time,
+     *  are STATS.  Report result if we are timing.  Each search times
+     *  itself, so that concurrent searches (as under --serve) do not
+     *  disturb each other's times. */
+    static synchronized void endTiming(SearchStats stats) {
         if (_timing) {
-            long time = System.currentTimeMillis() - _startTime;
-            System.err.printf("[%d msec]%n", time);
+            long time = stats.elapsed / 1_000_000;
+            System.err.printf("[%d msec: %s]%n", time, stats);
             _maxTime = Math.max(_maxTime, time);
             _totalTime += time;
             _numTimedOps += 1;
+            _totalStats.add(stats);
         }
     }
 
-    /** Report total time statistics, if timing. */
-    static void reportTotalTimes() {
+    /** Report total time and search statistics, if timing. */
+    static synchronized void reportTotalTimes() {
         if (_timing && _numTimedOps > 0) {
             System.err.printf("[Total time: %d msec for %d operations. "
                               + "Avg: %d msec/operation. "
                               + "Max: %d msec]%n", _totalTime,
                               _numTimedOps, _totalTime / _numTimedOps,
                               _maxTime);
+            System.err.printf("[Total search: %s]%n", _totalStats);
         }
     }
 
+    /** Return the log base 2 of the number of static values each AI
+     *  caches, or 0 if AIs do not cache them. */
+    static int evalCacheLogSize() {
+        return _evalCacheLogSize;
+    }
+
+    /** Return the network with which AIs evaluate positions, or null if
+     *  they count pieces. */
+    static Network network() {
+        return _network;
+    }
+
+    /** Return the statistics of all searches timed so far. */
+    static synchronized SearchStats totalStats() {
+        return _totalStats.copy();
+    }
+
     /** True iff AIs should time. */
     private static boolean _timing;
 
+    /** Network given by --network, or null. */
+    private static Network _network;
+
+    /** Log base 2 of the number of static values each AI caches. */
+    private static int _evalCacheLogSize = Defaults.EVAL_CACHE_LOG_SIZE;
+
     /** True iff using strict mode (in which errors detected by the
      *  manual player terminate the program with an error code of 2. */
     private static boolean _strict;
@@ -140,13 +432,13 @@ public class Main {
     /** Accumulated time. */
     private static long _totalTime;
 
-    /** Last start time. */
-    private static long _startTime;
-
     /** Number of operations timed. */
     private static int _numTimedOps;
 
     /** Maximum operation time. */
     private static long _maxTime;
 
+    /** Accumulated statistics of timed searches. */
+    private static final SearchStats _totalStats = new SearchStats();
+
 }
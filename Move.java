@@ -21,7 +21,12 @@ class Move {
      * each use of 'new', we use a "Move factory": a static method that
      * returns a Move, but not necessarily a new one. Moves themselves
      * are immutable, and for any possible move, there is exactly one
-     * object of type Move. */
+     * object of type Move.
+     *
+     * Within Board and AI, moves are usually represented by their packed
+     * codes (see code()), which are just ints, so that searches need
+     * neither allocate nor dereference Moves.  Move objects are made (or
+     * rather, looked up) only where moves enter or leave the program. */
 
     /** The move COL0 ROW0 - COL1 ROW1.  This must be a legal move. */
     private Move(int col0, int row0, int col1, int row1) {
@@ -31,14 +36,16 @@ class Move {
         _row1 = (char) (row1 + '1' - 2);
         _fromIndex = row0 * EXTENDED_SIDE + col0;
         _toIndex = row1 * EXTENDED_SIDE + col1;
-        _isExtend = isExtend();
-        _isJump = isJump();
+        _code = pack(_fromIndex, _toIndex);
+        _isJump = abs(col1 - col0) == 2 || abs(row1 - row0) == 2;
+        _isExtend = !_isJump;
     }
 
     /** A pass. */
     private Move() {
         _col0 = _col1 = _row0 = _row1 = 0;
         _fromIndex = _toIndex = -1;
+        _code = PACKED_PASS;
         _isJump = _isExtend = false;
     }
 
@@ -49,24 +56,118 @@ class Move {
      *  may go into the border layers). */
     static Move move(char col0, char row0, char col1, char row1) {
         assert col0 >= 'a' && row0 >= '1' && col1 >= 'a' - 2 && row1 >= '1' - 2;
-        return
-            ALL_MOVES[col0 - 'a' + 2][row0 - '1' + 2]
-            [col1 - 'a' + 2][row1 - '1' + 2];
+        return lookup((row0 - '1' + 2) * EXTENDED_SIDE + col0 - 'a' + 2,
+                      col1 - col0, row1 - row0);
+    }
+
+    /** Return the Move from the square with linearized index FROM to the
+     *  one DC columns and DR rows away, or null if there is none. */
+    private static Move lookup(int from, int dc, int dr) {
+        if (abs(dc) > 2 || abs(dr) > 2) {
+            return null;
+        }
+        return MOVES[from * MOVE_OFFSETS + (dc + 2) * 5 + dr + 2];
+    }
+
+    /** Return the packed code of the move from the square with
+     *  linearized index FROM to the one with index TO: FROM in bits 8-15,
+     *  and TO in bits 0-7. */
+    static int pack(int from, int to) {
+        return from << 8 | to;
+    }
+
+    /** Return the linearized index of the 'from' square of the move with
+     *  packed code MOVE, which is not a pass. */
+    static int from(int move) {
+        return move >>> 8;
+    }
+
+    /** Return the linearized index of the 'to' square of the move with
+     *  packed code MOVE, which is not a pass. */
+    static int to(int move) {
+        return move & 0xff;
+    }
+
+    /** Return true iff the move with packed code MOVE, which must be the
+     *  code of some Move other than a pass, is a jump. */
+    static boolean isJump(int move) {
+        return JUMP_DELTAS[(move & 0xff) - (move >>> 8) + MAX_DELTA];
+    }
+
+    /** Return the Move whose packed code is MOVE, or null if there is
+     *  none. */
+    static Move unpack(int move) {
+        if (move == PACKED_PASS) {
+            return PASS;
+        } else if (move < 0 || from(move) >= SQUARES || to(move) >= SQUARES) {
+            return null;
+        }
+        int from = from(move), to = to(move);
+        return lookup(from, to % EXTENDED_SIDE - from % EXTENDED_SIDE,
+                      to / EXTENDED_SIDE - from / EXTENDED_SIDE);
     }
 
     /** Return the Move denoted by STR, or null if STR is not a syntactically
      *  valid move designation. */
     static Move move(String str) {
+        if (str.length() == 1 && str.charAt(0) == '-') {
+            return pass();
+        } else if (str.length() == 5 && str.charAt(2) == '-'
+                   && shortSquare(str.charAt(0), str.charAt(1))
+                   && shortSquare(str.charAt(3), str.charAt(4))) {
+            return move(str.charAt(0), str.charAt(1),
+                        str.charAt(3), str.charAt(4));
+        }
         Matcher mat = MOVE_PATN.matcher(str);
         if (!mat.matches()) {
             return null;
-        } else if (mat.group(1) != null) {
-            String moveStr = mat.group(1);
-            return move(moveStr.charAt(0), moveStr.charAt(1),
-                        moveStr.charAt(3), moveStr.charAt(4));
-        } else {
+        } else if (mat.group(1) == null) {
             return pass();
         }
+        char c0 = mat.group(1).charAt(0), r0 = row(mat.group(2)),
+            c1 = mat.group(3).charAt(0), r1 = row(mat.group(4));
+        if (!onBoard(c0, r0) || !onBoard(c1, r1)) {
+            return null;
+        }
+        return move(c0, r0, c1, r1);
+    }
+
+    /** Return true iff C R denotes a square on the largest board. */
+    static boolean onBoard(char c, char r) {
+        return c >= 'a' && c < 'a' + MAX_SIDE
+            && r >= '1' && r < '1' + MAX_SIDE;
+    }
+
+    /** Return true iff C R denotes a square on the largest board whose
+     *  row is written as a single digit, so that "" + C + R is its
+     *  usual designation. */
+    static boolean shortSquare(char c, char r) {
+        return onBoard(c, r) && r <= '9';
+    }
+
+    /** Return the row designated by the decimal numeral NUMERAL: '1' for
+     *  "1", and so on, so that row 10 is '1' + 9.  Returns 0 if NUMERAL
+     *  does not designate a row of the largest board. */
+    static char row(String numeral) {
+        if (numeral.isEmpty() || numeral.length() > 2
+            || numeral.charAt(0) < '1' || numeral.charAt(0) > '9') {
+            return 0;
+        }
+        int r = 0;
+        for (int i = 0; i < numeral.length(); i += 1) {
+            char ch = numeral.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return 0;
+            }
+            r = 10 * r + ch - '0';
+        }
+        return r <= MAX_SIDE ? (char) ('0' + r) : 0;
+    }
+
+    /** Return the usual designation of square C R, such as "b3", or
+     *  "c10" on larger boards. */
+    static String square(char c, char r) {
+        return "" + c + (r - '0');
     }
 
     /** Returns a pass. */
@@ -81,16 +182,18 @@ class Move {
 
     /** Return true if this is an extension (move to adjacent square). */
     boolean isExtend() {
-        return abs(_col1 - _col0) <= 1 && abs(_row1 - _row0) <= 1;
+        return _isExtend;
     }
 
-    /** Return true if this is a jump (move to adjacent square). */
+    /** Return true if this is a jump (move to a square two away). */
     boolean isJump() {
-        int a = abs(_col1 - _col0);
-        int b = abs(_row1 - _row0);
-        int c = abs(_col1 - _col0);
-        int d = abs(_row1 - _row0);
-        return a == 2 || b == 2 && c <= 2 && d <= 2;
+        return _isJump;
+    }
+
+    /** Return my packed code (see pack), or PACKED_PASS if I am a
+     *  pass. */
+    int code() {
+        return _code;
     }
 
     /** Returns from column.  Undefined if a pass. */
@@ -130,19 +233,29 @@ class Move {
         if (isPass()) {
             return "-";
         } else {
-            return "" + col0() + row0() + "-" + col1() + row1();
+            return square(col0(), row0()) + "-" + square(col1(), row1());
         }
     }
 
-    /** Syntax of a move.  Groups capture row and column. */
+    /** Syntax of a move.  Groups capture columns and rows. */
     private static final Pattern MOVE_PATN =
-        Pattern.compile("([a-z][1-9a-f]-[a-z][1-9a-f])|(-)");
+        Pattern.compile("([a-z])(\\d+)-([a-z])(\\d+)|-");
+
+    /** Size of a side of the largest board. */
+    static final int MAX_SIDE = 11;
+
+    /** Size of side of the largest board plus 2-deep boundary: the
+     *  length of a row of linearized indices on boards of all sizes. */
+    static final int EXTENDED_SIDE = MAX_SIDE + 4;
 
-    /** Size of a side of the board. */
-    static final int SIDE = 7;
+    /** Number of linearized indices. */
+    private static final int SQUARES = EXTENDED_SIDE * EXTENDED_SIDE;
 
-    /** Size of side of a board plus 2-deep boundary. */
-    static final int EXTENDED_SIDE = SIDE + 4;
+    /** The packed code of a pass. */
+    static final int PACKED_PASS = 0;
+
+    /** A packed code that denotes no move at all. */
+    static final int NO_MOVE = -1;
 
     /** The pass. */
     static final Move PASS = new Move();
@@ -150,25 +263,44 @@ class Move {
     /** Linearized indices. */
     private final int _fromIndex, _toIndex;
 
+    /** Packed code. */
+    private final int _code;
+
     /** Move characteristics, indicating whether move is extension or jump. */
-    private boolean _isExtend, _isJump;
+    private final boolean _isExtend, _isJump;
 
     /** From and two squares, or 0s if a pass. */
     private char _col0, _row0, _col1, _row1;
 
-    /** The set of all Moves other than pass, indexed by from and to column and
-     *  row positions. */
-    private static final Move[][][][] ALL_MOVES =
-        new Move[EXTENDED_SIDE][EXTENDED_SIDE][EXTENDED_SIDE][EXTENDED_SIDE];
+    /** Number of column and row offsets of the target of a move from
+     *  its source, counting (0, 0). */
+    private static final int MOVE_OFFSETS = 25;
+
+    /** The set of all Moves other than pass: the move from the square
+     *  with linearized index FROM to the one DC columns and DR rows away
+     *  is MOVES[FROM * MOVE_OFFSETS + (DC + 2) * 5 + DR + 2]. */
+    private static final Move[] MOVES = new Move[SQUARES * MOVE_OFFSETS];
+
+    /** Greatest difference between the linearized indices of the squares
+     *  of a move. */
+    private static final int MAX_DELTA = 2 * EXTENDED_SIDE + 2;
+
+    /** Indexed by the difference between the linearized indices of the
+     *  'to' and 'from' squares of a move, plus MAX_DELTA: true iff the
+     *  move is a jump. */
+    private static final boolean[] JUMP_DELTAS = new boolean[2 * MAX_DELTA + 1];
 
     static {
-        for (int c = 2; c < SIDE + 2; c += 1) {
-            for (int r = 2; r < SIDE + 2; r += 1) {
+        for (int c = 2; c < MAX_SIDE + 2; c += 1) {
+            for (int r = 2; r < MAX_SIDE + 2; r += 1) {
                 for (int dc = -2; dc <= 2; dc += 1) {
                     for (int dr = -2; dr <= 2; dr += 1) {
                         if (dc != 0 || dr != 0) {
-                            ALL_MOVES[c][r][c + dc][r + dr] =
-                                new Move(c, r, c + dc, r + dr);
+                            Move move = new Move(c, r, c + dc, r + dr);
+                            MOVES[move.fromIndex() * MOVE_OFFSETS
+                                  + (dc + 2) * 5 + dr + 2] = move;
+                            JUMP_DELTAS[dr * EXTENDED_SIDE + dc + MAX_DELTA] =
+                                move.isJump();
                         }
                     }
                 }
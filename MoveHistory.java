@@ -0,0 +1,160 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static ataxx.GameException.error;
+
+/** The line of play of a game, allowing a board to be moved quickly to
+ *  any of its plies.  A MoveHistory holds the moves of the line, which
+ *  may run past the board's current ply after moving back, together
+ *  with checkpoints: the binary encodings (see Board.encode) of the
+ *  positions reached every INTERVAL plies.  Any ply is reached either by
+ *  undoing or replaying moves from the current position, or by restoring
+ *  the last checkpoint before it and replaying fewer than INTERVAL moves,
+ *  whichever takes fewer moves.  Plies before the start of the line (the
+ *  board's ply when the line was last reset) cannot be reached.
+ *  @author Hanqi Xiong
+ */
+class MoveHistory {
+
+    /** Default number of plies between checkpoints. */
+    static final int CHECKPOINT_INTERVAL = 16;
+
+    /** An empty line with checkpoints every CHECKPOINT_INTERVAL plies. */
+    MoveHistory() {
+        this(CHECKPOINT_INTERVAL);
+    }
+
+    /** An empty line with checkpoints every INTERVAL plies. */
+    MoveHistory(int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        _interval = interval;
+    }
+
+    /** Start a new line, discarding my moves and checkpoints, consisting
+     *  of the moves of BOARD that can be undone.  BOARD is left at the
+     *  same position, but if it has such moves, they are undone and made
+     *  again to take checkpoints. */
+    void reset(Board board) {
+        List<Move> moves = board.allMoves();
+        int ply = moves.size();
+        _start = _length = ply - board.undoableMoves();
+        _moves = new int[Math.max(ply, INITIAL_MOVES)];
+        for (int i = 0; i < ply; i += 1) {
+            _moves[i] = moves.get(i).code();
+        }
+        _encodedSize = board.encodedSize();
+        _checkpoints = new byte[_encodedSize * INITIAL_CHECKPOINTS];
+        _numCheckpoints = 0;
+        for (int k = ply; k > _start; k -= 1) {
+            board.undo();
+        }
+        while (_length < ply) {
+            int move = _moves[_length];
+            add(board, move);
+            board.makeMove(move);
+        }
+    }
+
+    /** Return the first ply of my line. */
+    int start() {
+        return _start;
+    }
+
+    /** Return the last ply of my line. */
+    int length() {
+        return _length;
+    }
+
+    /** Return the packed code of the move made at ply PLY of my line,
+     *  where PLY < length(). */
+    int move(int ply) {
+        return _moves[ply];
+    }
+
+    /** Record that the move with packed code MOVE is about to be made on
+     *  BOARD, whose position is that at ply BOARD.numMoves() of my line.
+     *  My moves from that ply on are replaced by MOVE. */
+    void add(Board board, int move) {
+        int ply = board.numMoves();
+        if (ply < _start || ply > _length
+            || board.encodedSize() != _encodedSize) {
+            reset(board);
+        }
+        int offset = ply - _start;
+        _numCheckpoints =
+            Math.min(_numCheckpoints, (offset + _interval - 1) / _interval);
+        if (offset % _interval == 0) {
+            int off = _numCheckpoints * _encodedSize;
+            if (off == _checkpoints.length) {
+                _checkpoints = Arrays.copyOf(_checkpoints, 2 * off);
+            }
+            board.encode(_checkpoints, off);
+            _numCheckpoints += 1;
+        }
+        if (ply == _moves.length) {
+            _moves = Arrays.copyOf(_moves, 2 * ply);
+        }
+        _moves[ply] = move;
+        _length = ply + 1;
+    }
+
+    /** Set BOARD, whose position is that at ply BOARD.numMoves() of my
+     *  line, to the position at ply PLY of my line.  Throws a
+     *  GameException if there is no such ply. */
+    void moveTo(Board board, int ply) {
+        if (ply < _start || ply > _length) {
+            throw error("no ply %d in this game (plies %d to %d)", ply,
+                        _start, _length);
+        }
+        int current = board.numMoves();
+        if (ply == current) {
+            return;
+        }
+        int checkpoint = _start + Math.min((ply - _start) / _interval,
+                                           _numCheckpoints - 1) * _interval;
+        if (ply <= current && current - ply <= board.undoableMoves()
+            && current - ply <= ply - checkpoint) {
+            for (; current > ply; current -= 1) {
+                board.undo();
+            }
+            return;
+        }
+        if (ply < current || ply - current > ply - checkpoint) {
+            board.restore(_checkpoints,
+                          (checkpoint - _start) / _interval * _encodedSize,
+                          _moves, checkpoint);
+            current = checkpoint;
+        }
+        for (; current < ply; current += 1) {
+            board.makeMove(_moves[current]);
+        }
+    }
+
+    /** Initial sizes of _moves and of _checkpoints, in moves and
+     *  checkpoints. */
+    private static final int INITIAL_MOVES = 64, INITIAL_CHECKPOINTS = 8;
+
+    /** Number of plies between checkpoints. */
+    private final int _interval;
+    /** First and last plies of my line. */
+    private int _start, _length;
+    /** Packed codes of the moves made at each ply, in _moves[0 ..
+     *  _length - 1].  Those before _start are the moves that led to the
+     *  start of the line. */
+    private int[] _moves = new int[INITIAL_MOVES];
+    /** Checkpoint K, the position at ply _start + K * _interval, is in
+     *  _checkpoints[K * _encodedSize ..]. */
+    private byte[] _checkpoints = new byte[0];
+    /** Number of checkpoints in _checkpoints. */
+    private int _numCheckpoints;
+    /** Size of an encoded position. */
+    private int _encodedSize;
+}
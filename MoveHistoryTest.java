@@ -0,0 +1,133 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of MoveHistory.
+ *  @author Hanqi Xiong
+ */
+public class MoveHistoryTest {
+
+    /** Make up to PLIES random moves on BOARD, with seed SEED, recording
+     *  them in LINE.  Returns the positions reached, indexed by ply. */
+    private static ArrayList<String> play(Board board, MoveHistory line,
+                                          long seed, int plies) {
+        Random random = new Random(seed);
+        int[] moves = new int[Board.MAX_MOVES];
+        ArrayList<String> positions = new ArrayList<>();
+        positions.add(board.position());
+        for (int k = 0; k < plies && board.getWinner() == null; k += 1) {
+            int n = board.legalMoves(moves, 0);
+            int move = n == 0 ? Move.PACKED_PASS : moves[random.nextInt(n)];
+            line.add(board, move);
+            board.makeMove(move);
+            positions.add(board.position());
+        }
+        return positions;
+    }
+
+    /** Check that BOARD is at ply PLY of the game GAME, whose positions
+     *  are POSITIONS. */
+    private static void check(Board board, Board game,
+                              ArrayList<String> positions, int ply) {
+        assertEquals(ply, board.numMoves());
+        assertEquals(positions.get(ply), board.position());
+        assertEquals(game.allMoves().subList(0, ply), board.allMoves());
+        Board fresh = new Board();
+        fresh.setPosition(positions.get(ply));
+        assertEquals(fresh.hash(), board.hash());
+    }
+
+    @Test
+    public void testRandomAccess() {
+        Board board = new Board();
+        board.setBlock('c', '4');
+        MoveHistory line = new MoveHistory(4);
+        line.reset(board);
+        ArrayList<String> positions = play(board, line, 0, 150);
+        Board game = new Board(board);
+        int last = positions.size() - 1;
+        assertEquals(last, line.length());
+        assertTrue(last > 40);
+
+        int[] plies = { 30, 3, last - 1, last, 0, 17, 16, 18, 9, 29, 1 };
+        for (int ply : plies) {
+            line.moveTo(board, ply);
+            check(board, game, positions, ply);
+        }
+        Random random = new Random(3);
+        for (int i = 0; i < 200; i += 1) {
+            int ply = random.nextInt(last + 1);
+            line.moveTo(board, ply);
+            check(board, game, positions, ply);
+        }
+
+        line.moveTo(board, 100);
+        line.moveTo(board, 26);
+        assertEquals(2, board.undoableMoves());
+        line.moveTo(board, 27);
+        board.undo();
+        check(board, game, positions, 26);
+    }
+
+    @Test
+    public void testBranch() {
+        Board board = new Board();
+        MoveHistory line = new MoveHistory(4);
+        line.reset(board);
+        ArrayList<String> positions = play(board, line, 11, 30);
+        line.moveTo(board, 10);
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = board.legalMoves(moves, 0);
+        int move = moves[0] == line.move(10) ? moves[n - 1] : moves[0];
+        line.add(board, move);
+        board.makeMove(move);
+        assertEquals(11, line.length());
+        assertEquals(move, line.move(10));
+        line.moveTo(board, 2);
+        assertEquals(positions.get(2), board.position());
+        line.moveTo(board, 11);
+        assertEquals(move, board.allMoves().get(10).code());
+        try {
+            line.moveTo(board, 12);
+            fail("moved past the end of the line");
+        } catch (GameException excp) {
+            assertEquals(11, board.numMoves());
+        }
+    }
+
+    @Test
+    public void testResetKeepsUndoableMoves() {
+        Board board = new Board();
+        MoveHistory line = new MoveHistory(4);
+        line.reset(board);
+        ArrayList<String> positions = play(board, line, 5, 12);
+        Board game = new Board(board);
+        MoveHistory line1 = new MoveHistory(4);
+        line1.reset(board);
+        assertEquals(0, line1.start());
+        assertEquals(12, line1.length());
+        check(board, game, positions, 12);
+        line1.moveTo(board, 3);
+        check(board, game, positions, 3);
+
+        Board copy = new Board(board);
+        assertEquals(0, copy.undoableMoves());
+        line1.reset(copy);
+        assertEquals(3, line1.start());
+        try {
+            line1.moveTo(copy, 2);
+            fail("moved before the start of the line");
+        } catch (GameException excp) {
+            assertEquals(3, copy.numMoves());
+        }
+    }
+
+}
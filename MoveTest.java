@@ -60,4 +60,17 @@ public class MoveTest {
 
         assertEquals("wrong string for pass", "-", pass().toString());
     }
+
+    @Test
+    public void testCodes() {
+        Move m = move('b', '2', 'd', '3');
+        assertSame(m, unpack(m.code()));
+        assertSame(m, unpack(pack(from(m.code()), to(m.code()))));
+        assertTrue(isJump(m.code()));
+        assertFalse(isJump(move('b', '2', 'c', '3').code()));
+        assertEquals(PACKED_PASS, pass().code());
+        assertSame(pass(), unpack(PACKED_PASS));
+        assertFalse(isJump(PACKED_PASS));
+        assertNull(unpack(NO_MOVE));
+    }
 }
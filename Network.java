@@ -0,0 +1,259 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static ataxx.PieceColor.*;
+
+/** A small neural network that scores positions on boards of one size,
+ *  with weights quantized to 16-bit integers.  Its inputs are one
+ *  feature for each square and each of red, blue, and blocked: the
+ *  feature is 1 if the square holds that piece, and 0 otherwise.  A
+ *  single hidden layer of HIDDEN units sums, for each unit, its bias and
+ *  the weights of the features present; this sum is kept up to date
+ *  incrementally as moves are made and undone by an Accumulator.  The
+ *  output is the dot product of the hidden sums, clipped to 0 ..
+ *  ACTIVATION_LIMIT, with the output weights, plus the output bias,
+ *  shifted right by the output shift.  It is positive for positions
+ *  that favor red.  Hidden sums are 16-bit and wrap around, so a
+ *  network's weights should be small enough that they do not
+ *  overflow.
+ *
+ *  A network file holds MAGIC, followed by the size of the board, the
+ *  number of hidden units, and the output shift and bias, each as a
+ *  4-byte integer, and then the hidden biases, the weights of each
+ *  input feature in turn, and the output weights, each as a 2-byte
+ *  integer.  Feature K is for the square numbered K / PLANES (as in
+ *  Geometry) and for red, blue, or blocked as K % PLANES is 0, 1, or
+ *  2.  All integers are big-endian, as written by
+ *  DataOutputStream.
+ *  @author Hanqi Xiong
+ */
+class Network {
+
+    /** First bytes of a network file. */
+    static final byte[] MAGIC = { 'A', 'T', 'X', 'N', 0, 0, 0, 1 };
+    /** Number of input features per square. */
+    static final int PLANES = 3;
+    /** Greatest value of a hidden unit's activation. */
+    static final int ACTIVATION_LIMIT = 255;
+    /** Greatest number of hidden units (so that the output, a sum of
+     *  products of clipped activations and 16-bit weights, fits in an
+     *  int). */
+    static final int MAX_HIDDEN = 256;
+
+    /** A network for boards with SIDE squares on a side with HIDDEN
+     *  hidden units, having hidden biases HIDDENBIAS, input weights
+     *  INPUTWEIGHTS (those of feature K in INPUTWEIGHTS[K * HIDDEN ..]),
+     *  output weights OUTPUTWEIGHTS, output bias OUTPUTBIAS, and output
+     *  shift OUTPUTSHIFT.  The arrays are not copied, and must not be
+     *  modified later. */
+    Network(int side, int hidden, short[] hiddenBias, short[] inputWeights,
+            short[] outputWeights, int outputBias, int outputShift) {
+        if (side < Board.MIN_SIDE || side > Board.MAX_SIDE
+            || hidden <= 0 || hidden > MAX_HIDDEN
+            || hiddenBias.length != hidden
+            || inputWeights.length != side * side * PLANES * hidden
+            || outputWeights.length != hidden
+            || outputShift < 0 || outputShift > 31) {
+            throw new IllegalArgumentException("inconsistent network");
+        }
+        _side = side;
+        _hidden = hidden;
+        _hiddenBias = hiddenBias;
+        _inputWeights = inputWeights;
+        _outputWeights = outputWeights;
+        _outputBias = outputBias;
+        _outputShift = outputShift;
+        _ops = VectorOps.best();
+    }
+
+    /** Return the network read from FILE. */
+    static Network read(Path file) throws IOException {
+        try (DataInputStream in =
+             new DataInputStream(new BufferedInputStream(
+                                     Files.newInputStream(file)))) {
+            for (byte b : MAGIC) {
+                if (in.readByte() != b) {
+                    throw new IOException("not a network file");
+                }
+            }
+            int side = in.readInt(), hidden = in.readInt(),
+                outputShift = in.readInt(), outputBias = in.readInt();
+            if (side < Board.MIN_SIDE || side > Board.MAX_SIDE
+                || hidden <= 0 || hidden > MAX_HIDDEN
+                || outputShift < 0 || outputShift > 31) {
+                throw new IOException("invalid network header");
+            }
+            short[] hiddenBias = readShorts(in, hidden),
+                inputWeights = readShorts(in, side * side * PLANES * hidden),
+                outputWeights = readShorts(in, hidden);
+            if (in.read() != -1) {
+                throw new IOException("extra data in network file");
+            }
+            return new Network(side, hidden, hiddenBias, inputWeights,
+                               outputWeights, outputBias, outputShift);
+        } catch (EOFException excp) {
+            throw new IOException("truncated network file");
+        }
+    }
+
+    /** Write me to FILE in the format read by read. */
+    void write(Path file) throws IOException {
+        try (DataOutputStream out =
+             new DataOutputStream(new BufferedOutputStream(
+                                      Files.newOutputStream(file)))) {
+            out.write(MAGIC);
+            out.writeInt(_side);
+            out.writeInt(_hidden);
+            out.writeInt(_outputShift);
+            out.writeInt(_outputBias);
+            writeShorts(out, _hiddenBias);
+            writeShorts(out, _inputWeights);
+            writeShorts(out, _outputWeights);
+        }
+    }
+
+    /** Return a network for boards with SIDE squares on a side, with
+     *  HIDDEN >= 2 hidden units, whose output is the number of red pieces
+     *  minus the number of blue pieces, as for AI's usual evaluation.
+     *  The first two units count red and blue pieces; the others have
+     *  weights chosen pseudo-randomly with SEED but no effect on the
+     *  output, so that the network costs as much to evaluate as any
+     *  other of its size. */
+    static Network material(int side, int hidden, long seed) {
+        int features = side * side * PLANES;
+        short[] hiddenBias = new short[hidden],
+            inputWeights = new short[features * hidden],
+            outputWeights = new short[hidden];
+        Random random = new Random(seed);
+        for (int k = 0; k < features; k += 1) {
+            for (int j = 2; j < hidden; j += 1) {
+                inputWeights[k * hidden + j] =
+                    (short) (random.nextInt(9) - 4);
+            }
+        }
+        for (int n = 0; n < side * side; n += 1) {
+            inputWeights[(n * PLANES + plane(RED)) * hidden] = 1;
+            inputWeights[(n * PLANES + plane(BLUE)) * hidden + 1] = 1;
+        }
+        outputWeights[0] = 1;
+        outputWeights[1] = -1;
+        return new Network(side, hidden, hiddenBias, inputWeights,
+                           outputWeights, 0, 0);
+    }
+
+    /** Return the number of squares on a side of the boards I score. */
+    int side() {
+        return _side;
+    }
+
+    /** Return my number of hidden units. */
+    int hidden() {
+        return _hidden;
+    }
+
+    /** Return the arithmetic I use. */
+    VectorOps ops() {
+        return _ops;
+    }
+
+    /** Return my hidden biases. */
+    short[] hiddenBias() {
+        return _hiddenBias;
+    }
+
+    /** Return my input weights, those of feature K being in
+     *  inputWeights()[K * hidden() ..]. */
+    short[] inputWeights() {
+        return _inputWeights;
+    }
+
+    /** Return the offset in inputWeights() of the weights of COLOR (RED,
+     *  BLUE, or BLOCKED) on the square numbered N. */
+    int weights(int n, PieceColor color) {
+        return (n * PLANES + plane(color)) * _hidden;
+    }
+
+    /** Return my output for the hidden sums in SUMS[OFF .. OFF +
+     *  hidden() - 1]. */
+    int output(short[] sums, int off) {
+        int dot = _ops.clippedDot(sums, off, _outputWeights, 0, _hidden,
+                                  ACTIVATION_LIMIT);
+        return (dot + _outputBias) >> _outputShift;
+    }
+
+    /** Return my output for the position on BOARD, which must be of my
+     *  size, computed from scratch. */
+    int evaluate(Board board) {
+        short[] sums = _hiddenBias.clone();
+        for (int sq : board.geometry().indices()) {
+            PieceColor piece = board.get(sq);
+            if (piece != EMPTY) {
+                _ops.add(sums, 0, _inputWeights,
+                         weights(board.geometry().number(sq), piece),
+                         _hidden);
+            }
+        }
+        return output(sums, 0);
+    }
+
+    /** Return the plane of input features for COLOR, which is not
+     *  EMPTY. */
+    private static int plane(PieceColor color) {
+        switch (color) {
+        case RED:
+            return 0;
+        case BLUE:
+            return 1;
+        default:
+            return 2;
+        }
+    }
+
+    /** Return N 2-byte integers read from IN. */
+    private static short[] readShorts(DataInputStream in, int n)
+        throws IOException {
+        short[] result = new short[n];
+        for (int i = 0; i < n; i += 1) {
+            result[i] = in.readShort();
+        }
+        return result;
+    }
+
+    /** Write the elements of DATA to OUT as 2-byte integers. */
+    private static void writeShorts(DataOutputStream out, short[] data)
+        throws IOException {
+        for (short x : data) {
+            out.writeShort(x);
+        }
+    }
+
+    /** Number of squares on a side of the boards I score. */
+    private final int _side;
+    /** Number of hidden units. */
+    private final int _hidden;
+    /** Initial hidden sums. */
+    private final short[] _hiddenBias;
+    /** Weights of the input features, feature by feature. */
+    private final short[] _inputWeights;
+    /** Weights of the clipped hidden sums in the output. */
+    private final short[] _outputWeights;
+    /** Added to the output before shifting. */
+    private final int _outputBias;
+    /** Number of bits by which the output is shifted right. */
+    private final int _outputShift;
+    /** Arithmetic on vectors of weights. */
+    private final VectorOps _ops;
+}
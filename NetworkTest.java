@@ -0,0 +1,175 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.PieceColor.*;
+
+/** Tests of Network, Accumulator, and the VectorOps they use.
+ *  @author Hanqi Xiong
+ */
+public class NetworkTest {
+
+    /** Return a network for boards with SIDE squares on a side with
+     *  HIDDEN hidden units and small weights chosen with SEED. */
+    private static Network randomNetwork(int side, int hidden, long seed) {
+        Random random = new Random(seed);
+        short[] hiddenBias = randomShorts(random, hidden, 100),
+            inputWeights =
+                randomShorts(random, side * side * Network.PLANES * hidden,
+                             20),
+            outputWeights = randomShorts(random, hidden, 1000);
+        return new Network(side, hidden, hiddenBias, inputWeights,
+                           outputWeights, -12345, 6);
+    }
+
+    /** Return N shorts chosen with RANDOM between -LIMIT and LIMIT. */
+    private static short[] randomShorts(Random random, int n, int limit) {
+        short[] result = new short[n];
+        for (int i = 0; i < n; i += 1) {
+            result[i] = (short) (random.nextInt(2 * limit + 1) - limit);
+        }
+        return result;
+    }
+
+    @Test
+    public void testOps() {
+        Random random = new Random(3);
+        VectorOps scalar = new ScalarOps(), best = VectorOps.best();
+        for (int n : new int[] { 0, 1, 7, 16, 33, 128, 250 }) {
+            short[] w = randomShorts(random, 2 * n + 5, Short.MAX_VALUE),
+                acc = randomShorts(random, n + 3, 400);
+            short[] acc1 = acc.clone(), acc2 = acc.clone();
+            scalar.add(acc1, 3, w, 1, n);
+            best.add(acc2, 3, w, 1, n);
+            assertArrayEquals(acc1, acc2);
+            scalar.sub(acc1, 2, w, n + 4, n);
+            best.sub(acc2, 2, w, n + 4, n);
+            assertArrayEquals(acc1, acc2);
+            scalar.addSub(acc1, 1, w, 0, n + 2, n);
+            best.addSub(acc2, 1, w, 0, n + 2, n);
+            assertArrayEquals(acc1, acc2);
+            assertEquals(scalar.clippedDot(acc1, 3, w, 2, n, 255),
+                         best.clippedDot(acc2, 3, w, 2, n, 255));
+        }
+        short[] acc = { -5, 0, 3, 300 }, w = { 7, 11, 13, 2 };
+        assertEquals(3 * 13 + 255 * 2, scalar.clippedDot(acc, 0, w, 0, 4,
+                                                         255));
+    }
+
+    @Test
+    public void testMaterial() {
+        Network network = Network.material(5, 24, 1);
+        Board board = new Board(5);
+        board.setBlock('c', '2');
+        assertEquals(0, network.evaluate(board));
+        board.makeMove("a5-b4");
+        board.makeMove("a1-a2");
+        board.makeMove("b4-b3");
+        assertEquals(board.redPieces() - board.bluePieces(),
+                     network.evaluate(board));
+        assertEquals(5 - 2, network.evaluate(board));
+    }
+
+    @Test
+    public void testIncremental() {
+        Network network = randomNetwork(8, 40, 5);
+        Accumulator acc = new Accumulator(network);
+        Board board = new Board(8);
+        board.setAccumulator(acc);
+        board.setBlock('c', '3');
+        assertEquals(network.evaluate(board), acc.evaluate());
+        Random random = new Random(11);
+        int[] moves = new int[Board.MAX_MOVES];
+        int[] values = new int[200];
+        for (int k = 0; k < 200 && board.getWinner() == null; k += 1) {
+            if (board.numMoves() > 0 && random.nextInt(4) == 0) {
+                board.undo();
+                assertEquals(values[board.numMoves()], acc.evaluate());
+            } else {
+                values[board.numMoves()] = acc.evaluate();
+                int n = board.legalMoves(moves, 0);
+                board.makeMove(n == 0 ? Move.PACKED_PASS
+                               : moves[random.nextInt(n)]);
+            }
+            assertEquals(network.evaluate(board), acc.evaluate());
+        }
+        assertTrue(board.numMoves() > 20);
+        board.setPosition("r6r/8/8/3xx3/8/8/8/b6b b 0");
+        assertEquals(network.evaluate(board), acc.evaluate());
+        try {
+            board.clear(7);
+            fail("board of wrong size accepted");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void testReadWrite() throws IOException {
+        Network network = randomNetwork(6, 17, 8);
+        Board board = new Board(6);
+        board.makeMove("a6-c5");
+        board.makeMove("a1-a2");
+        Path file = Files.createTempFile("ataxx-network", ".nn");
+        try {
+            network.write(file);
+            assertEquals(Network.MAGIC.length + 16 + 2 * (17 + 6 * 6 * 3 * 17
+                                                          + 17),
+                         Files.size(file));
+            Network copy = Network.read(file);
+            assertEquals(6, copy.side());
+            assertEquals(17, copy.hidden());
+            assertEquals(network.evaluate(board), copy.evaluate(board));
+            assertTrue(Arrays.equals(network.inputWeights(),
+                                     copy.inputWeights()));
+
+            byte[] data = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(data, data.length - 1));
+            try {
+                Network.read(file);
+                fail("truncated file accepted");
+            } catch (IOException excp) {
+                assertEquals("truncated network file", excp.getMessage());
+            }
+            data[0] = 'X';
+            Files.write(file, data);
+            try {
+                Network.read(file);
+                fail("bad file accepted");
+            } catch (IOException excp) {
+                assertEquals("not a network file", excp.getMessage());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testSearch() {
+        Board board = new Board();
+        board.makeMove("a7-b6");
+        board.makeMove("a1-b2");
+        AI counting = new AI(null, RED, 0, new SearchControl()),
+            network = new AI(null, RED, 0, new SearchControl());
+        counting.setNetwork(null);
+        network.setNetwork(Network.material(Board.DEFAULT_SIDE, 16, 2));
+        assertEquals(counting.findMove(board, 4), network.findMove(board, 4));
+        assertEquals(counting.lastValue(), network.lastValue());
+        assertEquals(counting.nodes(), network.nodes());
+
+        Board other = new Board(6);
+        assertEquals(counting.findMove(other, 3), network.findMove(other, 3));
+        assertEquals(counting.nodes(), network.nodes());
+    }
+}
@@ -0,0 +1,421 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/** An index from positions to the recorded games that reached them.
+ *  An index file holds a HEADER_SIZE-byte header (MAGIC and the number of
+ *  entries), followed by ENTRY_SIZE-byte entries sorted by key: the
+ *  Board.canonicalHash() of a position, followed by the number of the
+ *  game (counting from 0 in the file of records), the number of moves
+ *  made before the position was reached (its ply), and the game's
+ *  result (a GameRecord result code).  Because keys are canonical, a
+ *  query also finds games that reached rotations or reflections of the
+ *  position asked about.
+ *
+ *  The index is built with an external merge sort: entries are sorted in
+ *  runs of bounded size, each written to a temporary file, and the runs
+ *  are then merged, at most MERGE_FAN_IN at a time, in as many passes as
+ *  needed.  So an index may be much larger than the heap, and building
+ *  it never has more than MERGE_FAN_IN runs open at once.
+ *  Queries map the index into memory and search it by bisection.
+ *  @author Hanqi Xiong
+ */
+class PositionIndex implements Closeable {
+
+    /** First bytes of an index file. */
+    static final byte[] MAGIC = { 'A', 'T', 'X', 'I', 0, 0, 0, 1 };
+    /** Size of the header of an index file. */
+    static final int HEADER_SIZE = 16;
+    /** Size of an entry. */
+    static final int ENTRY_SIZE = 16;
+    /** Default number of entries sorted in memory at once. */
+    static final int RUN_ENTRIES = 1 << 20;
+    /** Default greatest number of runs merged at once. */
+    static final int MERGE_FAN_IN = 64;
+
+    /** Number of entries in each mapped segment of an index (so that
+     *  each is addressable by an int). */
+    private static final long SEGMENT_ENTRIES = 1L << 26;
+    /** Largest ply recorded in an entry. */
+    private static final int MAX_PLY = 0xFFFFFF;
+
+    /** Index the games read from RECORDS, writing the index to the file
+     *  INDEX, sorting at most RUNENTRIES entries in memory at a time.
+     *  Returns the number of entries. */
+    static long build(GameRecordReader records, Path index, int runEntries)
+        throws IOException {
+        return build(records, index, runEntries, MERGE_FAN_IN);
+    }
+
+    /** As for build(RECORDS, INDEX, RUNENTRIES), but merging at most
+     *  FANIN >= 2 runs at a time. */
+    static long build(GameRecordReader records, Path index, int runEntries,
+                      int fanIn) throws IOException {
+        Path dir = index.toAbsolutePath().getParent();
+        ArrayList<Path> runs = new ArrayList<>();
+        Run run = new Run(runEntries);
+        Board board = new Board();
+        long[] keys = new long[64];
+        long count = 0;
+        try {
+            for (int game = 0; records.startGame(board); game += 1) {
+                int plies = 0;
+                do {
+                    if (plies == keys.length) {
+                        keys = Arrays.copyOf(keys, 2 * plies);
+                    }
+                    keys[plies] = board.canonicalHash();
+                    plies += 1;
+                } while (makeNextMove(records, board));
+                int result = GameRecord.result(records.winner());
+                for (int ply = 0; ply < plies; ply += 1) {
+                    if (run.full()) {
+                        runs.add(run.write(dir));
+                    }
+                    run.add(keys[ply], value(game, ply, result));
+                    count += 1;
+                }
+            }
+            if (run.size() > 0 || runs.isEmpty()) {
+                runs.add(run.write(dir));
+            }
+            while (runs.size() > fanIn) {
+                mergePass(runs, fanIn, dir);
+            }
+            try (DataOutputStream out = output(index)) {
+                out.write(MAGIC);
+                out.writeLong(count);
+                merge(runs, out);
+            }
+        } finally {
+            for (Path path : runs) {
+                Files.deleteIfExists(path);
+            }
+        }
+        return count;
+    }
+
+    /** Make the next move read from RECORDS on BOARD, returning false at
+     *  the end of the game. */
+    private static boolean makeNextMove(GameRecordReader records,
+                                        Board board) throws IOException {
+        Move move = records.nextMove(board);
+        if (move == null) {
+            return false;
+        } else if (!board.legalMove(move)) {
+            throw new IOException("illegal move in game record: " + move);
+        }
+        board.makeMove(move);
+        return true;
+    }
+
+    /** Return the value part of the entry for ply PLY of game GAME, whose
+     *  result is RESULT. */
+    private static long value(int game, int ply, int result) {
+        return ((long) game << 32) | ((long) Math.min(ply, MAX_PLY) << 8)
+            | result;
+    }
+
+    /** Replace the sorted RUNS, temporary files in DIR, by fewer, longer
+     *  ones, each the merge of up to FANIN of them.  RUNS always lists
+     *  every run that exists, so that the caller can delete them all if
+     *  this fails. */
+    private static void mergePass(ArrayList<Path> runs, int fanIn, Path dir)
+        throws IOException {
+        int n = runs.size();
+        for (int i = 0; i < n; i += fanIn) {
+            Path path = Files.createTempFile(dir, "ataxx-run", ".tmp");
+            runs.add(path);
+            List<Path> group = runs.subList(0, Math.min(fanIn, n - i));
+            try (DataOutputStream out = output(path)) {
+                merge(group, out);
+            }
+            for (Path run : group) {
+                Files.delete(run);
+            }
+            group.clear();
+        }
+    }
+
+    /** Write the entries of the sorted RUNS, merged, to OUT. */
+    private static void merge(List<Path> runs, DataOutputStream out)
+        throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>();
+        ArrayList<RunReader> readers = new ArrayList<>();
+        try {
+            for (Path path : runs) {
+                RunReader reader = new RunReader(path);
+                readers.add(reader);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                out.writeLong(reader.key);
+                out.writeLong(reader.value);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /** Return a buffered stream writing to a new file PATH. */
+    private static DataOutputStream output(Path path) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(
+                                        Files.newOutputStream(path),
+                                        1 << 16));
+    }
+
+    /** An index read from the file INDEX. */
+    PositionIndex(Path index) throws IOException {
+        try (FileChannel channel = FileChannel.open(index, READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                continue;
+            }
+            header.flip();
+            for (byte b : MAGIC) {
+                if (!header.hasRemaining() || header.get() != b) {
+                    throw new IOException("not a position index");
+                }
+            }
+            _size = header.getLong();
+            if (channel.size() < HEADER_SIZE + _size * ENTRY_SIZE) {
+                throw new IOException("truncated position index");
+            }
+            int n = (int) ((_size + SEGMENT_ENTRIES - 1) / SEGMENT_ENTRIES);
+            _segments = new MappedByteBuffer[n];
+            for (int s = 0; s < n; s += 1) {
+                long first = s * SEGMENT_ENTRIES;
+                long entries = Math.min(SEGMENT_ENTRIES, _size - first);
+                _segments[s] =
+                    channel.map(FileChannel.MapMode.READ_ONLY,
+                                HEADER_SIZE + first * ENTRY_SIZE,
+                                entries * ENTRY_SIZE);
+            }
+        }
+    }
+
+    /** Return the number of entries. */
+    long size() {
+        return _size;
+    }
+
+    /** Return the index of the first entry whose key is KEY, or, if
+     *  there is none, of the first entry with a larger key (size() if
+     *  none). */
+    long find(long key) {
+        long lo = 0, hi = _size;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (key(mid) < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Return the index of the first entry for the position on BOARD (up
+     *  to symmetry); see find(long). */
+    long find(Board board) {
+        return find(board.canonicalHash());
+    }
+
+    /** Return the key of entry I. */
+    long key(long i) {
+        return segment(i).getLong(offset(i));
+    }
+
+    /** Return the number of the game of entry I. */
+    int game(long i) {
+        return (int) (value(i) >>> 32);
+    }
+
+    /** Return the ply of entry I. */
+    int ply(long i) {
+        return (int) (value(i) >>> 8) & MAX_PLY;
+    }
+
+    /** Return the result code of the game of entry I. */
+    int result(long i) {
+        return (int) value(i) & 0xff;
+    }
+
+    @Override
+    public void close() {
+        _segments = new MappedByteBuffer[0];
+    }
+
+    /** Return the value part of entry I. */
+    private long value(long i) {
+        return segment(i).getLong(offset(i) + 8);
+    }
+
+    /** Return the segment containing entry I. */
+    private MappedByteBuffer segment(long i) {
+        return _segments[(int) (i / SEGMENT_ENTRIES)];
+    }
+
+    /** Return the offset of entry I in its segment. */
+    private static int offset(long i) {
+        return (int) (i % SEGMENT_ENTRIES) * ENTRY_SIZE;
+    }
+
+    /** A run of entries being collected for sorting. */
+    private static class Run {
+
+        /** A run of up to SIZE entries. */
+        Run(int size) {
+            _keys = new long[size];
+            _values = new long[size];
+            _keys1 = new long[size];
+            _values1 = new long[size];
+        }
+
+        /** Return the number of entries in me. */
+        int size() {
+            return _size;
+        }
+
+        /** Return true iff I am full. */
+        boolean full() {
+            return _size == _keys.length;
+        }
+
+        /** Add the entry KEY, VALUE. */
+        void add(long key, long value) {
+            _keys[_size] = key;
+            _values[_size] = value;
+            _size += 1;
+        }
+
+        /** Sort my entries, write them to a new temporary file in DIR,
+         *  and empty me.  Returns the file. */
+        Path write(Path dir) throws IOException {
+            sort();
+            Path path = Files.createTempFile(dir, "ataxx-run", ".tmp");
+            try (DataOutputStream out = output(path)) {
+                for (int i = 0; i < _size; i += 1) {
+                    out.writeLong(_keys[i]);
+                    out.writeLong(_values[i]);
+                }
+            }
+            _size = 0;
+            return path;
+        }
+
+        /** Sort my entries by key and then value (a bottom-up merge
+         *  sort). */
+        private void sort() {
+            for (int width = 1; width < _size; width *= 2) {
+                for (int lo = 0; lo < _size; lo += 2 * width) {
+                    int mid = Math.min(lo + width, _size),
+                        hi = Math.min(lo + 2 * width, _size);
+                    int i = lo, j = mid;
+                    for (int k = lo; k < hi; k += 1) {
+                        if (j >= hi || (i < mid && compare(i, j) <= 0)) {
+                            _keys1[k] = _keys[i];
+                            _values1[k] = _values[i];
+                            i += 1;
+                        } else {
+                            _keys1[k] = _keys[j];
+                            _values1[k] = _values[j];
+                            j += 1;
+                        }
+                    }
+                }
+                long[] t = _keys;
+                _keys = _keys1;
+                _keys1 = t;
+                t = _values;
+                _values = _values1;
+                _values1 = t;
+            }
+        }
+
+        /** Compare entries I and J. */
+        private int compare(int i, int j) {
+            int c = Long.compare(_keys[i], _keys[j]);
+            return c != 0 ? c : Long.compare(_values[i], _values[j]);
+        }
+
+        /** Keys and values of my entries, and buffers used in sorting. */
+        private long[] _keys, _values, _keys1, _values1;
+        /** Number of entries. */
+        private int _size;
+    }
+
+    /** A reader of the entries of a sorted run, in order. */
+    private static class RunReader
+        implements Comparable<RunReader>, Closeable {
+
+        /** A reader for the run in the file PATH. */
+        RunReader(Path path) throws IOException {
+            _in = new DataInputStream(new BufferedInputStream(
+                                          Files.newInputStream(path),
+                                          1 << 16));
+        }
+
+        /** Read the next entry into key and value, returning false if
+         *  there is none. */
+        boolean advance() throws IOException {
+            try {
+                key = _in.readLong();
+            } catch (EOFException excp) {
+                return false;
+            }
+            value = _in.readLong();
+            return true;
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            int c = Long.compare(key, other.key);
+            return c != 0 ? c : Long.compare(value, other.value);
+        }
+
+        @Override
+        public void close() throws IOException {
+            _in.close();
+        }
+
+        /** The current entry. */
+        long key, value;
+        /** Source of the entries. */
+        private final DataInputStream _in;
+    }
+
+    /** Number of entries. */
+    private final long _size;
+    /** The entries, mapped into memory in segments. */
+    private MappedByteBuffer[] _segments;
+}
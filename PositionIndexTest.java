@@ -0,0 +1,117 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.PieceColor.*;
+
+/** Tests of PositionIndex.
+ *  @author Hanqi Xiong
+ */
+public class PositionIndexTest {
+
+    /** Opening moves of the indexed games. */
+    private static final String[][] GAMES = {
+        { "a7-a6", "g7-g6" },
+        { "g1-g2", "a1-a2" },
+        { "a7-b6", "g7-f6", "g1-f2" },
+    };
+
+    @Test
+    public void testSymmetry() {
+        Board b1 = new Board(), b2 = new Board();
+        b1.makeMove(Move.move("a7-a6"));
+        b2.makeMove(Move.move("g1-g2"));
+        assertNotEquals(b1.hash(), b2.hash());
+        assertEquals(b1.canonicalHash(), b2.canonicalHash());
+        b2.undo();
+        b2.makeMove(Move.move("g1-f2"));
+        assertNotEquals(b1.canonicalHash(), b2.canonicalHash());
+    }
+
+    /** Return a reader of the games GAMES, each played REPEATS times. */
+    private static GameRecordReader records(int repeats) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GameRecordWriter writer = new GameRecordWriter(bytes);
+        Board board = new Board();
+        for (int k = 0; k < repeats; k += 1) {
+            for (String[] game : GAMES) {
+                board.clear();
+                writer.startGame(board, 0);
+                for (String move : game) {
+                    board.makeMove(Move.move(move));
+                    writer.move(Move.move(move));
+                }
+                writer.endGame(game.length == 2 ? RED : null);
+            }
+        }
+        writer.close();
+        return new GameRecordReader(
+            new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test
+    public void testBuildAndQuery() throws IOException {
+        Board board = new Board();
+        Path file = Files.createTempFile("ataxx-index", ".idx");
+        try {
+            long count = PositionIndex.build(records(1), file, 3);
+            assertEquals(3 + 3 + 4, count);
+            try (PositionIndex index = new PositionIndex(file)) {
+                assertEquals(count, index.size());
+                for (long i = 1; i < count; i += 1) {
+                    assertTrue(index.key(i - 1) <= index.key(i));
+                }
+                board.clear();
+                long start = index.find(board.canonicalHash());
+                for (long i = start; i < start + 3; i += 1) {
+                    assertEquals(board.canonicalHash(), index.key(i));
+                    assertEquals(0, index.ply(i));
+                }
+                board.makeMove(Move.move("a7-a6"));
+                board.makeMove(Move.move("g7-g6"));
+                long i = index.find(board);
+                assertEquals(board.canonicalHash(), index.key(i));
+                assertEquals(board.canonicalHash(), index.key(i + 1));
+                assertEquals(0, index.game(i));
+                assertEquals(1, index.game(i + 1));
+                assertEquals(2, index.ply(i));
+                assertEquals(GameRecord.RED_WINS, index.result(i));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testMergePasses() throws IOException {
+        Path dir = Files.createTempDirectory("ataxx-index");
+        Path file = dir.resolve("many.idx"), one = dir.resolve("one.idx");
+        try {
+            long count = PositionIndex.build(records(20), file, 1, 3);
+            assertEquals(20 * (3 + 3 + 4), count);
+            assertEquals(count, PositionIndex.build(records(20), one, 1000));
+            assertArrayEquals(Files.readAllBytes(one),
+                              Files.readAllBytes(file));
+            try (Stream<Path> files = Files.list(dir)) {
+                assertEquals(2, files.count());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(one);
+            Files.delete(dir);
+        }
+    }
+
+}
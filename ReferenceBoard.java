@@ -0,0 +1,247 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static ataxx.PieceColor.*;
+
+/** A deliberately simple implementation of the rules of Ataxx, against
+ *  which BoardFuzzer checks Board.  It keeps the board as a plain
+ *  two-dimensional array, finds moves and counts pieces by scanning it,
+ *  and undoes moves by restoring complete copies of earlier states.  It
+ *  shares no code with Board, so that the two are unlikely to have the
+ *  same bugs.  Columns and rows are numbered from 0.
+ *  @author Hanqi Xiong
+ */
+class ReferenceBoard {
+
+    /** The initial position on a board with SIDE squares on a side. */
+    ReferenceBoard(int side) {
+        _side = side;
+        _squares = new PieceColor[side][side];
+        for (PieceColor[] column : _squares) {
+            Arrays.fill(column, EMPTY);
+        }
+        _squares[0][side - 1] = RED;
+        _squares[side - 1][0] = RED;
+        _squares[0][0] = BLUE;
+        _squares[side - 1][side - 1] = BLUE;
+        _whoseMove = RED;
+    }
+
+    /** A copy of BOARD, without its history. */
+    private ReferenceBoard(ReferenceBoard board) {
+        _side = board._side;
+        _squares = new PieceColor[_side][];
+        for (int c = 0; c < _side; c += 1) {
+            _squares[c] = board._squares[c].clone();
+        }
+        _whoseMove = board._whoseMove;
+        _numJumps = board._numJumps;
+    }
+
+    /** Return the number of squares on a side. */
+    int side() {
+        return _side;
+    }
+
+    /** Return the contents of column C, row R. */
+    PieceColor get(int c, int r) {
+        return _squares[c][r];
+    }
+
+    /** Return the side to move. */
+    PieceColor whoseMove() {
+        return _whoseMove;
+    }
+
+    /** Return the number of consecutive jumps just made. */
+    int numJumps() {
+        return _numJumps;
+    }
+
+    /** Return the number of moves made and not undone. */
+    int numMoves() {
+        return _history.size();
+    }
+
+    /** Return the number of squares holding COLOR. */
+    int count(PieceColor color) {
+        int n = 0;
+        for (PieceColor[] column : _squares) {
+            for (PieceColor contents : column) {
+                if (contents == color) {
+                    n += 1;
+                }
+            }
+        }
+        return n;
+    }
+
+    /** Return true iff column C, row R, is on the board. */
+    boolean onBoard(int c, int r) {
+        return c >= 0 && c < _side && r >= 0 && r < _side;
+    }
+
+    /** Return true iff a block may be placed at column C, row R. */
+    boolean legalBlock(int c, int r) {
+        return _history.isEmpty() && onBoard(c, r)
+            && _squares[c][r] == EMPTY;
+    }
+
+    /** Place blocks at column C, row R, and its reflections across the
+     *  middle column and row, assuming legalBlock(C, R). */
+    void block(int c, int r) {
+        int c1 = _side - 1 - c, r1 = _side - 1 - r;
+        _squares[c][r] = _squares[c1][r] = _squares[c][r1]
+            = _squares[c1][r1] = BLOCKED;
+    }
+
+    /** Return true iff the side to move may move from column C0, row R0,
+     *  to column C1, row R1. */
+    boolean legalMove(int c0, int r0, int c1, int r1) {
+        int distance = Math.max(Math.abs(c1 - c0), Math.abs(r1 - r0));
+        return onBoard(c0, r0) && onBoard(c1, r1)
+            && _squares[c0][r0] == _whoseMove && _squares[c1][r1] == EMPTY
+            && distance >= 1 && distance <= 2;
+    }
+
+    /** Return true iff WHO has a move other than a pass. */
+    boolean canMove(PieceColor who) {
+        for (int c0 = 0; c0 < _side; c0 += 1) {
+            for (int r0 = 0; r0 < _side; r0 += 1) {
+                if (_squares[c0][r0] != who) {
+                    continue;
+                }
+                for (int c1 = c0 - 2; c1 <= c0 + 2; c1 += 1) {
+                    for (int r1 = r0 - 2; r1 <= r0 + 2; r1 += 1) {
+                        if (onBoard(c1, r1) && _squares[c1][r1] == EMPTY) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Return true iff the side to move may pass. */
+    boolean legalPass() {
+        return !canMove(_whoseMove);
+    }
+
+    /** Return the legal moves of the side to move, other than passes,
+     *  each as { C0, R0, C1, R1 }. */
+    ArrayList<int[]> legalMoves() {
+        ArrayList<int[]> moves = new ArrayList<>();
+        for (int c0 = 0; c0 < _side; c0 += 1) {
+            for (int r0 = 0; r0 < _side; r0 += 1) {
+                if (_squares[c0][r0] != _whoseMove) {
+                    continue;
+                }
+                for (int c1 = c0 - 2; c1 <= c0 + 2; c1 += 1) {
+                    for (int r1 = r0 - 2; r1 <= r0 + 2; r1 += 1) {
+                        if (legalMove(c0, r0, c1, r1)) {
+                            moves.add(new int[] { c0, r0, c1, r1 });
+                        }
+                    }
+                }
+            }
+        }
+        return moves;
+    }
+
+    /** Move from column C0, row R0, to column C1, row R1, assuming the
+     *  move is legal. */
+    void move(int c0, int r0, int c1, int r1) {
+        _history.add(new ReferenceBoard(this));
+        PieceColor player = _whoseMove, opponent = player.opposite();
+        if (Math.max(Math.abs(c1 - c0), Math.abs(r1 - r0)) == 2) {
+            _squares[c0][r0] = EMPTY;
+            _numJumps += 1;
+        } else {
+            _numJumps = 0;
+        }
+        _squares[c1][r1] = player;
+        for (int c = c1 - 1; c <= c1 + 1; c += 1) {
+            for (int r = r1 - 1; r <= r1 + 1; r += 1) {
+                if (onBoard(c, r) && _squares[c][r] == opponent) {
+                    _squares[c][r] = player;
+                }
+            }
+        }
+        _whoseMove = opponent;
+    }
+
+    /** Pass, assuming that is legal. */
+    void pass() {
+        _history.add(new ReferenceBoard(this));
+        _whoseMove = _whoseMove.opposite();
+    }
+
+    /** Undo the last move, if there is one. */
+    void undo() {
+        ReferenceBoard previous = _history.remove(_history.size() - 1);
+        _squares = previous._squares;
+        _whoseMove = previous._whoseMove;
+        _numJumps = previous._numJumps;
+    }
+
+    /** Return the winner (EMPTY for a draw), or null if the game is not
+     *  over. */
+    PieceColor winner() {
+        int red = count(RED), blue = count(BLUE);
+        if (red == 0) {
+            return BLUE;
+        } else if (blue == 0) {
+            return RED;
+        } else if (_numJumps >= Board.JUMP_LIMIT
+                   || (!canMove(RED) && !canMove(BLUE))) {
+            return red > blue ? RED : blue > red ? BLUE : EMPTY;
+        } else {
+            return null;
+        }
+    }
+
+    /** Return the current position in the one-line notation of Board. */
+    String position() {
+        StringBuilder out = new StringBuilder();
+        for (int r = _side - 1; r >= 0; r -= 1) {
+            int empty = 0;
+            for (int c = 0; c < _side; c += 1) {
+                if (_squares[c][r] == EMPTY) {
+                    empty += 1;
+                    continue;
+                }
+                if (empty > 0) {
+                    out.append(empty);
+                    empty = 0;
+                }
+                out.append(_squares[c][r] == RED ? 'r'
+                           : _squares[c][r] == BLUE ? 'b' : 'x');
+            }
+            if (empty > 0) {
+                out.append(empty);
+            }
+            out.append(r > 0 ? "/" : " ");
+        }
+        out.append(_whoseMove == RED ? 'r' : 'b').append(' ')
+            .append(_numJumps);
+        return out.toString();
+    }
+
+    /** Number of squares on a side. */
+    private final int _side;
+    /** Contents of the squares, indexed by column and row. */
+    private PieceColor[][] _squares;
+    /** Side to move. */
+    private PieceColor _whoseMove;
+    /** Number of consecutive jumps just made. */
+    private int _numJumps;
+    /** States before each move not undone. */
+    private final ArrayList<ReferenceBoard> _history = new ArrayList<>();
+}
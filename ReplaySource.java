@@ -0,0 +1,112 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/** A CommandSource for replaying scripts as fast as possible.  It reads
+ *  the concatenation of the contents of a list of channels through one
+ *  large buffer, finds line ends by scanning the bytes in place, and
+ *  never prompts.  Scripts are taken to be in ASCII (more generally,
+ *  ISO 8859-1), which is all that commands use.
+ *  @author Hanqi Xiong
+ */
+class ReplaySource implements CommandSource {
+
+    /** Initial size of my input buffer. */
+    static final int BUFFER_SIZE = 1 << 20;
+
+    /** A source of commands read from the concatenation of the contents
+     *  of INPUTS. */
+    ReplaySource(List<ReadableByteChannel> inputs) {
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("must be at least one input");
+        }
+        _inputs = new ArrayList<>(inputs);
+        _buf.limit(0);
+    }
+
+    /** Return the next line of input, or null if there is none.  PROMPT
+     *  is ignored. */
+    @Override
+    public String getCommand(String prompt) {
+        try {
+            return readLine();
+        } catch (IOException excp) {
+            Utils.debug(1, "input error: %s", excp);
+            _inputs.clear();
+            return null;
+        }
+    }
+
+    /** Return the next line of input, without its line terminator, or
+     *  null at the end of the last input. */
+    private String readLine() throws IOException {
+        while (!_inputs.isEmpty()) {
+            byte[] bytes = _buf.array();
+            int start = _buf.position(), limit = _buf.limit();
+            for (int i = _scanned; i < limit; i += 1) {
+                if (bytes[i] == '\n') {
+                    _buf.position(i + 1);
+                    _scanned = i + 1;
+                    int end = i > start && bytes[i - 1] == '\r' ? i - 1 : i;
+                    return line(start, end);
+                }
+            }
+            _scanned = limit;
+            if (!fill()) {
+                if (_buf.hasRemaining()) {
+                    start = _buf.position();
+                    limit = _buf.limit();
+                    _buf.position(limit);
+                    _scanned = limit;
+                    return line(start, limit);
+                }
+                _inputs.remove(0).close();
+                _buf.clear().limit(0);
+                _scanned = 0;
+            }
+        }
+        return null;
+    }
+
+    /** Read more of the current input into my buffer, after its unread
+     *  part, enlarging the buffer if that fills it.  Returns false at
+     *  the end of the input. */
+    private boolean fill() throws IOException {
+        int consumed = _buf.position();
+        _buf.compact();
+        if (!_buf.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(2 * _buf.capacity());
+            _buf.flip();
+            larger.put(_buf);
+            _buf = larger;
+        }
+        int n = _inputs.get(0).read(_buf);
+        _buf.flip();
+        _scanned -= consumed;
+        return n >= 0;
+    }
+
+    /** Return the contents of my buffer from START to END as a String. */
+    private String line(int start, int end) {
+        return new String(_buf.array(), start, end - start,
+                          StandardCharsets.ISO_8859_1);
+    }
+
+    /** Remaining inputs, the current one first. */
+    private final ArrayList<ReadableByteChannel> _inputs;
+    /** Input buffer.  The unread input lies between its position and
+     *  limit. */
+    private ByteBuffer _buf = ByteBuffer.allocate(BUFFER_SIZE);
+    /** Bytes of _buf before this index have been searched for a line
+     *  end. */
+    private int _scanned;
+}
@@ -0,0 +1,44 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of ReplaySource.
+ *  @author Hanqi Xiong
+ */
+public class ReplaySourceTest {
+
+    /** Return a channel whose contents are TEXT. */
+    private static ReadableByteChannel channel(String text) {
+        return Channels.newChannel(
+            new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testLines() {
+        String longLine = "#" + "x".repeat(3 * ReplaySource.BUFFER_SIZE);
+        ReplaySource source =
+            new ReplaySource(List.of(channel("a7-b6\r\nundo\n\n" + longLine
+                                             + "\nquit"),
+                                     channel(""), channel("dump\n")));
+        assertEquals("a7-b6", source.getCommand("> "));
+        assertEquals("undo", source.getCommand("> "));
+        assertEquals("", source.getCommand("> "));
+        assertEquals(longLine, source.getCommand("> "));
+        assertEquals("quit", source.getCommand("> "));
+        assertEquals("dump", source.getCommand("> "));
+        assertNull(source.getCommand("> "));
+        assertNull(source.getCommand("> "));
+    }
+
+}
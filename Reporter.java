@@ -15,6 +15,22 @@ interface Reporter {
     /** Report move MOVE by PLAYER. */
     void announceMove(Move move, PieceColor player);
 
+    /** Report the analysis of one line of play described by INFO. */
+    void announceAnalysis(SearchInfo info);
+
+    /** Report that PLAYER's search for a move has reached depth DEPTH
+     *  after visiting NODES nodes.  Called from the searching thread, at
+     *  most every Defaults.PROGRESS_INTERVAL milliseconds.  By default,
+     *  does nothing. */
+    default void announceProgress(PieceColor player, int depth, long nodes) {
+    }
+
+    /** Display BANNER, which greets the user at the start of a
+     *  session.  By default, displays it as a message. */
+    default void announceBanner(String banner) {
+        msg("%s", banner);
+    }
+
     /** Display a message indicated by FORMAT and ARGS, which have
      *  the same meaning as in String.format. */
     void msg(String format, Object... args);
@@ -23,5 +39,12 @@ interface Reporter {
      *  the same meaning as in String.format. */
     void err(String format, Object... args);
 
+    /** Echo a command or other log entry indicated by FORMAT and ARGS,
+     *  which have the same meaning as in String.format.  By default,
+     *  prints it on the standard output. */
+    default void log(String format, Object... args) {
+        System.out.printf(format + "%n", args);
+    }
+
 }
 
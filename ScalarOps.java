@@ -0,0 +1,44 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+/** VectorOps done one element at a time, for JVMs without the vector
+ *  API.
+ *  @author Hanqi Xiong
+ */
+final class ScalarOps implements VectorOps {
+
+    @Override
+    public void add(short[] acc, int off, short[] w, int wOff, int n) {
+        for (int i = 0; i < n; i += 1) {
+            acc[off + i] += w[wOff + i];
+        }
+    }
+
+    @Override
+    public void sub(short[] acc, int off, short[] w, int wOff, int n) {
+        for (int i = 0; i < n; i += 1) {
+            acc[off + i] -= w[wOff + i];
+        }
+    }
+
+    @Override
+    public void addSub(short[] acc, int off, short[] w, int addOff,
+                       int subOff, int n) {
+        for (int i = 0; i < n; i += 1) {
+            acc[off + i] += w[addOff + i] - w[subOff + i];
+        }
+    }
+
+    @Override
+    public int clippedDot(short[] acc, int off, short[] w, int wOff, int n,
+                          int limit) {
+        int sum = 0;
+        for (int i = 0; i < n; i += 1) {
+            sum += Math.min(Math.max(acc[off + i], 0), limit) * w[wOff + i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,100 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+/** Limits on, and a means of cancelling, an AI search.  A search polls
+ *  its control every POLL_INTERVAL nodes, so that the cost of checking
+ *  the clock and the stop flag is spread over many nodes.  The stop
+ *  flag may be set from any thread.
+ *  @author Hanqi Xiong
+ */
+class SearchControl {
+
+    /** Number of nodes between successive polls; a power of 2. */
+    static final int POLL_INTERVAL = 1 << 12;
+
+    /** Mask used to test for multiples of POLL_INTERVAL. */
+    static final int POLL_MASK = POLL_INTERVAL - 1;
+
+    /** A control with no time or node limits. */
+    SearchControl() {
+        this(0, 0);
+    }
+
+    /** A control that limits each search to TIMELIMIT milliseconds and
+     *  NODELIMIT nodes.  A limit of 0 means "unlimited". */
+    SearchControl(long timeLimit, long nodeLimit) {
+        _timeLimit = timeLimit;
+        _nodeLimit = nodeLimit;
+    }
+
+    /** Set the time allowed for each search to MILLIS milliseconds (0
+     *  for no limit). */
+    void setTimeLimit(long millis) {
+        _timeLimit = millis;
+    }
+
+    /** Return the time allowed for each search in milliseconds (0 if
+     *  unlimited). */
+    long timeLimit() {
+        return _timeLimit;
+    }
+
+    /** Set the number of nodes allowed for each search to NODES (0 for
+     *  no limit). */
+    void setNodeLimit(long nodes) {
+        _nodeLimit = nodes;
+    }
+
+    /** Return the number of nodes allowed for each search (0 if
+     *  unlimited). */
+    long nodeLimit() {
+        return _nodeLimit;
+    }
+
+    /** Indicate that a search is starting now.  Does not clear a stop
+     *  request that arrived before the search began. */
+    void start() {
+        if (_timeLimit > 0) {
+            _deadline = System.nanoTime() + _timeLimit * 1_000_000L;
+        } else {
+            _deadline = 0;
+        }
+    }
+
+    /** Ask any search using this control to stop as soon as possible. */
+    void stop() {
+        _stopped = true;
+    }
+
+    /** Withdraw any outstanding stop request. */
+    void clear() {
+        _stopped = false;
+    }
+
+    /** Return true iff a stop has been requested. */
+    boolean stopped() {
+        return _stopped;
+    }
+
+    /** Return true iff a search that has so far visited NODES nodes
+     *  should stop: it has been asked to, or has used up its time or
+     *  node budget. */
+    boolean poll(long nodes) {
+        return _stopped
+            || (_nodeLimit > 0 && nodes >= _nodeLimit)
+            || (_deadline != 0 && System.nanoTime() - _deadline >= 0);
+    }
+
+    /** Set when the current search should stop. */
+    private volatile boolean _stopped;
+    /** Milliseconds allowed per search, or 0. */
+    private long _timeLimit;
+    /** Nodes allowed per search, or 0. */
+    private long _nodeLimit;
+    /** Value of System.nanoTime() at which the current search must end,
+     *  or 0 if there is no time limit. */
+    private long _deadline;
+}
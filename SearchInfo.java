@@ -0,0 +1,94 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.List;
+
+/** A report on the outcome of one AI search: the value of one line of
+ *  play, how deeply it was searched, and how much work that took.
+ *  SearchInfos are immutable.
+ *  @author Hanqi Xiong
+ */
+class SearchInfo {
+
+    /** A report that the line of play PV, which is RANK'th best (from
+     *  1) among the lines searched from some position, has value SCORE
+     *  (positive values favor red) when searched to DEPTH, and that this
+     *  took NODES nodes and ELAPSED nanoseconds. */
+    SearchInfo(int rank, int score, int depth, long nodes, long elapsed,
+               List<Move> pv) {
+        _rank = rank;
+        _score = score;
+        _depth = depth;
+        _nodes = nodes;
+        _elapsed = elapsed;
+        _pv = List.copyOf(pv);
+    }
+
+    /** Return my rank among the lines searched from the same position,
+     *  counting from 1 for the best. */
+    int rank() {
+        return _rank;
+    }
+
+    /** Return the first move of my line, or null if it is empty. */
+    Move move() {
+        return _pv.isEmpty() ? null : _pv.get(0);
+    }
+
+    /** Return the value of my line.  Positive values favor red. */
+    int score() {
+        return _score;
+    }
+
+    /** Return the depth to which my line was searched. */
+    int depth() {
+        return _depth;
+    }
+
+    /** Return the number of nodes searched. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return the time taken by the search, in nanoseconds. */
+    long elapsed() {
+        return _elapsed;
+    }
+
+    /** Return the number of nodes searched per second. */
+    long nps() {
+        return _elapsed == 0 ? 0 : _nodes * 1_000_000_000L / _elapsed;
+    }
+
+    /** Return my principal variation: the line of play expected. */
+    List<Move> pv() {
+        return _pv;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder pv = new StringBuilder();
+        for (Move move : _pv) {
+            pv.append(' ').append(move);
+        }
+        return String.format("%d. %s score %d depth %d nodes %d nps %d pv%s",
+                             _rank, move(), _score, _depth, _nodes, nps(),
+                             pv);
+    }
+
+    /** Rank of this line. */
+    private final int _rank;
+    /** Value of this line. */
+    private final int _score;
+    /** Depth searched. */
+    private final int _depth;
+    /** Nodes searched. */
+    private final long _nodes;
+    /** Time taken in nanoseconds. */
+    private final long _elapsed;
+    /** The principal variation. */
+    private final List<Move> _pv;
+}
@@ -0,0 +1,132 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+/** Counts of the work done by one or more AI searches.  An AI
+ *  accumulates these as it searches; add() combines the statistics of
+ *  several searches (for example, all those in a session).
+ *  @author Hanqi Xiong
+ */
+class SearchStats {
+
+    /** Number of positions visited. */
+    long nodes;
+    /** Number of positions evaluated statically (depth 0 or game over). */
+    long leafNodes;
+    /** Number of positions whose moves were generated and searched. */
+    long interiorNodes;
+    /** Number of child positions searched from interior nodes. */
+    long childrenSearched;
+    /** Number of searches cut off because a move refuted the position. */
+    long betaCutoffs;
+    /** Number of those cutoffs caused by the first move searched. */
+    long firstMoveCutoffs;
+    /** Number of transposition-table lookups. */
+    long tableProbes;
+    /** Number of those lookups that found an entry. */
+    long tableHits;
+    /** Number of entries written to the transposition table. */
+    long tableStores;
+    /** Number of evaluation-cache lookups. */
+    long evalProbes;
+    /** Number of those lookups that found the position. */
+    long evalHits;
+    /** Greatest number of plies from the root reached. */
+    int maxDepth;
+    /** Number of searches included. */
+    int searches;
+    /** Total elapsed time, in nanoseconds. */
+    long elapsed;
+    /** Time spent generating moves, in nanoseconds. */
+    long moveGenTime;
+    /** Time spent in static evaluation, in nanoseconds. */
+    long evalTime;
+
+    /** Reset all counts to 0. */
+    void clear() {
+        nodes = leafNodes = interiorNodes = childrenSearched = 0;
+        betaCutoffs = firstMoveCutoffs = 0;
+        tableProbes = tableHits = tableStores = 0;
+        evalProbes = evalHits = 0;
+        maxDepth = searches = 0;
+        elapsed = moveGenTime = evalTime = 0;
+    }
+
+    /** Add the counts in OTHER to mine. */
+    void add(SearchStats other) {
+        nodes += other.nodes;
+        leafNodes += other.leafNodes;
+        interiorNodes += other.interiorNodes;
+        childrenSearched += other.childrenSearched;
+        betaCutoffs += other.betaCutoffs;
+        firstMoveCutoffs += other.firstMoveCutoffs;
+        tableProbes += other.tableProbes;
+        tableHits += other.tableHits;
+        tableStores += other.tableStores;
+        evalProbes += other.evalProbes;
+        evalHits += other.evalHits;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+        searches += other.searches;
+        elapsed += other.elapsed;
+        moveGenTime += other.moveGenTime;
+        evalTime += other.evalTime;
+    }
+
+    /** Return a copy of me. */
+    SearchStats copy() {
+        SearchStats result = new SearchStats();
+        result.add(this);
+        return result;
+    }
+
+    /** Return the number of nodes searched per second. */
+    long nps() {
+        return elapsed == 0 ? 0 : nodes * 1_000_000_000L / elapsed;
+    }
+
+    /** Return the fraction of cutoffs caused by the first move tried:
+     *  a measure of the quality of move ordering. */
+    double firstMoveCutoffRate() {
+        return ratio(firstMoveCutoffs, betaCutoffs);
+    }
+
+    /** Return the fraction of transposition-table lookups that
+     *  succeeded. */
+    double tableHitRate() {
+        return ratio(tableHits, tableProbes);
+    }
+
+    /** Return the fraction of evaluation-cache lookups that
+     *  succeeded. */
+    double evalHitRate() {
+        return ratio(evalHits, evalProbes);
+    }
+
+    /** Return the average number of children searched per interior
+     *  node: the effective branching factor after pruning. */
+    double branchingFactor() {
+        return ratio(childrenSearched, interiorNodes);
+    }
+
+    /** Return X/Y, or 0 if Y is 0. */
+    private static double ratio(long x, long y) {
+        return y == 0 ? 0.0 : (double) x / y;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("nodes %d (leaves %d), %d nps, depth %d, "
+                             + "branching %.2f, cutoffs %d (first move "
+                             + "%.1f%%), table probes %d hits %d (%.1f%%) "
+                             + "stores %d, eval cache probes %d hits %d "
+                             + "(%.1f%%), movegen %d msec, eval %d msec",
+                             nodes, leafNodes, nps(), maxDepth,
+                             branchingFactor(), betaCutoffs,
+                             100 * firstMoveCutoffRate(), tableProbes,
+                             tableHits, 100 * tableHitRate(), tableStores,
+                             evalProbes, evalHits, 100 * evalHitRate(),
+                             moveGenTime / 1_000_000, evalTime / 1_000_000);
+    }
+}
@@ -0,0 +1,111 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** The tables in which AI searches keep what they learn for later
+ *  searches: a transposition table, history scores, and a cache of
+ *  static evaluations.  An AI normally allocates its own on its first
+ *  search.  However, each thread made by a factory from threads() carries
+ *  one set of tables, and an AI searching on such a thread borrows that
+ *  thread's tables instead.  A server whose sessions' searches all run
+ *  on a fixed pool of such threads thus needs only as many tables as
+ *  the pool has threads, however many sessions it has.  Borrowed tables
+ *  hold entries from other AIs' searches; since entries are keyed by
+ *  position, these are as valid as an AI's own.
+ *  @author Hanqi Xiong
+ */
+class SearchTables {
+
+    /** Log base 2 of the number of transposition-table entries. */
+    static final int TABLE_LOG_SIZE = 18;
+    /** Number of squares on the extended board. */
+    static final int SQUARES = Board.EXTENDED_SIDE * Board.EXTENDED_SIDE;
+
+    /** A new set of empty tables, with no evaluation cache. */
+    SearchTables() {
+        _table = new TranspositionTable(TABLE_LOG_SIZE);
+        _history = new int[SQUARES * SQUARES];
+    }
+
+    /** Return my transposition table. */
+    TranspositionTable table() {
+        return _table;
+    }
+
+    /** Return my history scores, indexed by from-square index * SQUARES
+     *  + to-square index. */
+    int[] history() {
+        return _history;
+    }
+
+    /** Return my cache of static values for evaluation with NETWORK (by
+     *  counting pieces if null), with 2**LOGSIZE entries, or null if
+     *  LOGSIZE is 0.  The cache is emptied (or reallocated) if LOGSIZE
+     *  or NETWORK differs from that of the last call. */
+    EvalCache evalCache(int logSize, Network network) {
+        if (logSize == 0) {
+            _evalCache = null;
+        } else if (_evalCache == null || _evalCache.size() != 1 << logSize) {
+            _evalCache = new EvalCache(logSize);
+        } else if (network != _evalNetwork) {
+            _evalCache.clear();
+        }
+        _evalNetwork = network;
+        return _evalCache;
+    }
+
+    /** Return the tables carried by the current thread, or null if it
+     *  was not made by a factory from threads(). */
+    static SearchTables ofCurrentThread() {
+        Thread thread = Thread.currentThread();
+        if (!(thread instanceof Carrier)) {
+            return null;
+        }
+        Carrier carrier = (Carrier) thread;
+        if (carrier._tables == null) {
+            carrier._tables = new SearchTables();
+        }
+        return carrier._tables;
+    }
+
+    /** Return a factory for daemon threads named NAME-1, NAME-2, ...,
+     *  each carrying its own tables, allocated when first used by a
+     *  search. */
+    static ThreadFactory threads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return (task) -> {
+            Thread thread = new Carrier(task, name + "-"
+                                        + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /** A thread that carries a set of tables. */
+    private static class Carrier extends Thread {
+
+        /** A thread named NAME that runs TASK. */
+        Carrier(Runnable task, String name) {
+            super(task, name);
+        }
+
+        /** My tables, or null if not yet allocated.  Used only by this
+         *  thread. */
+        private SearchTables _tables;
+    }
+
+    /** Results of earlier searches. */
+    private final TranspositionTable _table;
+    /** History scores. */
+    private final int[] _history;
+    /** Static values of positions evaluated by earlier searches, or
+     *  null. */
+    private EvalCache _evalCache;
+    /** Network with which the values in _evalCache were computed. */
+    private Network _evalNetwork;
+}
@@ -26,6 +26,21 @@ class TextSource implements CommandSource {
 
     @Override
     public String getCommand(String prompt) {
+        if (!FlightEvents.enabled()) {
+            return readCommand(prompt);
+        }
+        FlightEvents.InputWait event = new FlightEvents.InputWait();
+        event.begin();
+        try {
+            return readCommand(prompt);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /** Return the next line of input, or null if there is none,
+     *  prompting with PROMPT if it is not null. */
+    private String readCommand(String prompt) {
         if (prompt != null) {
             System.out.print(prompt);
             System.out.flush();
@@ -34,7 +49,7 @@ class TextSource implements CommandSource {
             return _inp.nextLine();
         } else if (!_readers.isEmpty()) {
             _inp = new Scanner(_readers.remove(0));
-            return getCommand(prompt);
+            return readCommand(prompt);
         } else {
             return null;
         }
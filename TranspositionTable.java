@@ -0,0 +1,128 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.Arrays;
+
+/** A fixed-size, direct-mapped table of search results, keyed by
+ *  Board.searchHash().  Each entry records the depth to which a position
+ *  was searched, the value found, whether that value is exact or only a
+ *  bound, and the best move found.  Entries survive from one search to
+ *  the next, so that an AI can reuse work done on earlier moves.
+ *  @author Hanqi Xiong
+ */
+class TranspositionTable {
+
+    /** Bound type: the stored value is exact. */
+    static final int EXACT = 0;
+    /** Bound type: the true value is at least the stored value. */
+    static final int LOWER = 1;
+    /** Bound type: the true value is at most the stored value. */
+    static final int UPPER = 2;
+
+    /** A table with 2**LOGSIZE entries. */
+    TranspositionTable(int logSize) {
+        int size = 1 << logSize;
+        _mask = size - 1;
+        _keys = new long[size];
+        _data = new long[size];
+        _moves = new int[size];
+        Arrays.fill(_moves, Move.NO_MOVE);
+    }
+
+    /** Look up the position with hash KEY.  Returns true and makes the
+     *  entry available through value(), depth(), bound() and move() iff
+     *  it is present. */
+    boolean probe(long key) {
+        int i = (int) key & _mask;
+        if (_keys[i] != key || _data[i] == 0) {
+            return false;
+        }
+        _found = i;
+        return true;
+    }
+
+    /** Return the value of the entry found by the last successful
+     *  probe. */
+    int value() {
+        return (int) _data[_found];
+    }
+
+    /** Return the depth of the entry found by the last successful
+     *  probe. */
+    int depth() {
+        return (int) (_data[_found] >>> DEPTH_SHIFT) & DEPTH_MASK;
+    }
+
+    /** Return the bound type (EXACT, LOWER, or UPPER) of the entry found
+     *  by the last successful probe. */
+    int bound() {
+        return (int) (_data[_found] >>> BOUND_SHIFT) & BOUND_MASK;
+    }
+
+    /** Return the packed code of the best move of the entry found by
+     *  the last successful probe, or Move.NO_MOVE if none was
+     *  recorded. */
+    int move() {
+        return _moves[_found];
+    }
+
+    /** Return the packed code of the best move recorded for the position
+     *  with hash KEY, or Move.NO_MOVE if there is none. */
+    int bestMove(long key) {
+        return probe(key) ? move() : Move.NO_MOVE;
+    }
+
+    /** Record that the position with hash KEY, searched to DEPTH, has
+     *  value VALUE, which is of bound type BOUND, and that its best move
+     *  has packed code MOVE (possibly Move.NO_MOVE).  Replaces any entry
+     *  for a different position, but keeps a deeper entry for the same
+     *  one. */
+    void store(long key, int depth, int value, int bound, int move) {
+        int i = (int) key & _mask;
+        if (_keys[i] == key && _data[i] != 0
+            && ((_data[i] >>> DEPTH_SHIFT) & DEPTH_MASK) > depth) {
+            return;
+        }
+        _keys[i] = key;
+        _data[i] = (value & 0xffffffffL)
+            | ((long) (depth & DEPTH_MASK) << DEPTH_SHIFT)
+            | ((long) bound << BOUND_SHIFT) | VALID;
+        _moves[i] = move;
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        Arrays.fill(_keys, 0);
+        Arrays.fill(_data, 0);
+        Arrays.fill(_moves, Move.NO_MOVE);
+    }
+
+    /* Each entry's data word holds the value in its low 32 bits, followed
+     * by the depth, the bound type, and a bit that is set in all valid
+     * entries (so that an all-zero word denotes an empty slot). */
+
+    /** Position of the depth field. */
+    private static final int DEPTH_SHIFT = 32;
+    /** Mask for the depth field. */
+    private static final int DEPTH_MASK = 0xff;
+    /** Position of the bound-type field. */
+    private static final int BOUND_SHIFT = 40;
+    /** Mask for the bound-type field. */
+    private static final int BOUND_MASK = 0x3;
+    /** Bit set in every valid entry. */
+    private static final long VALID = 1L << 42;
+
+    /** Mask used to convert keys to indices. */
+    private final int _mask;
+    /** Full keys of the stored positions. */
+    private final long[] _keys;
+    /** Packed value, depth, and bound type of each entry. */
+    private final long[] _data;
+    /** Packed code of the best move of each entry. */
+    private final int[] _moves;
+    /** Index of the entry found by the last successful probe. */
+    private int _found;
+}
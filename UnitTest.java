@@ -15,7 +15,13 @@ public class UnitTest {
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
         textui.runClasses(CommandTest.class, MoveTest.class,
-                          BoardTest.class);
+                          BoardTest.class, GameServerTest.class,
+                          EvaluatorTest.class, GameRecordTest.class,
+                          PositionIndexTest.class, ReplaySourceTest.class,
+                          AsyncReporterTest.class, MoveHistoryTest.class,
+                          BoardFuzzerTest.class, EvalCacheTest.class,
+                          NetworkTest.class, EngineTest.class,
+                          GameTest.class, AITest.class);
     }
 
 }
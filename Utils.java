@@ -69,6 +69,31 @@ class Utils {
         }
     }
 
+    /** Return the contents of the resource named NAME (as for
+     *  printHelpResource), without its final line terminator. */
+    static String helpResource(String name) {
+        StringBuilder result = new StringBuilder();
+        try {
+            InputStream resource =
+                Utils.class.getClassLoader().getResourceAsStream(name);
+            if (resource == null) {
+                return "No help found.";
+            }
+            BufferedReader str =
+                new BufferedReader(new InputStreamReader(resource));
+            for (String s = str.readLine(); s != null; s = str.readLine())  {
+                if (result.length() > 0) {
+                    result.append(System.lineSeparator());
+                }
+                result.append(s);
+            }
+            str.close();
+        } catch (IOException excp) {
+            return "No help found.";
+        }
+        return result.toString();
+    }
+
     /** Shorthand: return String.format(FORMAT, ARGS). */
     static String fmt(String format, Object... args) {
         return String.format(format, args);
@@ -0,0 +1,52 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+/** The arithmetic on vectors of 16-bit integers done by a Network: adding
+ *  rows of weights into an accumulator, and the clipped dot product that
+ *  computes its output.  Sums of shorts wrap around as in Java's
+ *  (short) casts, so that all implementations give identical results.
+ *  @author Hanqi Xiong
+ */
+interface VectorOps {
+
+    /** Name of the module providing the vector API. */
+    String VECTOR_MODULE = "jdk.incubator.vector";
+    /** Name of the implementation that uses it. */
+    String VECTOR_CLASS = "ataxx.IncubatorOps";
+
+    /** Add W[WOFF .. WOFF + N - 1] to ACC[OFF .. OFF + N - 1]. */
+    void add(short[] acc, int off, short[] w, int wOff, int n);
+
+    /** Subtract W[WOFF .. WOFF + N - 1] from ACC[OFF .. OFF + N - 1]. */
+    void sub(short[] acc, int off, short[] w, int wOff, int n);
+
+    /** Add W[ADDOFF .. ADDOFF + N - 1] to, and subtract W[SUBOFF ..
+     *  SUBOFF + N - 1] from, ACC[OFF .. OFF + N - 1]. */
+    void addSub(short[] acc, int off, short[] w, int addOff, int subOff,
+                int n);
+
+    /** Return the sum over 0 <= I < N of W[WOFF + I] times ACC[OFF + I]
+     *  clipped to the range 0 .. LIMIT.  The sum must fit in an int. */
+    int clippedDot(short[] acc, int off, short[] w, int wOff, int n,
+                   int limit);
+
+    /** Return the fastest implementation available: one using the
+     *  incubating vector API (jdk.incubator.vector) if the JVM was
+     *  started with that module (--add-modules jdk.incubator.vector),
+     *  and otherwise a ScalarOps.  The vector implementation is loaded
+     *  reflectively, so that without the module it is never linked. */
+    static VectorOps best() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                return (VectorOps) Class.forName(VECTOR_CLASS)
+                    .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError excp) {
+                /* Fall through to the scalar implementation. */
+            }
+        }
+        return new ScalarOps();
+    }
+}